@@ -5,6 +5,8 @@ import edu.ncsu.csc216.incident_management.model.command.Command;
 /**
  * Interface for states in the Incident Manager State Pattern.  All 
  * concrete incident states must implement the IncidentState interface.
+ * A state keeps no data about any one incident, so a single instance of
+ * each state is shared by every ManagedIncident.
  * 
  * @author Dr. Sarah Heckman (sarah_heckman@ncsu.edu) 
  */
@@ -14,12 +16,13 @@ public interface IncidentState {
 	 * Update the ManagedIncident based on the given Command.
 	 * An UnsupportedOperationException is thrown if the CommandValue
 	 * is not a valid action for the given state.  
+	 * @param incident the ManagedIncident in this state that the command applies to.
 	 * @param command Command describing the action that will update the ManagedIncident's
 	 * state.
 	 * @throws UnsupportedOperationException if the CommandValue is not a valid action
 	 * for the given state.
 	 */
-	void updateState(Command command);
+	void updateState(ManagedIncident incident, Command command);
 	
 	/**
 	 * Returns the name of the current state as a String.
@@ -0,0 +1,23 @@
+package edu.ncsu.csc216.incident_management.model.incident;
+
+/**
+ * Receives a notification each time a ManagedIncident moves from one state of
+ * the Incident Manager State Pattern to another. Used to keep views of the
+ * incidents in each state up to date without scanning every incident.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public interface IncidentStateListener {
+
+	/**
+	 * Called after the incident's state has changed.
+	 *
+	 * @param incident the incident that changed state
+	 * @param oldState the state the incident left
+	 * @param newState the state the incident is now in
+	 */
+	void stateChanged(ManagedIncident incident, IncidentState oldState, IncidentState newState);
+
+}
@@ -1,12 +1,16 @@
 package edu.ncsu.csc216.incident_management.model.incident;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.ncsu.csc216.incident.xml.Incident;
 import edu.ncsu.csc216.incident.xml.WorkNotes;
 import edu.ncsu.csc216.incident_management.model.command.Command;
 import edu.ncsu.csc216.incident_management.model.command.Command.CancellationCode;
+import edu.ncsu.csc216.incident_management.model.command.Command.CommandValue;
 import edu.ncsu.csc216.incident_management.model.command.Command.OnHoldReason;
 import edu.ncsu.csc216.incident_management.model.command.Command.ResolutionCode;
 
@@ -15,6 +19,9 @@ import edu.ncsu.csc216.incident_management.model.command.Command.ResolutionCode;
  * its id, caller, category, state, priority, owner, name, HoldReason,
  * ChangeRequest, ResolutionCode, CancellationCode, notes, and state.
  * 
+ * The six states hold no data of their own, so each is a single instance
+ * shared by every incident; a state is handed the incident it updates.
+ * 
  * @author Dennis Sarsozo
  * @author Zhongxiao Mei
  *
@@ -79,39 +86,77 @@ public class ManagedIncident {
 	}
 
 	/**
-	 * An incident enters the incident management state model in the New state.
-	 * Incidents in the New state should be triaged.
+	 * A state of the incident management state model. A state holds no data
+	 * about any one incident: the command is looked up in the transition table
+	 * under the state's index, so every state updates an incident the same way.
 	 * 
 	 * @author Zhongxiao Mei
 	 * @author Dennis Sarsozo
 	 *
 	 */
-	public class NewState implements IncidentState {
-
-		@Override
-		public void updateState(Command command) {
-			if (command.getCommand() == Command.CommandValue.INVESTIGATE) {
-				owner = command.getOwnerId();
+	private abstract static class TableState implements IncidentState {
 
-				notes.add(command.getWorkNote());
+		/** Row of the state in the transition table */
+		private final int index;
 
-				state = inProgressState;
-			} else if (command.getCommand() == Command.CommandValue.CANCEL) {
-				notes.add(command.getWorkNote());
+		/** Name of the state */
+		private final String name;
 
-				cancellationCode = command.getCancellationCode();
-				state = canceledState;
-			} else {
-				throw new UnsupportedOperationException();
-			}
+		/**
+		 * Creates a state.
+		 * 
+		 * @param index row of the state in the transition table
+		 * @param name  name of the state
+		 */
+		TableState(int index, String name) {
+			this.index = index;
+			this.name = name;
+		}
 
+		/**
+		 * Updates an incident in this state with a command, the same way
+		 * ManagedIncident.update does.
+		 * 
+		 * @throws IllegalArgumentException if the incident is not in this state
+		 */
+		@Override
+		public final void updateState(ManagedIncident incident, Command command) {
+			if (incident.state != this)
+				throw new IllegalArgumentException("The incident is not in the " + name + " state.");
+			incident.fire(command);
 		}
 
 		@Override
-		public String getStateName() {
-			return NEW_NAME;
+		public final String getStateName() {
+			return name;
 		}
 
+		/**
+		 * Gets the row of the state in the transition table.
+		 * 
+		 * @return the index of the state
+		 */
+		public final int getIndex() {
+			return index;
+		}
+	}
+
+	/**
+	 * An incident enters the incident management state model in the New state.
+	 * Incidents in the New state should be triaged.
+	 * 
+	 * @author Zhongxiao Mei
+	 * @author Dennis Sarsozo
+	 *
+	 */
+	public static final class NewState extends TableState {
+
+		/**
+		 * Creates the state. Only the shared instance is ever created.
+		 */
+		private NewState() {
+			super(NEW_INDEX, NEW_NAME);
+		}
 	}
 
 	/**
@@ -124,37 +169,14 @@ public class ManagedIncident {
 	 * @author Dennis Sarsozo
 	 *
 	 */
-	public class InProgressState implements IncidentState {
-
-		@Override
-		public void updateState(Command command) {
-			if (command.getCommand() == Command.CommandValue.HOLD) {
-				notes.add(command.getWorkNote());
-
-				state = onHoldState;
-				onHoldReason = command.getOnHoldReason();
-			} else if (command.getCommand() == Command.CommandValue.RESOLVE) {
-				notes.add(command.getWorkNote());
-
-				state = resolvedState;
-				resolutionCode = command.getResolutionCode();
-			} else if (command.getCommand() == Command.CommandValue.CANCEL) {
-				// ADDED
-				notes.add(command.getWorkNote());
-
-				state = canceledState;
-				cancellationCode = command.getCancellationCode();
-			} else {
-				throw new UnsupportedOperationException();
-			}
-
-		}
+	public static final class InProgressState extends TableState {
 
-		@Override
-		public String getStateName() {
-			return IN_PROGRESS_NAME;
+		/**
+		 * Creates the state. Only the shared instance is ever created.
+		 */
+		private InProgressState() {
+			super(IN_PROGRESS_INDEX, IN_PROGRESS_NAME);
 		}
-
 	}
 
 	/**
@@ -166,48 +188,14 @@ public class ManagedIncident {
 	 * @author Dennis Sarsozo
 	 *
 	 */
-	public class OnHoldState implements IncidentState {
+	public static final class OnHoldState extends TableState {
 
-		@Override
-		public void updateState(Command command) {
-			if (command.getCommand() == Command.CommandValue.REOPEN) {
-				notes.add(command.getWorkNote());
-				if (onHoldReason.equals(Command.OnHoldReason.AWAITING_CHANGE)) {
-					changeRequest = command.getWorkNote();
-				}
-
-				// Remove the holdReason when it LEAVES this state.
-				onHoldReason = null;
-				state = inProgressState;
-			} else if (command.getCommand() == Command.CommandValue.RESOLVE) {
-				state = resolvedState;
-				resolutionCode = command.getResolutionCode();
-
-				notes.add(command.getWorkNote());
-				if (onHoldReason.equals(Command.OnHoldReason.AWAITING_CHANGE)) {
-					changeRequest = command.getWorkNote();
-				}
-
-				// Remove the holdReason when it LEAVES this state.
-				onHoldReason = null;
-			} else if (command.getCommand() == Command.CommandValue.CANCEL) {
-				notes.add(command.getWorkNote());
-
-				state = canceledState;
-				cancellationCode = command.getCancellationCode();
-
-				// Remove the holdReason when it LEAVES this state.
-				onHoldReason = null;
-			} else {
-				throw new UnsupportedOperationException();
-			}
-		}
-
-		@Override
-		public String getStateName() {
-			return ON_HOLD_NAME;
+		/**
+		 * Creates the state. Only the shared instance is ever created.
+		 */
+		private OnHoldState() {
+			super(ON_HOLD_INDEX, ON_HOLD_NAME);
 		}
-
 	}
 
 	/**
@@ -218,41 +206,14 @@ public class ManagedIncident {
 	 * @author Dennis Sarsozo
 	 *
 	 */
-	public class ResolvedState implements IncidentState {
+	public static final class ResolvedState extends TableState {
 
-		@Override
-		public void updateState(Command command) {
-			if (command.getCommand() == Command.CommandValue.HOLD) {
-				notes.add(command.getWorkNote());
-
-				state = onHoldState;
-				resolutionCode = null;
-				onHoldReason = command.getOnHoldReason();
-			} else if (command.getCommand() == Command.CommandValue.REOPEN) {
-				notes.add(command.getWorkNote());
-
-				state = inProgressState;
-				resolutionCode = null;
-			} else if (command.getCommand() == Command.CommandValue.CONFIRM) {
-				notes.add(command.getWorkNote());
-
-				state = closedState;
-			} else if (command.getCommand() == Command.CommandValue.CANCEL) {
-				notes.add(command.getWorkNote());
-
-				state = canceledState;
-				resolutionCode = null;
-				cancellationCode = command.getCancellationCode();
-			} else {
-				throw new UnsupportedOperationException();
-			}
-		}
-
-		@Override
-		public String getStateName() {
-			return RESOLVED_NAME;
+		/**
+		 * Creates the state. Only the shared instance is ever created.
+		 */
+		private ResolvedState() {
+			super(RESOLVED_INDEX, RESOLVED_NAME);
 		}
-
 	}
 
 	/**
@@ -262,25 +223,14 @@ public class ManagedIncident {
 	 * @author Zhongxiao Mei
 	 * @author Dennis Sarsozo
 	 */
-	public class ClosedState implements IncidentState {
-		@Override
-		public void updateState(Command command) {
-			if (command.getCommand() == Command.CommandValue.REOPEN) {
-				notes.add(command.getWorkNote());
-
-				// Once NOT cancelled, remove the code.
-				resolutionCode = null;
-				state = inProgressState;
-			} else {
-				throw new UnsupportedOperationException();
-			}
-		}
+	public static final class ClosedState extends TableState {
 
-		@Override
-		public String getStateName() {
-			return CLOSED_NAME;
+		/**
+		 * Creates the state. Only the shared instance is ever created.
+		 */
+		private ClosedState() {
+			super(CLOSED_INDEX, CLOSED_NAME);
 		}
-
 	}
 
 	/**
@@ -293,36 +243,14 @@ public class ManagedIncident {
 	 * @author Dennis Sarsozo
 	 *
 	 */
-	public class CanceledState implements IncidentState {
+	public static final class CanceledState extends TableState {
 
-		@Override
-		public void updateState(Command command) {
-			// Once an incident is in the Canceled state, the incident cannot leave (the
-			// user would have to report a new incident if needed).
-			if (command.getCommand() == Command.CommandValue.CANCEL
-					|| command.getCommand() == Command.CommandValue.CONFIRM
-					|| command.getCommand() == Command.CommandValue.HOLD
-					|| command.getCommand() == Command.CommandValue.INVESTIGATE
-					|| command.getCommand() == Command.CommandValue.REOPEN
-					|| command.getCommand() == Command.CommandValue.RESOLVE) {
-				owner = null;
-			}
-
-			if (command.getCommand() == Command.CommandValue.CANCEL
-					|| command.getCommand() == Command.CommandValue.CONFIRM
-					|| command.getCommand() == Command.CommandValue.HOLD
-					|| command.getCommand() == Command.CommandValue.INVESTIGATE
-					|| command.getCommand() == Command.CommandValue.REOPEN
-					|| command.getCommand() == Command.CommandValue.RESOLVE) {
-				throw new UnsupportedOperationException();
-			}
-		}
-
-		@Override
-		public String getStateName() {
-			return CANCELED_NAME;
+		/**
+		 * Creates the state. Only the shared instance is ever created.
+		 */
+		private CanceledState() {
+			super(CANCELED_INDEX, CANCELED_NAME);
 		}
-
 	}
 
 	/**
@@ -401,7 +329,7 @@ public class ManagedIncident {
 	/**
 	 * Current state for the incident of type IncidentState.
 	 */
-	private IncidentState state;
+	private TableState state;
 	/**
 	 * Priority of the incident. One of the Priority values.
 	 */
@@ -435,42 +363,200 @@ public class ManagedIncident {
 	 */
 	private CancellationCode cancellationCode;
 	/**
-	 * An ArrayList of notes.
+	 * An ArrayList of notes, or null if the notes are kept in noteStore. A list is
+	 * never changed once assigned; a new note assigns a longer copy, so a reader
+	 * without the incident's lock always sees a whole list.
+	 */
+	private volatile ArrayList<String> notes;
+	/**
+	 * The store holding the notes off the heap, or null if they are in notes.
+	 */
+	private OffHeapNoteStore noteStore;
+	/**
+	 * Handles of the notes in noteStore, oldest first. Replaced rather than
+	 * changed, like notes.
+	 */
+	private volatile long[] noteHandles;
+	/**
+	 * The store that incidents constructed from now on keep their notes in, or
+	 * null to keep them on the heap.
+	 */
+	private static volatile OffHeapNoteStore defaultNoteStore;
+	/**
+	 * Pool shared by every ManagedIncident for the callers, owners and notes that
+	 * repeat across incidents.
 	 */
-	private ArrayList<String> notes;
+	private static final StringPool STRINGS = new StringPool();
 	/**
 	 * A static field that keeps track of the id value that should be given to the
-	 * next ManagedIncident created.
+	 * next ManagedIncident created without an explicit id. ManagedIncidentList
+	 * allocates its own ids and does not use this counter.
 	 */
-	private static int counter = 0;
+	private static final AtomicInteger counter = new AtomicInteger(0);
+	/**
+	 * Source of version numbers, shared by every ManagedIncident so versions from
+	 * different incidents can be compared.
+	 */
+	private static final AtomicLong versions = new AtomicLong(0);
+	/**
+	 * Version of the incident, taken from versions when it is constructed, when it
+	 * is added to a list and each time a command changes it. An incident whose
+	 * version is above a saved mark has changed since that save.
+	 */
+	private volatile long version = nextVersion();
+	/**
+	 * Notified when the incident changes state, or null if nothing is listening.
+	 */
+	private IncidentStateListener stateListener;
 
 	/**
-	 * initialize the newState
+	 * Row of the New state in the transition table
+	 */
+	private static final int NEW_INDEX = 0;
+	/**
+	 * Row of the In Progress state in the transition table
+	 */
+	private static final int IN_PROGRESS_INDEX = 1;
+	/**
+	 * Row of the On Hold state in the transition table
+	 */
+	private static final int ON_HOLD_INDEX = 2;
+	/**
+	 * Row of the Resolved state in the transition table
+	 */
+	private static final int RESOLVED_INDEX = 3;
+	/**
+	 * Row of the Closed state in the transition table
+	 */
+	private static final int CLOSED_INDEX = 4;
+	/**
+	 * Row of the Canceled state in the transition table
+	 */
+	private static final int CANCELED_INDEX = 5;
+	/**
+	 * The New state, shared by every incident
+	 */
+	private static final TableState NEW_STATE = new NewState();
+	/**
+	 * The In Progress state, shared by every incident
+	 */
+	private static final TableState IN_PROGRESS_STATE = new InProgressState();
+	/**
+	 * The On Hold state, shared by every incident
+	 */
+	private static final TableState ON_HOLD_STATE = new OnHoldState();
+	/**
+	 * The Resolved state, shared by every incident
+	 */
+	private static final TableState RESOLVED_STATE = new ResolvedState();
+	/**
+	 * The Closed state, shared by every incident
 	 */
-	private final IncidentState newState = new NewState();
+	private static final TableState CLOSED_STATE = new ClosedState();
 	/**
-	 * initialize the inProgressState
+	 * The Canceled state, shared by every incident
 	 */
-	private final IncidentState inProgressState = new InProgressState();
+	private static final TableState CANCELED_STATE = new CanceledState();
 	/**
-	 * initialize the onHoldState
+	 * The states by their row in the transition table
 	 */
-	private final IncidentState onHoldState = new OnHoldState();
+	private static final TableState[] STATES = { NEW_STATE, IN_PROGRESS_STATE, ON_HOLD_STATE, RESOLVED_STATE,
+			CLOSED_STATE, CANCELED_STATE };
 	/**
-	 * initialize the resolvedState
+	 * The number of states. The states are indexed 0 to STATE_COUNT - 1 in the
+	 * order New, In Progress, On Hold, Resolved, Closed and Canceled, and the
+	 * indexes are stored in binary snapshots, so the order must not change.
 	 */
-	private final IncidentState resolvedState = new ResolvedState();
+	public static final int STATE_COUNT = STATES.length;
 	/**
-	 * initialize the closedState
+	 * Action: set the owner to the command's owner id
 	 */
-	private final IncidentState closedState = new ClosedState();
+	private static final int SET_OWNER = 1;
 	/**
-	 * initialize the canceledState
+	 * Action: clear the owner
 	 */
-	private final IncidentState canceledState = new CanceledState();
+	private static final int CLEAR_OWNER = 1 << 1;
+	/**
+	 * Action: add the command's work note
+	 */
+	private static final int ADD_NOTE = 1 << 2;
+	/**
+	 * Action: keep the work note as the change request if the incident was
+	 * awaiting a change
+	 */
+	private static final int RECORD_CHANGE_REQUEST = 1 << 3;
+	/**
+	 * Action: clear the on hold reason
+	 */
+	private static final int CLEAR_ON_HOLD_REASON = 1 << 4;
+	/**
+	 * Action: set the on hold reason from the command
+	 */
+	private static final int SET_ON_HOLD_REASON = 1 << 5;
+	/**
+	 * Action: clear the resolution code
+	 */
+	private static final int CLEAR_RESOLUTION_CODE = 1 << 6;
+	/**
+	 * Action: set the resolution code from the command
+	 */
+	private static final int SET_RESOLUTION_CODE = 1 << 7;
+	/**
+	 * Action: set the cancellation code from the command
+	 */
+	private static final int SET_CANCELLATION_CODE = 1 << 8;
+	/**
+	 * Next state of a command that is not allowed
+	 */
+	private static final int REJECT = -1;
+	/**
+	 * The row of the state each command moves an incident to, indexed by the row
+	 * of the current state and the ordinal of the CommandValue; REJECT if the
+	 * command is not allowed
+	 */
+	private static final int[][] NEXT_STATE = new int[STATES.length][CommandValue.values().length];
+	/**
+	 * The actions each command takes, indexed like NEXT_STATE. The actions of a
+	 * rejected command are taken before it is rejected.
+	 */
+	private static final int[][] ACTIONS = new int[STATES.length][CommandValue.values().length];
+
+	static {
+		for (int[] row : NEXT_STATE) {
+			Arrays.fill(row, REJECT);
+		}
+		allow(NEW_INDEX, CommandValue.INVESTIGATE, IN_PROGRESS_INDEX, SET_OWNER | ADD_NOTE);
+		allow(NEW_INDEX, CommandValue.CANCEL, CANCELED_INDEX, ADD_NOTE | SET_CANCELLATION_CODE);
+
+		allow(IN_PROGRESS_INDEX, CommandValue.HOLD, ON_HOLD_INDEX, ADD_NOTE | SET_ON_HOLD_REASON);
+		allow(IN_PROGRESS_INDEX, CommandValue.RESOLVE, RESOLVED_INDEX, ADD_NOTE | SET_RESOLUTION_CODE);
+		allow(IN_PROGRESS_INDEX, CommandValue.CANCEL, CANCELED_INDEX, ADD_NOTE | SET_CANCELLATION_CODE);
+
+		// The hold reason is removed when the incident leaves On Hold.
+		allow(ON_HOLD_INDEX, CommandValue.REOPEN, IN_PROGRESS_INDEX,
+				ADD_NOTE | RECORD_CHANGE_REQUEST | CLEAR_ON_HOLD_REASON);
+		allow(ON_HOLD_INDEX, CommandValue.RESOLVE, RESOLVED_INDEX,
+				ADD_NOTE | RECORD_CHANGE_REQUEST | CLEAR_ON_HOLD_REASON | SET_RESOLUTION_CODE);
+		allow(ON_HOLD_INDEX, CommandValue.CANCEL, CANCELED_INDEX,
+				ADD_NOTE | CLEAR_ON_HOLD_REASON | SET_CANCELLATION_CODE);
+
+		allow(RESOLVED_INDEX, CommandValue.HOLD, ON_HOLD_INDEX, ADD_NOTE | CLEAR_RESOLUTION_CODE | SET_ON_HOLD_REASON);
+		allow(RESOLVED_INDEX, CommandValue.REOPEN, IN_PROGRESS_INDEX, ADD_NOTE | CLEAR_RESOLUTION_CODE);
+		allow(RESOLVED_INDEX, CommandValue.CONFIRM, CLOSED_INDEX, ADD_NOTE);
+		allow(RESOLVED_INDEX, CommandValue.CANCEL, CANCELED_INDEX,
+				ADD_NOTE | CLEAR_RESOLUTION_CODE | SET_CANCELLATION_CODE);
+
+		allow(CLOSED_INDEX, CommandValue.REOPEN, IN_PROGRESS_INDEX, ADD_NOTE | CLEAR_RESOLUTION_CODE);
+
+		// Once an incident is in the Canceled state, the incident cannot leave (the
+		// user would have to report a new incident if needed). Every command
+		// clears the owner before it is rejected.
+		Arrays.fill(ACTIONS[CANCELED_INDEX], CLEAR_OWNER);
+	}
 
 	/**
-	 * Constructs a ManagedIncident from the provided parameters.
+	 * Constructs a ManagedIncident from the provided parameters. The id is taken
+	 * from the static counter.
 	 * 
 	 * @param caller   the caller
 	 * @param category the category of the incident
@@ -479,13 +565,27 @@ public class ManagedIncident {
 	 * @param workNote the work notes
 	 */
 	public ManagedIncident(String caller, Category category, Priority priority, String name, String workNote) {
+		this(allocateId(caller, category, priority, name, workNote), caller, category, priority, name, workNote);
+	}
+
+	/**
+	 * Constructs a ManagedIncident with the given id from the provided parameters.
+	 * 
+	 * @param incidentId the id of the incident
+	 * @param caller     the caller
+	 * @param category   the category of the incident
+	 * @param priority   the priority of the incident
+	 * @param name       the name
+	 * @param workNote   the work notes
+	 */
+	public ManagedIncident(int incidentId, String caller, Category category, Priority priority, String name,
+			String workNote) {
 		checkParameters(caller, category, priority, name, workNote);
-		// ASSUME an entirely new Incident. Thus, a newState.
+		// ASSUME an entirely new Incident. Thus, the New state.
 
-		this.incidentId = ManagedIncident.counter;
-		ManagedIncident.incrementCounter();
+		this.incidentId = incidentId;
 
-		this.caller = caller;
+		this.caller = STRINGS.intern(caller);
 
 		this.owner = null;
 
@@ -493,15 +593,14 @@ public class ManagedIncident {
 		this.priority = priority;
 
 		this.name = name;
-		this.notes = new ArrayList<String>();
-		this.notes.add(workNote);
+		initNotes(Arrays.asList(workNote));
 
 		this.onHoldReason = null;
 		this.changeRequest = null;
 		this.resolutionCode = null;
 		this.cancellationCode = null;
 
-		this.state = newState;
+		this.state = NEW_STATE;
 	}
 
 	/**
@@ -510,19 +609,98 @@ public class ManagedIncident {
 	 * @param i the incident
 	 */
 	public ManagedIncident(Incident i) {
-		checkIncident(i);
+		this(i, true);
+	}
+
+	/**
+	 * The fields of the ManagedIncident are set to the values from the Incident,
+	 * checking the Incident first only if asked to.
+	 * 
+	 * @param i     the incident
+	 * @param check whether to check the incident
+	 */
+	private ManagedIncident(Incident i, boolean check) {
+		if (check)
+			checkIncident(i);
+		else
+			setCodes(i);
 		// Assume Incident could be in ANY state.
 
 		this.incidentId = i.getId();
-		ManagedIncident.incrementCounter();
 
-		this.caller = i.getCaller();
-		this.owner = i.getOwner();
+		this.caller = STRINGS.intern(i.getCaller());
+		this.owner = STRINGS.intern(i.getOwner());
 		this.name = i.getName();
 		// Check if below is valid.
-		this.notes = new ArrayList<String>();
-		this.notes.addAll(i.getWorkNotes().getNotes());
-		this.changeRequest = i.getChangeRequest();
+		initNotes(i.getWorkNotes().getNotes());
+		this.changeRequest = STRINGS.intern(i.getChangeRequest());
+	}
+
+	/**
+	 * Constructs a ManagedIncident in any state from the values of all of its
+	 * fields, for example when it is read back from a snapshot.
+	 * 
+	 * @param incidentId       the id of the incident
+	 * @param caller           the caller
+	 * @param category         the category of the incident
+	 * @param stateName        the name of the incident's state
+	 * @param priority         the priority of the incident
+	 * @param owner            the owner, or null
+	 * @param name             the name
+	 * @param onHoldReason     the on hold reason, or null
+	 * @param changeRequest    the change request, or null
+	 * @param resolutionCode   the resolution code, or null
+	 * @param cancellationCode the cancellation code, or null
+	 * @param notes            the work notes, oldest first
+	 */
+	public ManagedIncident(int incidentId, String caller, Category category, String stateName, Priority priority,
+			String owner, String name, OnHoldReason onHoldReason, String changeRequest, ResolutionCode resolutionCode,
+			CancellationCode cancellationCode, List<String> notes) {
+		if (notes == null || notes.isEmpty())
+			throw new IllegalArgumentException("An incident needs at least one work note.");
+		checkParameters(caller, category, priority, name, notes.get(0));
+		setState(stateName);
+
+		this.incidentId = incidentId;
+		this.caller = STRINGS.intern(caller);
+		this.category = category;
+		this.priority = priority;
+		this.owner = STRINGS.intern(owner);
+		this.name = name;
+		this.onHoldReason = onHoldReason;
+		this.changeRequest = STRINGS.intern(changeRequest);
+		this.resolutionCode = resolutionCode;
+		this.cancellationCode = cancellationCode;
+		initNotes(notes);
+	}
+
+	/**
+	 * Constructs a copy of a ManagedIncident, as it is at the time of the call.
+	 * The fields are copied, so later commands on either incident do not change
+	 * the other, and notes added to either one afterwards do not appear in the
+	 * other. The states are shared, as they hold no per-incident data. The
+	 * version is copied, but the state listener is not.
+	 * 
+	 * @param other the incident to copy
+	 */
+	public ManagedIncident(ManagedIncident other) {
+		this.incidentId = other.incidentId;
+		this.caller = other.caller;
+		this.category = other.category;
+		this.priority = other.priority;
+		this.owner = other.owner;
+		this.name = other.name;
+		this.onHoldReason = other.onHoldReason;
+		this.changeRequest = other.changeRequest;
+		this.resolutionCode = other.resolutionCode;
+		this.cancellationCode = other.cancellationCode;
+		// Neither list is ever changed in place, so the copy can share them.
+		this.notes = other.notes;
+		this.noteStore = other.noteStore;
+		this.noteHandles = other.noteHandles;
+		if (other.state != null)
+			this.state = other.state;
+		this.version = other.version;
 	}
 
 	/**
@@ -534,7 +712,8 @@ public class ManagedIncident {
 	 * @param name     the name
 	 * @param workNote the work notes
 	 */
-	private void checkParameters(String caller, Category category, Priority priority, String name, String workNote) {
+	private static void checkParameters(String caller, Category category, Priority priority, String name,
+			String workNote) {
 		if (caller == null || category == null || priority == null || name == null || workNote == null)
 			throw new IllegalArgumentException("One of the parameters is null.");
 
@@ -542,6 +721,23 @@ public class ManagedIncident {
 			throw new IllegalArgumentException("One of the strings is empty.");
 	}
 
+	/**
+	 * Checks the parameters and then takes the next id from the static counter, so
+	 * that invalid parameters do not use up an id.
+	 * 
+	 * @param caller   the caller
+	 * @param category the category of the incident
+	 * @param priority the priority of the incident
+	 * @param name     the name
+	 * @param workNote the work notes
+	 * @return the id for the new incident
+	 */
+	private static int allocateId(String caller, Category category, Priority priority, String name,
+			String workNote) {
+		checkParameters(caller, category, priority, name, workNote);
+		return counter.getAndIncrement();
+	}
+
 	/**
 	 * Check the Incident if it can be converted to an ManagedIncident.
 	 * 
@@ -571,21 +767,41 @@ public class ManagedIncident {
 			throw new IllegalArgumentException("One of the Strings is null or empty.");
 
 		try {
-			setCategory(checkMe.getCategory());
+			setCodes(checkMe);
+		} catch (Exception e) {
+			// throw new IllegalArgumentException(e.getMessage());
+		}
 
-			setState(checkMe.getState());
+	}
 
-			setPriority(checkMe.getPriority());
+	/**
+	 * Converts an Incident that IncidentValidator has already accepted, without
+	 * checking it again, so an incident read from a file is validated once.
+	 * 
+	 * @param valid the incident, already validated
+	 * @return the ManagedIncident
+	 */
+	public static ManagedIncident fromValidIncident(Incident valid) {
+		return new ManagedIncident(valid, false);
+	}
 
-			setOnHoldReason(checkMe.getOnHoldReason());
+	/**
+	 * Sets the category, state, priority and codes from the names in an Incident.
+	 * 
+	 * @param i the incident
+	 */
+	private void setCodes(Incident i) {
+		setCategory(i.getCategory());
 
-			setResolutionCode(checkMe.getResolutionCode());
+		setState(i.getState());
 
-			setCancellationCode(checkMe.getCancellationCode());
-		} catch (Exception e) {
-			// throw new IllegalArgumentException(e.getMessage());
-		}
+		setPriority(i.getPriority());
 
+		setOnHoldReason(i.getOnHoldReason());
+
+		setResolutionCode(i.getResolutionCode());
+
+		setCancellationCode(i.getCancellationCode());
 	}
 
 	/**
@@ -593,7 +809,7 @@ public class ManagedIncident {
 	 * created by 1.
 	 */
 	public static void incrementCounter() {
-		counter++;
+		counter.incrementAndGet();
 	}
 
 	/**
@@ -664,6 +880,15 @@ public class ManagedIncident {
 			throw new IllegalArgumentException("Invalid category String.");
 	}
 
+	/**
+	 * Gets the Incident's Priority
+	 * 
+	 * @return the priority
+	 */
+	public Priority getPriority() {
+		return priority;
+	}
+
 	/**
 	 * Get the Incident's Priority in String.
 	 * 
@@ -701,6 +926,15 @@ public class ManagedIncident {
 			throw new IllegalArgumentException("Invalid Priority String.");
 	}
 
+	/**
+	 * Gets the Incident's OnHoldReason
+	 * 
+	 * @return the onHoldReason, or null if the incident is not On Hold
+	 */
+	public OnHoldReason getOnHoldReason() {
+		return onHoldReason;
+	}
+
 	/**
 	 * Gets the Incident's OnHoldReason in String
 	 * 
@@ -740,6 +974,15 @@ public class ManagedIncident {
 
 	}
 
+	/**
+	 * Gets the Incident's CancellationCode
+	 * 
+	 * @return the cancellationCode, or null if the incident is not Canceled
+	 */
+	public CancellationCode getCancellationCode() {
+		return cancellationCode;
+	}
+
 	/**
 	 * Gets the Incident's CancellationCode in String
 	 * 
@@ -793,22 +1036,125 @@ public class ManagedIncident {
 	 * @param state the state of incident
 	 */
 	private void setState(String state) {
-		if (state == null || state.isEmpty())
+		this.state = STATES[getStateIndex(state)];
+	}
+
+	/**
+	 * Gets the index of the Incident's state, its row in the transition table.
+	 * 
+	 * @return the index, from 0 to STATE_COUNT - 1
+	 */
+	public int getStateIndex() {
+		return state.getIndex();
+	}
+
+	/**
+	 * Gets the index of the state with the given name.
+	 * 
+	 * @param stateName the name of the state
+	 * @return the index, from 0 to STATE_COUNT - 1
+	 * @throws IllegalArgumentException if no state has the name
+	 */
+	public static int getStateIndex(String stateName) {
+		if (stateName == null || stateName.isEmpty())
 			throw new IllegalArgumentException("Null/Empty State String.");
-		else if (state.equals(NEW_NAME))
-			this.state = newState;
-		else if (state.equals(IN_PROGRESS_NAME))
-			this.state = inProgressState;
-		else if (state.equals(ON_HOLD_NAME))
-			this.state = onHoldState;
-		else if (state.equals(RESOLVED_NAME))
-			this.state = resolvedState;
-		else if (state.equals(CLOSED_NAME))
-			this.state = closedState;
-		else if (state.equals(CANCELED_NAME))
-			this.state = canceledState;
-		else
-			throw new IllegalArgumentException("Invalid State String");
+		for (TableState s : STATES) {
+			if (s.getStateName().equals(stateName))
+				return s.getIndex();
+		}
+		throw new IllegalArgumentException("Invalid State String");
+	}
+
+	/**
+	 * Gets the name of the state with the given index.
+	 * 
+	 * @param index the index, from 0 to STATE_COUNT - 1
+	 * @return the name of the state
+	 * @throws IllegalArgumentException if no state has the index
+	 */
+	public static String getStateName(int index) {
+		if (index < 0 || index >= STATES.length)
+			throw new IllegalArgumentException("Invalid state index " + index + ".");
+		return STATES[index].getStateName();
+	}
+
+	/**
+	 * Adds a transition to the table.
+	 * 
+	 * @param from    row of the state the command is allowed in
+	 * @param command the command
+	 * @param to      row of the state the command moves the incident to
+	 * @param actions the actions the command takes
+	 */
+	private static void allow(int from, CommandValue command, int to, int actions) {
+		NEXT_STATE[from][command.ordinal()] = to;
+		ACTIONS[from][command.ordinal()] = actions;
+	}
+
+	/**
+	 * Runs a command through the transition table under the incident's current
+	 * state: the actions of the table cell are taken in a fixed order, then the
+	 * incident moves to the cell's state. Every command that changes a field
+	 * gives the incident a new version, so no path changes the incident unseen by
+	 * the journal or an incremental save.
+	 * 
+	 * @param command the command
+	 * @throws UnsupportedOperationException if the command is not allowed in the
+	 *                                       state
+	 */
+	private void fire(Command command) {
+		int cell = command.getCommand().ordinal();
+		int from = state.index;
+		int next = NEXT_STATE[from][cell];
+		int actions = ACTIONS[from][cell];
+		if ((actions & CLEAR_OWNER) != 0 && owner != null) {
+			owner = null;
+			// A rejected command still clears the owner, so it still counts as a change.
+			if (next == REJECT)
+				version = nextVersion();
+		}
+		if (next == REJECT)
+			throw new UnsupportedOperationException();
+		if ((actions & SET_OWNER) != 0)
+			owner = STRINGS.intern(command.getOwnerId());
+		if ((actions & ADD_NOTE) != 0)
+			addNote(command.getWorkNote());
+		if ((actions & RECORD_CHANGE_REQUEST) != 0 && onHoldReason == OnHoldReason.AWAITING_CHANGE)
+			changeRequest = STRINGS.intern(command.getWorkNote());
+		if ((actions & CLEAR_ON_HOLD_REASON) != 0)
+			onHoldReason = null;
+		if ((actions & SET_ON_HOLD_REASON) != 0)
+			onHoldReason = command.getOnHoldReason();
+		if ((actions & CLEAR_RESOLUTION_CODE) != 0)
+			resolutionCode = null;
+		if ((actions & SET_RESOLUTION_CODE) != 0)
+			resolutionCode = command.getResolutionCode();
+		if ((actions & SET_CANCELLATION_CODE) != 0)
+			cancellationCode = command.getCancellationCode();
+		transition(STATES[next]);
+		version = nextVersion();
+	}
+
+	/**
+	 * Moves the incident into the given state and notifies the state listener.
+	 * 
+	 * @param next the state the incident moves into
+	 */
+	private void transition(TableState next) {
+		TableState previous = state;
+		state = next;
+		if (stateListener != null && previous != next) {
+			stateListener.stateChanged(this, previous, next);
+		}
+	}
+
+	/**
+	 * Sets the listener that is notified each time the incident changes state.
+	 * 
+	 * @param listener the listener, or null to stop notifications
+	 */
+	public void setStateListener(IncidentStateListener listener) {
+		this.stateListener = listener;
 	}
 
 	/**
@@ -890,12 +1236,104 @@ public class ManagedIncident {
 	}
 
 	/**
-	 * Get the Incident's notes in a ArrayList.
+	 * Get the Incident's notes in a ArrayList. The list is a copy of the notes at
+	 * the time of the call, so it is safe to read while commands add notes, and
+	 * changing it does not change the incident. Notes kept off the heap are
+	 * decoded into the new list.
 	 * 
 	 * @return the notes in ArrayList format.
 	 */
 	public ArrayList<String> getNotes() {
-		return notes;
+		if (noteStore == null) {
+			ArrayList<String> list = notes;
+			return list == null ? null : new ArrayList<String>(list);
+		}
+		long[] handles = noteHandles;
+		ArrayList<String> decoded = new ArrayList<String>(handles.length);
+		for (long handle : handles) {
+			decoded.add(noteStore.read(handle));
+		}
+		return decoded;
+	}
+
+	/**
+	 * Gets the store holding the Incident's notes.
+	 * 
+	 * @return the store, or null if the notes are on the heap
+	 */
+	public OffHeapNoteStore getNoteStore() {
+		return noteStore;
+	}
+
+	/**
+	 * Sets the store that ManagedIncidents constructed from now on keep their
+	 * notes in. Incidents already constructed keep their notes where they are.
+	 * 
+	 * @param store the store, or null to keep notes on the heap
+	 */
+	public static void setDefaultNoteStore(OffHeapNoteStore store) {
+		defaultNoteStore = store;
+	}
+
+	/**
+	 * Gets the store that ManagedIncidents constructed from now on keep their
+	 * notes in.
+	 * 
+	 * @return the store, or null if notes are kept on the heap
+	 */
+	public static OffHeapNoteStore getDefaultNoteStore() {
+		return defaultNoteStore;
+	}
+
+	/**
+	 * Gets the pool that callers, owners and notes kept on the heap are shared
+	 * through, to see how much it saved.
+	 * 
+	 * @return the pool
+	 */
+	public static StringPool getStringPool() {
+		return STRINGS;
+	}
+
+	/**
+	 * Sets the first notes, in the default store if there is one.
+	 * 
+	 * @param initial the notes, oldest first
+	 */
+	private void initNotes(List<String> initial) {
+		noteStore = defaultNoteStore;
+		if (noteStore == null) {
+			ArrayList<String> list = new ArrayList<String>(initial.size());
+			for (String note : initial) {
+				list.add(STRINGS.intern(note));
+			}
+			notes = list;
+		} else {
+			long[] handles = new long[initial.size()];
+			for (int i = 0; i < handles.length; i++) {
+				handles[i] = noteStore.store(initial.get(i));
+			}
+			noteHandles = handles;
+		}
+	}
+
+	/**
+	 * Adds a note after the others by assigning a longer copy of the notes, so
+	 * readers never see a list being changed.
+	 * 
+	 * @param note the note
+	 */
+	private void addNote(String note) {
+		if (noteStore == null) {
+			ArrayList<String> list = new ArrayList<String>(notes.size() + 1);
+			list.addAll(notes);
+			list.add(STRINGS.intern(note));
+			notes = list;
+			return;
+		}
+		long[] handles = Arrays.copyOf(noteHandles, noteHandles.length + 1);
+		handles[handles.length - 1] = noteStore.store(note);
+		noteHandles = handles;
 	}
 
 	/**
@@ -904,13 +1342,14 @@ public class ManagedIncident {
 	 * @return the notes in a String.
 	 */
 	public String getNotesString() {
-		if (notes == null) {
+		ArrayList<String> list = getNotes();
+		if (list == null) {
 			return "";
 		}
 
 		String note = "";
-		for (int i = 0; i < notes.size(); i++) {
-			note += notes.get(i) + '\n' + "-------" + '\n';
+		for (int i = 0; i < list.size(); i++) {
+			note += list.get(i) + '\n' + "-------" + '\n';
 			// note += notes.get(i) + '\n' + "-------" + '\n' + "note" + '\n' + "-------" +
 			// '\n';
 		}
@@ -918,13 +1357,49 @@ public class ManagedIncident {
 	}
 
 	/**
-	 * the method drives the finite state machine by delegating the Command to the
-	 * current state and if successful adding non-null notes to the notes list.
+	 * the method drives the finite state machine by looking the Command up in the
+	 * transition table under the current state and, if it is allowed, taking the
+	 * actions of the table cell, such as adding the work note to the notes list.
+	 * The version changes whenever a field does, even if the command is then
+	 * rejected.
 	 * 
 	 * @param cmd the command
+	 * @throws UnsupportedOperationException if the command is not allowed in the
+	 *                                       incident's state
 	 */
 	public void update(Command cmd) {
-		state.updateState(cmd);
+		fire(cmd);
+	}
+
+	/**
+	 * Gets the version of the incident. The version grows each time a command
+	 * changes the incident, and is above the version of every incident changed
+	 * before it.
+	 * 
+	 * @return the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gives the incident a new version, so it counts as changed after every mark
+	 * taken before the call. A list calls this when the incident is added, since
+	 * a mark may have been taken between constructing the incident and adding it.
+	 */
+	public void markChanged() {
+		version = nextVersion();
+	}
+
+	/**
+	 * Takes the next version number. Every version handed out afterwards, to any
+	 * incident, is greater, so the result can be kept as a mark to find the
+	 * incidents changed after it.
+	 * 
+	 * @return the version number
+	 */
+	public static long nextVersion() {
+		return versions.incrementAndGet();
 	}
 
 	/**
@@ -943,15 +1418,16 @@ public class ManagedIncident {
 			incident.setOwner(owner);
 		incident.setName(getName());
 
-		if (this.state == onHoldState)
+		if (this.state == ON_HOLD_STATE)
 			incident.setOnHoldReason(getOnHoldReasonString());
-		else if (this.state == resolvedState)
+		else if (this.state == RESOLVED_STATE)
 			incident.setResolutionCode(getResolutionCodeString());
-		else if (this.state == canceledState)
+		else if (this.state == CANCELED_STATE)
 			incident.setCancellationCode(getCancellationCodeString());
-		if (notes != null) {
+		ArrayList<String> list = getNotes();
+		if (list != null) {
 			incident.setWorkNotes(new WorkNotes());
-			incident.getWorkNotes().getNotes().addAll(notes);
+			incident.getWorkNotes().getNotes().addAll(list);
 		} else
 			incident.setWorkNotes(new WorkNotes());
 
@@ -965,7 +1441,7 @@ public class ManagedIncident {
 	 * @param newCounter The new id value
 	 */
 	public static void setCounter(int newCounter) {
-		ManagedIncident.counter = newCounter;
+		ManagedIncident.counter.set(newCounter);
 	}
 
 }
@@ -0,0 +1,149 @@
+package edu.ncsu.csc216.incident_management.model.incident;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Holds work notes outside the Java heap, as UTF-8 bytes in direct
+ * ByteBuffers. Each note stored gets back a long handle, and a ManagedIncident
+ * using the store keeps only the handles, decoding a note when it is asked
+ * for. The collector never copies or scans the note bytes, so the size of the
+ * heap, and the length of its pauses, no longer grows with the volume of notes.
+ *
+ * Notes are written one after another into chunks and are never changed or
+ * freed one at a time, since copies of an incident share its handles. The
+ * chunks are released together when no incident refers to the store any more,
+ * for example after the list is replaced by one loaded with a new store.
+ *
+ * A store is safe to use from several threads. A handle must reach a reading
+ * thread the way the incident holding it does, under the list's locks.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public final class OffHeapNoteStore {
+
+	/** Default size of each chunk, in bytes */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	/** Bytes in the length written before each note */
+	private static final int LENGTH_BYTES = 4;
+
+	/** Size of each chunk, in bytes */
+	private final int chunkSize;
+
+	/** The chunks; only the last one is still being written */
+	private volatile ByteBuffer[] chunks;
+
+	/** Number of chunks in use */
+	private int chunkCount;
+
+	/** Bytes of notes and lengths written to every chunk */
+	private long usedBytes;
+
+	/** Bytes of direct memory held by every chunk */
+	private long capacityBytes;
+
+	/** Number of notes stored */
+	private long noteCount;
+
+	/**
+	 * Creates a store with chunks of the default size.
+	 */
+	public OffHeapNoteStore() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a store with chunks of the given size. A note too long for a chunk
+	 * gets a chunk of its own.
+	 *
+	 * @param chunkSize the size of each chunk, in bytes
+	 */
+	public OffHeapNoteStore(int chunkSize) {
+		if (chunkSize < LENGTH_BYTES)
+			throw new IllegalArgumentException("The chunk size must be at least " + LENGTH_BYTES + " bytes.");
+		this.chunkSize = chunkSize;
+		this.chunks = new ByteBuffer[4];
+	}
+
+	/**
+	 * Stores a note.
+	 *
+	 * @param note the note
+	 * @return the handle to read the note back with
+	 */
+	public synchronized long store(String note) {
+		if (note == null)
+			throw new IllegalArgumentException("A note is required.");
+		byte[] bytes = note.getBytes(StandardCharsets.UTF_8);
+		int needed = LENGTH_BYTES + bytes.length;
+		ByteBuffer chunk = chunkCount == 0 ? null : chunks[chunkCount - 1];
+		if (chunk == null || chunk.remaining() < needed) {
+			chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, needed));
+			ByteBuffer[] all = chunks;
+			if (chunkCount == all.length)
+				all = Arrays.copyOf(all, all.length * 2);
+			all[chunkCount++] = chunk;
+			chunks = all;
+			capacityBytes += chunk.capacity();
+		}
+		int offset = chunk.position();
+		chunk.putInt(bytes.length);
+		chunk.put(bytes);
+		usedBytes += needed;
+		noteCount++;
+		// Publish the bytes written above to threads that read the chunks field.
+		chunks = chunks;
+		return ((long) (chunkCount - 1) << 32) | offset;
+	}
+
+	/**
+	 * Reads a note back.
+	 *
+	 * @param handle a handle returned by store
+	 * @return the note
+	 */
+	public String read(long handle) {
+		ByteBuffer[] all = chunks;
+		int index = (int) (handle >>> 32);
+		int offset = (int) handle;
+		if (index < 0 || index >= all.length || all[index] == null || offset < 0)
+			throw new IllegalArgumentException("Invalid note handle " + handle + ".");
+		// A duplicate has its own position, so reads do not disturb the writer.
+		ByteBuffer chunk = all[index].duplicate();
+		chunk.position(offset);
+		byte[] bytes = new byte[chunk.getInt()];
+		chunk.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the number of notes stored.
+	 *
+	 * @return the number of notes
+	 */
+	public synchronized long getNoteCount() {
+		return noteCount;
+	}
+
+	/**
+	 * Gets the bytes written, counting the length stored with each note.
+	 *
+	 * @return the bytes used
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * Gets the bytes of direct memory the store holds.
+	 *
+	 * @return the bytes allocated
+	 */
+	public synchronized long getCapacityBytes() {
+		return capacityBytes;
+	}
+}
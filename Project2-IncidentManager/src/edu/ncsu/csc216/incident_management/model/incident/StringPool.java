@@ -0,0 +1,174 @@
+package edu.ncsu.csc216.incident_management.model.incident;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares one copy of strings that repeat across incidents, such as callers,
+ * owners and boilerplate work notes. Interning a string equal to one already
+ * in the pool returns the pooled copy, so the new copy can be collected.
+ *
+ * The pool is a fixed table of slots picked by hash code, and a string that
+ * lands on a slot holding a different string replaces it. The pool can never
+ * hold more strings than it has slots, so it cannot leak, and a string pushed
+ * out only means a later copy of it is not shared.
+ *
+ * A pool is safe to use from several threads without locking. Its counts are
+ * kept in striped adders, so threads interning at once do not contend on them,
+ * and a count read while strings are being interned may miss the latest ones.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public final class StringPool {
+
+	/** Default number of slots */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** Bytes in the header of a String, with its fields, on a 64-bit JVM */
+	private static final int STRING_HEADER = 24;
+
+	/** Bytes in the header of the array holding a String's characters */
+	private static final int ARRAY_HEADER = 16;
+
+	/** The slots */
+	private final AtomicReferenceArray<String> slots;
+
+	/** Mask that turns a hash code into a slot */
+	private final int mask;
+
+	/** Number of strings interned */
+	private final LongAdder lookups = new LongAdder();
+
+	/** Number of strings replaced by a pooled copy */
+	private final LongAdder hits = new LongAdder();
+
+	/** Estimated bytes of the copies replaced by a pooled copy */
+	private final LongAdder savedBytes = new LongAdder();
+
+	/**
+	 * Creates a pool with the default number of slots.
+	 */
+	public StringPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a pool with at least the given number of slots, rounded up to a
+	 * power of two.
+	 *
+	 * @param capacity the number of slots
+	 */
+	public StringPool(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30)
+			throw new IllegalArgumentException("The pool capacity must be between 1 and " + (1 << 30) + ".");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		slots = new AtomicReferenceArray<String>(size);
+		mask = size - 1;
+	}
+
+	/**
+	 * Gets the pooled copy of a string, adding the string if no equal one is
+	 * pooled.
+	 *
+	 * @param value the string, or null
+	 * @return a string equal to value, or null if value is null
+	 */
+	public String intern(String value) {
+		if (value == null)
+			return null;
+		lookups.increment();
+		int hash = value.hashCode();
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		String pooled = slots.get(slot);
+		if (pooled == value)
+			return pooled;
+		if (pooled != null && pooled.equals(value)) {
+			hits.increment();
+			savedBytes.add(sizeOf(value));
+			return pooled;
+		}
+		slots.set(slot, value);
+		return value;
+	}
+
+	/**
+	 * Gets the number of slots.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return slots.length();
+	}
+
+	/**
+	 * Gets the number of strings other than null interned.
+	 *
+	 * @return the number of lookups
+	 */
+	public long getLookups() {
+		return lookups.sum();
+	}
+
+	/**
+	 * Gets the number of strings replaced by an equal pooled copy.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the estimated heap the pool saved: the size of every copy that was
+	 * replaced by a pooled one, assuming the copy had no other reference.
+	 *
+	 * @return the bytes saved
+	 */
+	public long getSavedBytes() {
+		return savedBytes.sum();
+	}
+
+	/**
+	 * Empties the pool and zeroes its counts.
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length(); i++) {
+			slots.set(i, null);
+		}
+		lookups.reset();
+		hits.reset();
+		savedBytes.reset();
+	}
+
+	/**
+	 * Estimates the heap taken by a string and its character array. A string of
+	 * only Latin-1 characters takes one byte per character, any other two.
+	 *
+	 * @param value the string
+	 * @return the estimated bytes
+	 */
+	static long sizeOf(String value) {
+		int bytesPerChar = 1;
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > 0xFF) {
+				bytesPerChar = 2;
+				break;
+			}
+		}
+		return STRING_HEADER + align(ARRAY_HEADER + (long) value.length() * bytesPerChar);
+	}
+
+	/**
+	 * Rounds a size up to the 8 bytes objects are aligned to.
+	 *
+	 * @param size the size
+	 * @return the aligned size
+	 */
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+}
@@ -0,0 +1,233 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+
+/**
+ * Replaces a file without ever leaving it half written. The new contents go to
+ * a temporary file in the same directory, which is forced to disk and then
+ * renamed over the target. A crash during a save leaves the previous file
+ * untouched. The previous file can optionally be kept as one or more rotating
+ * backups: fileName.bak is the newest, followed by fileName.bak.2,
+ * fileName.bak.3 and so on. The replaced file's POSIX permissions are kept,
+ * rather than those of the owner-only temporary file.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+class AtomicFileWriter {
+
+	/** Size of the output buffer */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** Suffix of the backup files */
+	private static final String BACKUP_SUFFIX = ".bak";
+
+	/** Suffix of the temporary file written before the rename */
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/** Name of the file to replace */
+	private final String fileName;
+
+	/** Number of backup generations to keep */
+	private final int backupCount;
+
+	/**
+	 * Writes the contents of a file.
+	 *
+	 * @author Dennis Sarsozo
+	 * @author Zhongxiao Mei
+	 *
+	 */
+	interface Content {
+
+		/**
+		 * Writes the contents to a buffered stream. The stream is flushed, forced to
+		 * disk and closed by the AtomicFileWriter.
+		 *
+		 * @param out the stream
+		 * @throws IOException if the contents cannot be written
+		 */
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Creates an AtomicFileWriter for the given file.
+	 *
+	 * @param fileName    name of the file to replace
+	 * @param backupCount number of backup generations to keep, 0 for none
+	 */
+	AtomicFileWriter(String fileName, int backupCount) {
+		checkBackupCount(backupCount);
+		this.fileName = fileName;
+		this.backupCount = backupCount;
+	}
+
+	/**
+	 * Checks that a number of backups is valid.
+	 *
+	 * @param backupCount the number of backup generations to keep
+	 */
+	static void checkBackupCount(int backupCount) {
+		if (backupCount < 0)
+			throw new IllegalArgumentException("The number of backups cannot be negative.");
+	}
+
+	/**
+	 * Replaces the file with the given contents. The file is only replaced once
+	 * the new contents are safely on disk, and no file is left open when this
+	 * method returns.
+	 *
+	 * @param content writes the new contents
+	 * @throws IncidentIOException if the file cannot be created or written to
+	 */
+	void write(Content content) throws IncidentIOException {
+		Path temp = null;
+		try {
+			Path target = Paths.get(fileName).toAbsolutePath();
+			temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), TEMP_SUFFIX);
+			writeTo(temp, content);
+			copyPermissions(target, temp);
+			rotateBackups(target);
+			replace(temp, target);
+			temp = null;
+			syncDirectory(target.getParent());
+		} catch (IOException e) {
+			throw new IncidentIOException(e.getMessage());
+		} catch (InvalidPathException e) {
+			throw new IncidentIOException(e.getMessage());
+		} finally {
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException e) {
+					// The save already failed; report that error instead.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the contents to a file and forces them to disk.
+	 *
+	 * @param file    the file to write
+	 * @param content writes the contents
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeTo(Path file, Content content) throws IOException {
+		FileOutputStream fileOut = new FileOutputStream(file.toFile());
+		try {
+			OutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE);
+			content.writeTo(out);
+			out.flush();
+			fileOut.getChannel().force(true);
+		} finally {
+			fileOut.close();
+		}
+	}
+
+	/**
+	 * Gives the temporary file the permissions of the file it replaces, so a save
+	 * does not change who can read the file. Does nothing if the target does not
+	 * exist yet or the file system has no POSIX permissions.
+	 *
+	 * @param target the file about to be replaced
+	 * @param temp   the temporary file
+	 * @throws IOException if the permissions cannot be read or set
+	 */
+	private static void copyPermissions(Path target, Path temp) throws IOException {
+		if (!Files.exists(target) || Files.getFileAttributeView(temp, PosixFileAttributeView.class) == null)
+			return;
+		Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+	}
+
+	/**
+	 * Shifts the backups down one generation and links the current file in as
+	 * the newest backup. The current file stays in place until it is replaced.
+	 *
+	 * @param target the file about to be replaced
+	 * @throws IOException if a backup cannot be moved or created
+	 */
+	private void rotateBackups(Path target) throws IOException {
+		if (backupCount == 0 || !Files.exists(target))
+			return;
+		Files.deleteIfExists(backupPath(target, backupCount));
+		for (int i = backupCount - 1; i >= 1; i--) {
+			Path older = backupPath(target, i);
+			if (Files.exists(older))
+				Files.move(older, backupPath(target, i + 1), StandardCopyOption.REPLACE_EXISTING);
+		}
+		Path newest = backupPath(target, 1);
+		Files.deleteIfExists(newest);
+		try {
+			Files.createLink(newest, target);
+		} catch (UnsupportedOperationException e) {
+			Files.copy(target, newest);
+		} catch (IOException e) {
+			Files.copy(target, newest);
+		}
+	}
+
+	/**
+	 * Gets the name of a backup generation.
+	 *
+	 * @param target     the file being backed up
+	 * @param generation the generation, 1 being the newest
+	 * @return the backup file
+	 */
+	private static Path backupPath(Path target, int generation) {
+		String name = target.getFileName().toString() + BACKUP_SUFFIX;
+		if (generation > 1)
+			name += "." + generation;
+		return target.resolveSibling(name);
+	}
+
+	/**
+	 * Renames the temporary file over the target, atomically where the file
+	 * system supports it.
+	 *
+	 * @param temp   the fully written temporary file
+	 * @param target the file to replace
+	 * @throws IOException if the file cannot be renamed
+	 */
+	private static void replace(Path temp, Path target) throws IOException {
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Forces a directory entry change to disk so the rename survives a crash.
+	 * Not every platform can open a directory, in which case this does nothing.
+	 *
+	 * @param dir the directory holding the renamed file
+	 */
+	private static void syncDirectory(Path dir) {
+		try {
+			FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			// The rename is done; only its durability on this platform is weaker.
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the field types shared by the binary formats, the binary incident
+ * snapshot and the command journal, so both write them the same way. Strings
+ * are an int length, -1 for null, followed by that many bytes of UTF-8, and an
+ * enumeration value is its ordinal as a byte, NO_ORDINAL for null.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public final class BinaryEncoding {
+
+	/** Stored in place of an enumeration value that is not set */
+	public static final byte NO_ORDINAL = -1;
+
+	/**
+	 * Only holds static members.
+	 */
+	private BinaryEncoding() {
+	}
+
+	/**
+	 * Writes a String that may be null as its UTF-8 length and bytes.
+	 *
+	 * @param out   where to write the String
+	 * @param value the String, or null
+	 * @throws IOException if the String cannot be written
+	 */
+	public static void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Reads a String written by writeString.
+	 *
+	 * @param in where to read the String from
+	 * @return the String, or null
+	 * @throws IOException if the String is cut short
+	 */
+	public static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the ordinal of an enumeration value that may be null.
+	 *
+	 * @param value the value, or null
+	 * @return the ordinal, or NO_ORDINAL
+	 */
+	public static int ordinal(Enum<?> value) {
+		return value == null ? NO_ORDINAL : value.ordinal();
+	}
+
+	/**
+	 * Gets the enumeration value with a stored ordinal.
+	 *
+	 * @param <E>      the enumeration
+	 * @param values   the enumeration's values
+	 * @param ordinal  the stored ordinal
+	 * @param nullable whether NO_ORDINAL is allowed
+	 * @return the value, or null for NO_ORDINAL
+	 * @throws IOException if the ordinal is out of range
+	 */
+	public static <E> E valueOf(E[] values, byte ordinal, boolean nullable) throws IOException {
+		if (nullable && ordinal == NO_ORDINAL)
+			return null;
+		if (ordinal < 0 || ordinal >= values.length)
+			throw new IOException("Invalid ordinal " + ordinal + ".");
+		return values[ordinal];
+	}
+}
@@ -0,0 +1,62 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads part of a buffer, such as a mapped file, as a stream. The stream has
+ * its own position, so several streams can read the same buffer at once.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+class ByteBufferInputStream extends InputStream {
+
+	/** A view of the buffer with its own position and limit */
+	private final ByteBuffer view;
+
+	/**
+	 * Creates a stream from the given offset to the end of the buffer.
+	 *
+	 * @param buffer the buffer
+	 * @param offset where to start reading
+	 */
+	ByteBufferInputStream(ByteBuffer buffer, int offset) {
+		this(buffer, offset, buffer.limit());
+	}
+
+	/**
+	 * Creates a stream over part of the buffer.
+	 *
+	 * @param buffer the buffer
+	 * @param offset where to start reading
+	 * @param end    where to stop reading, exclusive
+	 */
+	ByteBufferInputStream(ByteBuffer buffer, int offset, int end) {
+		view = buffer.duplicate();
+		view.limit(end);
+		view.position(offset);
+	}
+
+	@Override
+	public int read() {
+		return view.hasRemaining() ? view.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0)
+			return 0;
+		if (!view.hasRemaining())
+			return -1;
+		int n = Math.min(len, view.remaining());
+		view.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return view.remaining();
+	}
+}
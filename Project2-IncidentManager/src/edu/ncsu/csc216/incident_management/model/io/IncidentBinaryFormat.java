@@ -0,0 +1,147 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.ncsu.csc216.incident_management.model.command.Command.CancellationCode;
+import edu.ncsu.csc216.incident_management.model.command.Command.OnHoldReason;
+import edu.ncsu.csc216.incident_management.model.command.Command.ResolutionCode;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
+
+/**
+ * The layout of a binary incident snapshot, shared by IncidentBinaryWriter and
+ * IncidentBinaryReader. All numbers are big-endian.
+ *
+ * <pre>
+ * header   int magic "IMSB", short version, short flags (0), int count
+ * records  count incident records, one after another
+ * index    count entries of int id, long offset of the record
+ * trailer  long offset of the index, int count, int magic "IMSX"
+ * </pre>
+ *
+ * An incident record is its id; the ordinals of its category, state, priority,
+ * on hold reason, resolution code and cancellation code as bytes, -1 for a code
+ * that is not set; its caller, owner, name and change request; and its number
+ * of notes followed by the notes. Strings and codes are encoded by
+ * BinaryEncoding, and a state is stored as ManagedIncident's index for it.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+final class IncidentBinaryFormat {
+
+	/** Marks the start of a snapshot */
+	static final int MAGIC = 0x494d5342;
+
+	/** Marks the end of a snapshot */
+	static final int TRAILER_MAGIC = 0x494d5358;
+
+	/** The version written by this code, and the newest one it reads */
+	static final short VERSION = 1;
+
+	/** Length of the header */
+	static final int HEADER_SIZE = 12;
+
+	/** Length of the trailer */
+	static final int TRAILER_SIZE = 16;
+
+	/** Length of an index entry */
+	static final int INDEX_ENTRY_SIZE = 12;
+
+	/** The category names, in the order of the Category ordinals */
+	static final String[] CATEGORY_NAMES = { ManagedIncident.C_INQUIRY, ManagedIncident.C_SOFTWARE,
+			ManagedIncident.C_HARDWARE, ManagedIncident.C_NETWORK, ManagedIncident.C_DATABASE };
+
+	/** The priority names, in the order of the Priority ordinals */
+	static final String[] PRIORITY_NAMES = { ManagedIncident.P_URGENT, ManagedIncident.P_HIGH,
+			ManagedIncident.P_MEDIUM, ManagedIncident.P_LOW };
+
+	/** Offset of the category ordinal from the start of a record */
+	static final int CATEGORY_OFFSET = 4;
+
+	/** Offset of the state ordinal from the start of a record */
+	static final int STATE_OFFSET = 5;
+
+	/** Offset of the priority ordinal from the start of a record */
+	static final int PRIORITY_OFFSET = 6;
+
+	/** Offset of the caller, the first String, from the start of a record */
+	static final int STRINGS_OFFSET = 10;
+
+	/**
+	 * Only holds static members.
+	 */
+	private IncidentBinaryFormat() {
+	}
+
+	/**
+	 * Writes an incident record.
+	 *
+	 * @param out      where to write the record
+	 * @param incident the incident
+	 * @throws IOException if the record cannot be written
+	 */
+	static void writeIncident(DataOutput out, ManagedIncident incident) throws IOException {
+		out.writeInt(incident.getIncidentId());
+		out.writeByte(incident.getCategory().ordinal());
+		out.writeByte(incident.getStateIndex());
+		out.writeByte(incident.getPriority().ordinal());
+		out.writeByte(BinaryEncoding.ordinal(incident.getOnHoldReason()));
+		out.writeByte(BinaryEncoding.ordinal(incident.getResolutionCode()));
+		out.writeByte(BinaryEncoding.ordinal(incident.getCancellationCode()));
+		BinaryEncoding.writeString(out, incident.getCaller());
+		BinaryEncoding.writeString(out, incident.getOwner());
+		BinaryEncoding.writeString(out, incident.getName());
+		BinaryEncoding.writeString(out, incident.getChangeRequest());
+		List<String> notes = incident.getNotes();
+		if (notes == null)
+			notes = Collections.<String>emptyList();
+		out.writeInt(notes.size());
+		for (String note : notes) {
+			BinaryEncoding.writeString(out, note);
+		}
+	}
+
+	/**
+	 * Reads an incident record.
+	 *
+	 * @param in where to read the record from
+	 * @return the incident
+	 * @throws IOException if the record is cut short or holds invalid values
+	 */
+	static ManagedIncident readIncident(DataInput in) throws IOException {
+		int id = in.readInt();
+		Category category = BinaryEncoding.valueOf(Category.values(), in.readByte(), false);
+		int state = in.readByte();
+		Priority priority = BinaryEncoding.valueOf(Priority.values(), in.readByte(), false);
+		OnHoldReason onHoldReason = BinaryEncoding.valueOf(OnHoldReason.values(), in.readByte(), true);
+		ResolutionCode resolutionCode = BinaryEncoding.valueOf(ResolutionCode.values(), in.readByte(), true);
+		CancellationCode cancellationCode = BinaryEncoding.valueOf(CancellationCode.values(), in.readByte(), true);
+		if (state < 0 || state >= ManagedIncident.STATE_COUNT)
+			throw new IOException("Incident " + id + " has an invalid state.");
+		String caller = BinaryEncoding.readString(in);
+		String owner = BinaryEncoding.readString(in);
+		String name = BinaryEncoding.readString(in);
+		String changeRequest = BinaryEncoding.readString(in);
+		int count = in.readInt();
+		if (count < 0)
+			throw new IOException("Incident " + id + " has an invalid number of notes.");
+		ArrayList<String> notes = new ArrayList<String>(Math.min(count, 1024));
+		for (int i = 0; i < count; i++) {
+			notes.add(BinaryEncoding.readString(in));
+		}
+		try {
+			return new ManagedIncident(id, caller, category, ManagedIncident.getStateName(state), priority, owner,
+					name, onHoldReason, changeRequest, resolutionCode, cancellationCode, notes);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Incident " + id + " is invalid: " + e.getMessage());
+		}
+	}
+}
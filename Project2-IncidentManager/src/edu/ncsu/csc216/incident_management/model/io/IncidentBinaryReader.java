@@ -0,0 +1,182 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Reads a binary snapshot written by IncidentBinaryWriter. The whole snapshot
+ * can be read in file order, a single incident can be read by id through the
+ * index at the end of the file, or the file can be mapped into memory so its
+ * incidents are only built as they are needed.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentBinaryReader {
+
+	/** Name of the file to read */
+	private String fileName;
+
+	/**
+	 * Creates an IncidentBinaryReader for the given file.
+	 *
+	 * @param fileName name of the file to read
+	 */
+	public IncidentBinaryReader(String fileName) {
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Reads every incident in the snapshot.
+	 *
+	 * @return the incidents in the order they were written
+	 * @throws IncidentIOException if the file cannot be read, is not a snapshot,
+	 *                             was written by a newer version or holds an
+	 *                             invalid incident
+	 */
+	public ArrayList<ManagedIncident> readIncidents() throws IncidentIOException {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+			int count = readHeader(in);
+			ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>(Math.min(count, 1 << 16));
+			for (int i = 0; i < count; i++) {
+				incidents.add(IncidentBinaryFormat.readIncident(in));
+			}
+			return incidents;
+		} catch (EOFException e) {
+			throw new IncidentIOException("The snapshot is cut short.");
+		} catch (IOException e) {
+			throw new IncidentIOException(e.getMessage());
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Reads the incident with the given id, without reading any other incident.
+	 *
+	 * @param id the id of the incident
+	 * @return the incident, or null if the snapshot does not hold it
+	 * @throws IncidentIOException if the file cannot be read, is not a snapshot,
+	 *                             was written by a newer version or the incident
+	 *                             is invalid
+	 */
+	public ManagedIncident readIncident(int id) throws IncidentIOException {
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(fileName, "r");
+			int count = readHeader(file);
+			long length = file.length();
+			if (length < IncidentBinaryFormat.HEADER_SIZE + IncidentBinaryFormat.TRAILER_SIZE)
+				throw new IncidentIOException("The snapshot is cut short.");
+			file.seek(length - IncidentBinaryFormat.TRAILER_SIZE);
+			long indexOffset = file.readLong();
+			int indexCount = file.readInt();
+			if (file.readInt() != IncidentBinaryFormat.TRAILER_MAGIC || indexCount != count || indexOffset < 0
+					|| indexOffset + (long) count * IncidentBinaryFormat.INDEX_ENTRY_SIZE
+							+ IncidentBinaryFormat.TRAILER_SIZE != length)
+				throw new IncidentIOException("The snapshot index is damaged.");
+			int low = 0;
+			int high = count - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				file.seek(indexOffset + (long) mid * IncidentBinaryFormat.INDEX_ENTRY_SIZE);
+				int midId = file.readInt();
+				if (midId < id) {
+					low = mid + 1;
+				} else if (midId > id) {
+					high = mid - 1;
+				} else {
+					file.seek(file.readLong());
+					return IncidentBinaryFormat.readIncident(file);
+				}
+			}
+			return null;
+		} catch (EOFException e) {
+			throw new IncidentIOException("The snapshot is cut short.");
+		} catch (IOException e) {
+			throw new IncidentIOException(e.getMessage());
+		} finally {
+			close(file);
+		}
+	}
+
+	/**
+	 * Maps the snapshot into memory and indexes it, without building any
+	 * ManagedIncident. The file is closed when this method returns; the mapping
+	 * stays valid until the MappedIncidentSnapshot is garbage collected.
+	 *
+	 * @return the mapped snapshot
+	 * @throws IncidentIOException if the file cannot be read, is not a snapshot,
+	 *                             was written by a newer version or is damaged
+	 */
+	public MappedIncidentSnapshot mapIncidents() throws IncidentIOException {
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IncidentIOException("The snapshot is too large to map.");
+			return new MappedIncidentSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		} catch (IOException e) {
+			throw new IncidentIOException(e.getMessage());
+		} catch (InvalidPathException e) {
+			throw new IncidentIOException(e.getMessage());
+		} finally {
+			close(channel);
+		}
+	}
+
+	/**
+	 * Reads and checks the header.
+	 *
+	 * @param in where to read the header from
+	 * @return the number of incidents in the snapshot
+	 * @throws IOException         if the header is cut short
+	 * @throws IncidentIOException if the file is not a snapshot or its version is
+	 *                             not supported
+	 */
+	static int readHeader(DataInput in) throws IOException, IncidentIOException {
+		if (in.readInt() != IncidentBinaryFormat.MAGIC)
+			throw new IncidentIOException("Not an incident snapshot.");
+		short version = in.readShort();
+		if (version < 1 || version > IncidentBinaryFormat.VERSION)
+			throw new IncidentIOException("Unsupported snapshot version " + version + ".");
+		in.readShort();
+		int count = in.readInt();
+		if (count < 0)
+			throw new IncidentIOException("The snapshot has an invalid number of incidents.");
+		return count;
+	}
+
+	/**
+	 * Closes a file, ignoring any error since the file has already been read.
+	 *
+	 * @param file the file, or null
+	 */
+	private static void close(Closeable file) {
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				// Nothing left to read from the file.
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Writes ManagedIncidents to a binary snapshot laid out as described by
+ * IncidentBinaryFormat. A snapshot is smaller and much faster to load than an
+ * incident XML file, and any single incident can be read from it without
+ * reading the rest. Since both formats hold ManagedIncidents, an XML file can be
+ * converted to a snapshot and back with IncidentStreamReader and
+ * IncidentStreamWriter.
+ *
+ * The file is replaced with AtomicFileWriter, so a crash during a save leaves
+ * the previous file untouched.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentBinaryWriter {
+
+	/** Name of the file to write */
+	private String fileName;
+
+	/** Number of backup generations to keep */
+	private int backupCount;
+
+	/**
+	 * Creates an IncidentBinaryWriter for the given file that keeps no backups.
+	 *
+	 * @param fileName name of the file to write
+	 */
+	public IncidentBinaryWriter(String fileName) {
+		this(fileName, 0);
+	}
+
+	/**
+	 * Creates an IncidentBinaryWriter for the given file that keeps the given
+	 * number of backups of the file it replaces.
+	 *
+	 * @param fileName    name of the file to write
+	 * @param backupCount number of backup generations to keep, 0 for none
+	 */
+	public IncidentBinaryWriter(String fileName, int backupCount) {
+		AtomicFileWriter.checkBackupCount(backupCount);
+		this.fileName = fileName;
+		this.backupCount = backupCount;
+	}
+
+	/**
+	 * Writes the incidents to the file, replacing anything already in it.
+	 *
+	 * @param incidents the incidents to write
+	 * @throws IncidentIOException if the file cannot be created or written to
+	 */
+	public void writeIncidents(final List<ManagedIncident> incidents) throws IncidentIOException {
+		new AtomicFileWriter(fileName, backupCount).write(new AtomicFileWriter.Content() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				writeSnapshot(new DataOutputStream(out), incidents);
+			}
+		});
+	}
+
+	/**
+	 * Writes the header, the records, the index and the trailer. The index is
+	 * sorted by id so IncidentBinaryReader can search it.
+	 *
+	 * @param out       the stream to write to
+	 * @param incidents the incidents to write
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	private static void writeSnapshot(DataOutputStream out, List<ManagedIncident> incidents) throws IOException {
+		int count = incidents.size();
+		out.writeInt(IncidentBinaryFormat.MAGIC);
+		out.writeShort(IncidentBinaryFormat.VERSION);
+		out.writeShort(0);
+		out.writeInt(count);
+		long[] entries = new long[count];
+		for (int i = 0; i < count; i++) {
+			ManagedIncident incident = incidents.get(i);
+			entries[i] = ((long) incident.getIncidentId() << 32) | out.size();
+			IncidentBinaryFormat.writeIncident(out, incident);
+		}
+		long indexOffset = out.size();
+		if (indexOffset >= Integer.MAX_VALUE)
+			throw new IOException("Too many incidents for one snapshot.");
+		// Ids are never negative, so sorting the packed entries sorts them by id.
+		Arrays.sort(entries);
+		for (long entry : entries) {
+			out.writeInt((int) (entry >>> 32));
+			out.writeLong(entry & 0xffffffffL);
+		}
+		out.writeLong(indexOffset);
+		out.writeInt(count);
+		out.writeInt(IncidentBinaryFormat.TRAILER_MAGIC);
+		out.flush();
+	}
+}
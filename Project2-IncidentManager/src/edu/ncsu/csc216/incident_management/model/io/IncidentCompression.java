@@ -0,0 +1,90 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses and decompresses incident files as gzip streams. A file is
+ * written compressed when its name ends in .gz, and read compressed whenever it
+ * starts with the gzip magic bytes, whatever its name. Data passes through a
+ * fixed size buffer, so a file is never held in memory whole.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+final class IncidentCompression {
+
+	/** Name ending of a compressed file */
+	static final String GZIP_SUFFIX = ".gz";
+
+	/** First byte of a gzip stream */
+	static final int GZIP_MAGIC_1 = 0x1f;
+
+	/** Second byte of a gzip stream */
+	static final int GZIP_MAGIC_2 = 0x8b;
+
+	/** Size of the buffer used by the compressor and decompressor */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Not used; the methods are static.
+	 */
+	private IncidentCompression() {
+	}
+
+	/**
+	 * Checks whether a file should be written compressed.
+	 *
+	 * @param fileName name of the file
+	 * @return true if the name ends in .gz
+	 */
+	static boolean isCompressedName(String fileName) {
+		return fileName != null && fileName.toLowerCase().endsWith(GZIP_SUFFIX);
+	}
+
+	/**
+	 * Checks whether the first bytes of a file start a gzip stream.
+	 *
+	 * @param first  the first byte, or -1 if the file is empty
+	 * @param second the second byte, or -1 if there is none
+	 * @return true if the file is compressed
+	 */
+	static boolean isCompressed(int first, int second) {
+		return first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2;
+	}
+
+	/**
+	 * Returns a stream of the decompressed file if it is compressed, or the
+	 * stream itself if not.
+	 *
+	 * @param in the file, which must support mark and reset
+	 * @return the contents of the file
+	 * @throws IOException if the file cannot be read or its gzip header is bad
+	 */
+	static InputStream decompress(InputStream in) throws IOException {
+		in.mark(2);
+		int first = in.read();
+		int second = in.read();
+		in.reset();
+		if (!isCompressed(first, second))
+			return in;
+		return new GZIPInputStream(in, BUFFER_SIZE);
+	}
+
+	/**
+	 * Returns a stream that compresses what is written to it into the given
+	 * stream. Call finish on the result once everything is written; closing it
+	 * also closes the given stream.
+	 *
+	 * @param out the stream to write the compressed data to
+	 * @return the compressing stream
+	 * @throws IOException if the gzip header cannot be written
+	 */
+	static GZIPOutputStream compress(OutputStream out) throws IOException {
+		return new GZIPOutputStream(out, BUFFER_SIZE);
+	}
+}
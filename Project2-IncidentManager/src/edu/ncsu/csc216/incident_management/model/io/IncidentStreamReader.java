@@ -0,0 +1,392 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident.xml.Incident;
+import edu.ncsu.csc216.incident.xml.WorkNotes;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Reads an incident file one Incident element at a time with a StAX pull
+ * parser. Each element is validated with IncidentValidator and turned into a
+ * ManagedIncident as soon as its end tag is read, so the working memory needed
+ * does not grow with the size of the file. The file follows the same
+ * incident.xsd schema that IncidentReader and IncidentWriter use. A file that
+ * starts with the gzip magic bytes is decompressed as it is read.
+ *
+ * By default the first invalid incident stops the read. The ValidationMode can
+ * instead collect every error in the file, or skip the invalid incidents and
+ * keep the rest; either way the file is read once, and each error names the
+ * record, the field and the reason. A file that is not well formed XML always
+ * stops the read, since nothing after the damage can be trusted.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentStreamReader {
+
+	/**
+	 * What a read does with an incident that is not valid.
+	 */
+	public enum ValidationMode {
+		/** Stop at the first invalid incident */
+		FAIL_FAST,
+		/**
+		 * Read the whole file and report every error in it, but return no incidents
+		 * if there are any
+		 */
+		COLLECT_ALL,
+		/** Leave out the invalid incidents, report their errors and keep the rest */
+		SKIP_INVALID
+	}
+
+	/** Root element of an incident file; the element names are shared with IncidentStreamWriter */
+	static final String INCIDENTS = "Incidents";
+	/** Element holding a single incident */
+	static final String INCIDENT = "Incident";
+	/** Id element */
+	static final String ID = "id";
+	/** Caller element */
+	static final String CALLER = "caller";
+	/** Category element */
+	static final String CATEGORY = "category";
+	/** State element */
+	static final String STATE = "state";
+	/** Priority element */
+	static final String PRIORITY = "priority";
+	/** Owner element */
+	static final String OWNER = "owner";
+	/** Name element */
+	static final String NAME = "name";
+	/** On hold reason element */
+	static final String ON_HOLD_REASON = "onhold_reason";
+	/** Change request element */
+	static final String CHANGE_REQUEST = "change_request";
+	/** Resolution code element */
+	static final String RESOLUTION_CODE = "resolution_code";
+	/** Cancellation code element */
+	static final String CANCELLATION_CODE = "cancellation_code";
+	/** Work notes element */
+	static final String WORK_NOTES = "work_notes";
+	/** Note element inside the work notes */
+	static final String NOTE = "note";
+	/**
+	 * Target of the processing instruction in a checkpoint snapshot naming the
+	 * first journal segment the snapshot does not cover
+	 */
+	static final String JOURNAL_SEGMENT = "incident-journal-segment";
+	/**
+	 * Target of the processing instruction naming the base file an incremental
+	 * save belongs to; in the base file itself, it names the file
+	 */
+	static final String BASE_ID = "incident-base";
+	/**
+	 * Target of the processing instruction listing the ids deleted since the base
+	 * file was saved
+	 */
+	static final String DELETED = "incident-deleted";
+
+	/** Name of the file to read */
+	private String fileName;
+
+	/** The first journal segment not covered by the file, or 0 */
+	private long journalSegment;
+
+	/** The base file named by the file, or 0 */
+	private long baseId;
+
+	/** The ids the file lists as deleted */
+	private int[] deletedIds = new int[0];
+
+	/** What to do with an incident that is not valid */
+	private ValidationMode mode = ValidationMode.FAIL_FAST;
+
+	/** The errors found by the last read */
+	private ArrayList<IncidentValidationError> errors = new ArrayList<IncidentValidationError>();
+
+	/**
+	 * Creates an IncidentStreamReader for the given file.
+	 *
+	 * @param fileName name of the file to read
+	 */
+	public IncidentStreamReader(String fileName) {
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Sets what a read does with an incident that is not valid. The default is
+	 * FAIL_FAST.
+	 *
+	 * @param mode the validation mode
+	 */
+	public void setValidationMode(ValidationMode mode) {
+		if (mode == null)
+			throw new IllegalArgumentException("A validation mode is required.");
+		this.mode = mode;
+	}
+
+	/**
+	 * Gets the errors found by the last read, in file order. In FAIL_FAST mode
+	 * these are the errors of the first invalid incident.
+	 *
+	 * @return the errors, empty if every incident was valid
+	 */
+	public List<IncidentValidationError> getValidationErrors() {
+		return new ArrayList<IncidentValidationError>(errors);
+	}
+
+	/**
+	 * Reads and validates every incident in the file. Unless the validation mode
+	 * is SKIP_INVALID, nothing is returned unless the whole file is valid.
+	 *
+	 * @return the incidents in the order they appear in the file
+	 * @throws IncidentIOException if the file cannot be read, or any incident is
+	 *                             invalid and the mode is not SKIP_INVALID
+	 */
+	public ArrayList<ManagedIncident> readIncidents() throws IncidentIOException {
+		ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>();
+		InputStream in = null;
+		try {
+			in = IncidentCompression.decompress(new BufferedInputStream(new FileInputStream(fileName)));
+			parse(in, null, 0, incidents);
+		} catch (IOException e) {
+			throw new IncidentIOException(e.getMessage());
+		} finally {
+			close(in);
+		}
+		return incidents;
+	}
+
+	/**
+	 * Reads and validates every incident in an Incidents document, and keeps the
+	 * values of the processing instructions before its root element.
+	 *
+	 * @param in          the document
+	 * @param encoding    the encoding of the document, or null to detect it
+	 * @param firstRecord position in the file of the document's first Incident
+	 *                    element, for error reports
+	 * @param incidents   where to add the incidents, in the order they appear
+	 * @throws IncidentIOException if the document cannot be read, or any incident
+	 *                             is invalid and the mode is not SKIP_INVALID
+	 */
+	void parse(InputStream in, String encoding, int firstRecord, List<ManagedIncident> incidents)
+			throws IncidentIOException {
+		errors.clear();
+		int added = incidents.size();
+		try {
+			XMLStreamReader reader = encoding == null ? IncidentXmlContext.getInputFactory().createXMLStreamReader(in)
+					: IncidentXmlContext.getInputFactory().createXMLStreamReader(in, encoding);
+			try {
+				int event = reader.next();
+				while (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_DOCUMENT) {
+					if (event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+						readInstruction(reader.getPITarget(), reader.getPIData());
+					}
+					event = reader.next();
+				}
+				if (event != XMLStreamConstants.START_ELEMENT || !INCIDENTS.equals(reader.getLocalName())) {
+					throw new IncidentIOException("Expected an " + INCIDENTS + " element.");
+				}
+				int record = firstRecord;
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if (INCIDENT.equals(reader.getLocalName())) {
+						int found = errors.size();
+						Incident incident = readIncident(reader, record, errors);
+						if (IncidentValidator.check(incident, record, errors) && found == errors.size()) {
+							if (errors.isEmpty() || mode == ValidationMode.SKIP_INVALID)
+								incidents.add(ManagedIncident.fromValidIncident(incident));
+						} else if (mode == ValidationMode.FAIL_FAST) {
+							throw new IncidentIOException(errors.get(found).toString());
+						}
+						record++;
+					} else {
+						skipElement(reader);
+					}
+				}
+				// Read to the end so anything after the root element is checked too.
+				while (reader.hasNext()) {
+					reader.next();
+				}
+			} finally {
+				reader.close();
+			}
+			if (mode == ValidationMode.COLLECT_ALL && !errors.isEmpty()) {
+				incidents.subList(added, incidents.size()).clear();
+				throw new IncidentIOException(errors.size() + " errors in the file; the first is " + errors.get(0));
+			}
+		} catch (XMLStreamException e) {
+			throw new IncidentIOException(e.getMessage());
+		} catch (NumberFormatException e) {
+			throw new IncidentIOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Keeps the value of a processing instruction this reader knows.
+	 *
+	 * @param target the target of the instruction
+	 * @param data   the data of the instruction
+	 * @throws NumberFormatException if the data is not a number where one is
+	 *                               expected
+	 */
+	private void readInstruction(String target, String data) {
+		String value = data == null ? "" : data.trim();
+		if (JOURNAL_SEGMENT.equals(target)) {
+			journalSegment = Long.parseLong(value);
+		} else if (BASE_ID.equals(target)) {
+			baseId = Long.parseLong(value);
+		} else if (DELETED.equals(target) && !value.isEmpty()) {
+			String[] ids = value.split("\\s+");
+			deletedIds = new int[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				deletedIds[i] = Integer.parseInt(ids[i]);
+			}
+		}
+	}
+
+	/**
+	 * Gets the first journal segment that is not covered by the file, if the file
+	 * is a checkpoint snapshot. Only known once readIncidents has returned.
+	 *
+	 * @return the segment number, or 0 if the file does not name one
+	 */
+	public long getJournalSegment() {
+		return journalSegment;
+	}
+
+	/**
+	 * Gets the base file id named by the file. In a base file it identifies the
+	 * file; in an incremental save it names the base file the changes apply to.
+	 * Only known once readIncidents has returned.
+	 *
+	 * @return the id, or 0 if the file does not name one
+	 */
+	public long getBaseId() {
+		return baseId;
+	}
+
+	/**
+	 * Gets the ids an incremental save lists as deleted since its base file was
+	 * saved. Only known once readIncidents has returned.
+	 *
+	 * @return the deleted ids, empty if there are none
+	 */
+	public int[] getDeletedIds() {
+		return deletedIds.clone();
+	}
+
+	/**
+	 * Reads the fields of an Incident element. The reader is left on the
+	 * element's end tag. An id that is not a number is reported as an error and
+	 * left as 0.
+	 *
+	 * @param reader the reader, positioned on the Incident start tag
+	 * @param record position of the element in the file
+	 * @param errors where to add an error found while reading
+	 * @return the incident
+	 * @throws XMLStreamException if the element is not well formed
+	 */
+	private static Incident readIncident(XMLStreamReader reader, int record, List<IncidentValidationError> errors)
+			throws XMLStreamException {
+		Incident incident = new Incident();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String element = reader.getLocalName();
+			if (ID.equals(element)) {
+				String id = reader.getElementText().trim();
+				try {
+					incident.setId(Integer.parseInt(id));
+				} catch (NumberFormatException e) {
+					errors.add(new IncidentValidationError(record, 0, ID, "\"" + id + "\" is not a number"));
+				}
+			} else if (CALLER.equals(element)) {
+				incident.setCaller(reader.getElementText());
+			} else if (CATEGORY.equals(element)) {
+				incident.setCategory(reader.getElementText());
+			} else if (STATE.equals(element)) {
+				incident.setState(reader.getElementText());
+			} else if (PRIORITY.equals(element)) {
+				incident.setPriority(reader.getElementText());
+			} else if (OWNER.equals(element)) {
+				incident.setOwner(reader.getElementText());
+			} else if (NAME.equals(element)) {
+				incident.setName(reader.getElementText());
+			} else if (ON_HOLD_REASON.equals(element)) {
+				incident.setOnHoldReason(reader.getElementText());
+			} else if (CHANGE_REQUEST.equals(element)) {
+				incident.setChangeRequest(reader.getElementText());
+			} else if (RESOLUTION_CODE.equals(element)) {
+				incident.setResolutionCode(reader.getElementText());
+			} else if (CANCELLATION_CODE.equals(element)) {
+				incident.setCancellationCode(reader.getElementText());
+			} else if (WORK_NOTES.equals(element)) {
+				incident.setWorkNotes(readWorkNotes(reader));
+			} else {
+				skipElement(reader);
+			}
+		}
+		return incident;
+	}
+
+	/**
+	 * Reads the notes of a work_notes element.
+	 *
+	 * @param reader the reader, positioned on the work_notes start tag
+	 * @return the work notes
+	 * @throws XMLStreamException if the element is not well formed
+	 */
+	private static WorkNotes readWorkNotes(XMLStreamReader reader) throws XMLStreamException {
+		WorkNotes notes = new WorkNotes();
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			if (NOTE.equals(reader.getLocalName())) {
+				notes.getNotes().add(reader.getElementText());
+			} else {
+				skipElement(reader);
+			}
+		}
+		return notes;
+	}
+
+	/**
+	 * Skips an element that is not part of the schema, along with its children.
+	 *
+	 * @param reader the reader, positioned on the element's start tag
+	 * @throws XMLStreamException if the element is not well formed
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Closes a stream, ignoring any error since the file has already been read.
+	 *
+	 * @param in the stream, or null
+	 */
+	private static void close(InputStream in) {
+		if (in != null) {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// Nothing left to read from the stream.
+			}
+		}
+	}
+}
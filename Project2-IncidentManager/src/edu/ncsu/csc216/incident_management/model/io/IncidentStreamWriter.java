@@ -0,0 +1,234 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Writes ManagedIncidents to an incident file with a StAX writer. Each
+ * incident's fields are written straight from the ManagedIncident, so no JAXB
+ * Incident objects are built and nothing is held in memory besides the output
+ * buffer. The file follows the incident.xsd schema and can be read back with
+ * IncidentStreamReader or IncidentReader.
+ *
+ * The file is replaced with AtomicFileWriter, so a crash during a save leaves
+ * the previous file untouched, and the previous file can optionally be kept as
+ * one or more rotating backups. A file whose name ends in .gz is written as a
+ * gzip stream, compressed as it is written.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentStreamWriter {
+
+	/** Encoding of the file */
+	private static final String ENCODING = "UTF-8";
+
+	/** Name of the file to write */
+	private String fileName;
+
+	/** Number of backup generations to keep */
+	private int backupCount;
+
+	/** The first journal segment not covered by the file, or 0 */
+	private long journalSegment;
+
+	/** The base file id to write, or 0 */
+	private long baseId;
+
+	/** The ids to list as deleted, or null */
+	private int[] deletedIds;
+
+	/**
+	 * Creates an IncidentStreamWriter for the given file that keeps no backups.
+	 *
+	 * @param fileName name of the file to write
+	 */
+	public IncidentStreamWriter(String fileName) {
+		this(fileName, 0);
+	}
+
+	/**
+	 * Creates an IncidentStreamWriter for the given file that keeps the given
+	 * number of backups of the file it replaces.
+	 *
+	 * @param fileName    name of the file to write
+	 * @param backupCount number of backup generations to keep, 0 for none
+	 */
+	public IncidentStreamWriter(String fileName, int backupCount) {
+		AtomicFileWriter.checkBackupCount(backupCount);
+		this.fileName = fileName;
+		this.backupCount = backupCount;
+	}
+
+	/**
+	 * Marks the file as a checkpoint snapshot that covers every journal segment
+	 * before the given one. The number is written as a processing instruction,
+	 * which other readers of the file ignore.
+	 *
+	 * @param segment the first journal segment the file does not cover
+	 */
+	public void setJournalSegment(long segment) {
+		this.journalSegment = segment;
+	}
+
+	/**
+	 * Names the base file this file belongs to. A base file names itself; an
+	 * incremental save names the base file its changes apply to, so changes are
+	 * never applied to a newer base. Written as a processing instruction, which
+	 * other readers of the file ignore.
+	 *
+	 * @param baseId the id of the base file, or 0 for none
+	 */
+	public void setBaseId(long baseId) {
+		this.baseId = baseId;
+	}
+
+	/**
+	 * Lists ids deleted since the base file was saved, for an incremental save.
+	 * Written as a processing instruction, which other readers of the file
+	 * ignore.
+	 *
+	 * @param deletedIds the deleted ids, or null for none
+	 */
+	public void setDeletedIds(int[] deletedIds) {
+		this.deletedIds = deletedIds == null ? null : deletedIds.clone();
+	}
+
+	/**
+	 * Writes the incidents to the file, replacing anything already in it. The
+	 * file is only replaced once the new contents are safely on disk, and no
+	 * file is left open when this method returns.
+	 *
+	 * @param incidents the incidents to write
+	 * @throws IncidentIOException if the file cannot be created or written to
+	 */
+	public void writeIncidents(final List<ManagedIncident> incidents) throws IncidentIOException {
+		new AtomicFileWriter(fileName, backupCount).write(new AtomicFileWriter.Content() {
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				try {
+					if (IncidentCompression.isCompressedName(fileName)) {
+						GZIPOutputStream gzip = IncidentCompression.compress(out);
+						writeXml(gzip, incidents);
+						gzip.finish();
+					} else {
+						writeXml(out, incidents);
+					}
+				} catch (XMLStreamException e) {
+					throw new IOException(e.getMessage(), e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Writes the incidents as XML.
+	 *
+	 * @param out       the stream to write to
+	 * @param incidents the incidents to write
+	 * @throws XMLStreamException if the XML cannot be written
+	 */
+	private void writeXml(OutputStream out, List<ManagedIncident> incidents) throws XMLStreamException {
+		XMLStreamWriter writer = IncidentXmlContext.getOutputFactory().createXMLStreamWriter(out, ENCODING);
+		writer.writeStartDocument(ENCODING, "1.0");
+		writer.writeCharacters("\n");
+		if (journalSegment > 0) {
+			writer.writeProcessingInstruction(IncidentStreamReader.JOURNAL_SEGMENT, Long.toString(journalSegment));
+			writer.writeCharacters("\n");
+		}
+		if (baseId != 0) {
+			writer.writeProcessingInstruction(IncidentStreamReader.BASE_ID, Long.toString(baseId));
+			writer.writeCharacters("\n");
+		}
+		if (deletedIds != null && deletedIds.length > 0) {
+			StringBuilder ids = new StringBuilder();
+			for (int id : deletedIds) {
+				if (ids.length() > 0)
+					ids.append(' ');
+				ids.append(id);
+			}
+			writer.writeProcessingInstruction(IncidentStreamReader.DELETED, ids.toString());
+			writer.writeCharacters("\n");
+		}
+		writer.writeStartElement(IncidentStreamReader.INCIDENTS);
+		for (ManagedIncident incident : incidents) {
+			writeIncident(writer, incident);
+		}
+		writer.writeCharacters("\n");
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+		writer.writeEndDocument();
+		writer.close();
+	}
+
+	/**
+	 * Writes one Incident element in schema order. Codes that do not apply to the
+	 * incident's state are left out, so the file passes the same checks it is
+	 * loaded with. Closed incidents keep their resolution code.
+	 *
+	 * @param writer   the writer
+	 * @param incident the incident to write
+	 * @throws XMLStreamException if the element cannot be written
+	 */
+	private static void writeIncident(XMLStreamWriter writer, ManagedIncident incident) throws XMLStreamException {
+		String state = incident.getState().getStateName();
+		writer.writeCharacters("\n\t");
+		writer.writeStartElement(IncidentStreamReader.INCIDENT);
+		writeElement(writer, IncidentStreamReader.ID, Integer.toString(incident.getIncidentId()));
+		writeElement(writer, IncidentStreamReader.CALLER, incident.getCaller());
+		writeElement(writer, IncidentStreamReader.CATEGORY, incident.getCategoryString());
+		writeElement(writer, IncidentStreamReader.STATE, state);
+		writeElement(writer, IncidentStreamReader.PRIORITY, incident.getPriorityString());
+		writeElement(writer, IncidentStreamReader.OWNER, incident.getOwner());
+		writeElement(writer, IncidentStreamReader.NAME, incident.getName());
+		if (ManagedIncident.ON_HOLD_NAME.equals(state))
+			writeElement(writer, IncidentStreamReader.ON_HOLD_REASON, incident.getOnHoldReasonString());
+		writeElement(writer, IncidentStreamReader.CHANGE_REQUEST, incident.getChangeRequest());
+		if (ManagedIncident.RESOLVED_NAME.equals(state) || ManagedIncident.CLOSED_NAME.equals(state))
+			writeElement(writer, IncidentStreamReader.RESOLUTION_CODE, incident.getResolutionCodeString());
+		if (ManagedIncident.CANCELED_NAME.equals(state))
+			writeElement(writer, IncidentStreamReader.CANCELLATION_CODE, incident.getCancellationCodeString());
+		writer.writeCharacters("\n\t\t");
+		writer.writeStartElement(IncidentStreamReader.WORK_NOTES);
+		List<String> notes = incident.getNotes();
+		if (notes != null) {
+			for (String note : notes) {
+				writer.writeCharacters("\n\t\t\t");
+				writer.writeStartElement(IncidentStreamReader.NOTE);
+				writer.writeCharacters(note);
+				writer.writeEndElement();
+			}
+		}
+		writer.writeCharacters("\n\t\t");
+		writer.writeEndElement();
+		writer.writeCharacters("\n\t");
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes a simple element holding text. Nothing is written if the value is
+	 * null.
+	 *
+	 * @param writer  the writer
+	 * @param element the element name
+	 * @param value   the text, or null
+	 * @throws XMLStreamException if the element cannot be written
+	 */
+	private static void writeElement(XMLStreamWriter writer, String element, String value) throws XMLStreamException {
+		if (value == null)
+			return;
+		writer.writeCharacters("\n\t\t");
+		writer.writeStartElement(element);
+		writer.writeCharacters(value);
+		writer.writeEndElement();
+	}
+}
@@ -0,0 +1,93 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+/**
+ * A problem found with one Incident element while an incident file is read:
+ * which element it was, counting from 0 in file order, the id it claimed, the
+ * field at fault, and why the field is not valid.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentValidationError {
+
+	/** Position of the Incident element in the file, from 0, or -1 if unknown */
+	private final int record;
+
+	/** The id the incident claimed */
+	private final int incidentId;
+
+	/** The element at fault */
+	private final String field;
+
+	/** Why the element is not valid */
+	private final String reason;
+
+	/**
+	 * Creates an IncidentValidationError.
+	 *
+	 * @param record     position of the Incident element in the file, from 0, or
+	 *                   -1 if unknown
+	 * @param incidentId the id the incident claimed
+	 * @param field      the element at fault
+	 * @param reason     why the element is not valid
+	 */
+	public IncidentValidationError(int record, int incidentId, String field, String reason) {
+		this.record = record;
+		this.incidentId = incidentId;
+		this.field = field;
+		this.reason = reason;
+	}
+
+	/**
+	 * Gets the position of the Incident element in the file.
+	 *
+	 * @return the position, from 0, or -1 if unknown
+	 */
+	public int getRecord() {
+		return record;
+	}
+
+	/**
+	 * Gets the id the incident claimed. It may itself be the field at fault.
+	 *
+	 * @return the id
+	 */
+	public int getIncidentId() {
+		return incidentId;
+	}
+
+	/**
+	 * Gets the name of the element at fault.
+	 *
+	 * @return the element name
+	 */
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * Gets why the element is not valid.
+	 *
+	 * @return the reason
+	 */
+	public String getReason() {
+		return reason;
+	}
+
+	/**
+	 * Describes the error in one line.
+	 *
+	 * @return the description
+	 */
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		if (record >= 0)
+			s.append("Record ").append(record).append(", incident ");
+		else
+			s.append("Incident ");
+		s.append(incidentId).append(", ").append(field).append(": ").append(reason);
+		return s.toString();
+	}
+}
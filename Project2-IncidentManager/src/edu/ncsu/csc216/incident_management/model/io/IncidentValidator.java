@@ -0,0 +1,223 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident.xml.Incident;
+import edu.ncsu.csc216.incident_management.model.command.Command;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Checks that an Incident read from an incident file is valid before it is
+ * turned into a ManagedIncident. The rules are the same ones IncidentReader
+ * applies to a whole file, applied one Incident at a time so that a file can be
+ * validated while it is being read. Each problem is reported as an
+ * IncidentValidationError naming the record, the field and the reason, so a
+ * whole file can be checked in one pass.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentValidator {
+
+	/**
+	 * Resolution code name for a workaround as it appears in incident files.
+	 * Command.RC_WORKAROUND is upper case and does not match the files.
+	 */
+	private static final String RC_WORKAROUND = "Workaround";
+
+	/**
+	 * Checks an Incident, stopping at the first field that is not valid.
+	 *
+	 * @param incident the incident to check
+	 * @throws IncidentIOException if the incident is not valid
+	 */
+	public static void validate(Incident incident) throws IncidentIOException {
+		ArrayList<IncidentValidationError> errors = new ArrayList<IncidentValidationError>(1);
+		if (!check(incident, -1, errors))
+			throw new IncidentIOException(errors.get(0).toString());
+	}
+
+	/**
+	 * Checks every field of an Incident and adds an error for each one that is
+	 * not valid. The owner and the codes are only checked against a valid state.
+	 *
+	 * @param incident the incident to check
+	 * @param record   position of the Incident element in its file, from 0, or -1
+	 *                 if unknown
+	 * @param errors   where to add the errors
+	 * @return true if the incident is valid
+	 */
+	public static boolean check(Incident incident, int record, List<IncidentValidationError> errors) {
+		int before = errors.size();
+		int id = incident.getId();
+		if (id < 0)
+			errors.add(new IncidentValidationError(record, id, IncidentStreamReader.ID, "cannot be negative"));
+		if (isEmpty(incident.getCaller()))
+			errors.add(new IncidentValidationError(record, id, IncidentStreamReader.CALLER, "is missing"));
+		if (!checkCategory(incident.getCategory()))
+			errors.add(invalid(record, id, IncidentStreamReader.CATEGORY, incident.getCategory()));
+		boolean stateValid = checkState(incident.getState());
+		if (!stateValid)
+			errors.add(invalid(record, id, IncidentStreamReader.STATE, incident.getState()));
+		if (!checkPriority(incident.getPriority()))
+			errors.add(invalid(record, id, IncidentStreamReader.PRIORITY, incident.getPriority()));
+		if (stateValid && !checkOwner(incident.getState(), incident.getOwner()))
+			errors.add(notForState(record, id, IncidentStreamReader.OWNER, incident.getOwner(), incident.getState()));
+		if (isEmpty(incident.getName()))
+			errors.add(new IncidentValidationError(record, id, IncidentStreamReader.NAME, "is missing"));
+		if (stateValid && !checkOnHoldReason(incident.getState(), incident.getOnHoldReason()))
+			errors.add(notForState(record, id, IncidentStreamReader.ON_HOLD_REASON, incident.getOnHoldReason(),
+					incident.getState()));
+		if (stateValid && !checkCancellationCode(incident.getState(), incident.getCancellationCode()))
+			errors.add(notForState(record, id, IncidentStreamReader.CANCELLATION_CODE, incident.getCancellationCode(),
+					incident.getState()));
+		if (stateValid && !checkResolutionCode(incident.getState(), incident.getResolutionCode()))
+			errors.add(notForState(record, id, IncidentStreamReader.RESOLUTION_CODE, incident.getResolutionCode(),
+					incident.getState()));
+		if (incident.getWorkNotes() == null || incident.getWorkNotes().getNotes().size() == 0)
+			errors.add(new IncidentValidationError(record, id, IncidentStreamReader.WORK_NOTES, "has no notes"));
+		return errors.size() == before;
+	}
+
+	/**
+	 * Creates the error for a value that is not one of the allowed names.
+	 *
+	 * @param record position of the Incident element
+	 * @param id     the id the incident claimed
+	 * @param field  the element at fault
+	 * @param value  the value found, or null if the element is missing
+	 * @return the error
+	 */
+	private static IncidentValidationError invalid(int record, int id, String field, String value) {
+		return new IncidentValidationError(record, id, field,
+				value == null ? "is missing" : "\"" + value + "\" is not a valid value");
+	}
+
+	/**
+	 * Creates the error for a value that is not allowed in the incident's state.
+	 *
+	 * @param record position of the Incident element
+	 * @param id     the id the incident claimed
+	 * @param field  the element at fault
+	 * @param value  the value found, or null if the element is missing
+	 * @param state  the incident's state
+	 * @return the error
+	 */
+	private static IncidentValidationError notForState(int record, int id, String field, String value,
+			String state) {
+		String found = value == null ? "is missing" : "\"" + value + "\" is not valid";
+		return new IncidentValidationError(record, id, field, found + " for state " + state);
+	}
+
+	/**
+	 * Checks if a String is null or empty.
+	 *
+	 * @param value the String
+	 * @return true if the String is null or empty
+	 */
+	private static boolean isEmpty(String value) {
+		return value == null || value.isEmpty();
+	}
+
+	/**
+	 * Checks that the category is one of the Category names.
+	 *
+	 * @param category the category
+	 * @return true if the category is valid
+	 */
+	private static boolean checkCategory(String category) {
+		return ManagedIncident.C_INQUIRY.equals(category) || ManagedIncident.C_SOFTWARE.equals(category)
+				|| ManagedIncident.C_HARDWARE.equals(category) || ManagedIncident.C_NETWORK.equals(category)
+				|| ManagedIncident.C_DATABASE.equals(category);
+	}
+
+	/**
+	 * Checks that the state is one of the state names.
+	 *
+	 * @param state the state
+	 * @return true if the state is valid
+	 */
+	private static boolean checkState(String state) {
+		return ManagedIncident.NEW_NAME.equals(state) || ManagedIncident.IN_PROGRESS_NAME.equals(state)
+				|| ManagedIncident.ON_HOLD_NAME.equals(state) || ManagedIncident.RESOLVED_NAME.equals(state)
+				|| ManagedIncident.CLOSED_NAME.equals(state) || ManagedIncident.CANCELED_NAME.equals(state);
+	}
+
+	/**
+	 * Checks that the priority is one of the Priority names.
+	 *
+	 * @param priority the priority
+	 * @return true if the priority is valid
+	 */
+	private static boolean checkPriority(String priority) {
+		return ManagedIncident.P_URGENT.equals(priority) || ManagedIncident.P_HIGH.equals(priority)
+				|| ManagedIncident.P_MEDIUM.equals(priority) || ManagedIncident.P_LOW.equals(priority);
+	}
+
+	/**
+	 * Checks that a New incident has no owner and that an incident that is being
+	 * worked on has one. A Canceled incident may or may not have an owner.
+	 *
+	 * @param state the state, already checked
+	 * @param owner the owner
+	 * @return true if the owner is valid for the state
+	 */
+	private static boolean checkOwner(String state, String owner) {
+		if (state.equals(ManagedIncident.NEW_NAME))
+			return owner == null;
+		if (state.equals(ManagedIncident.CANCELED_NAME))
+			return true;
+		return !isEmpty(owner);
+	}
+
+	/**
+	 * Checks that only an On Hold incident has an on hold reason, and that it is
+	 * one of the valid reasons.
+	 *
+	 * @param state        the state, already checked
+	 * @param onHoldReason the on hold reason
+	 * @return true if the on hold reason is valid for the state
+	 */
+	private static boolean checkOnHoldReason(String state, String onHoldReason) {
+		if (state.equals(ManagedIncident.ON_HOLD_NAME)) {
+			return Command.OH_CALLER.equals(onHoldReason) || Command.OH_CHANGE.equals(onHoldReason)
+					|| Command.OH_VENDOR.equals(onHoldReason);
+		}
+		return onHoldReason == null;
+	}
+
+	/**
+	 * Checks that only a Canceled incident has a cancellation code, and that it is
+	 * one of the valid codes.
+	 *
+	 * @param state            the state, already checked
+	 * @param cancellationCode the cancellation code
+	 * @return true if the cancellation code is valid for the state
+	 */
+	private static boolean checkCancellationCode(String state, String cancellationCode) {
+		if (state.equals(ManagedIncident.CANCELED_NAME)) {
+			return Command.CC_DUPLICATE.equals(cancellationCode) || Command.CC_UNNECESSARY.equals(cancellationCode)
+					|| Command.CC_NOT_AN_INCIDENT.equals(cancellationCode);
+		}
+		return cancellationCode == null;
+	}
+
+	/**
+	 * Checks that only a Resolved or Closed incident has a resolution code, and
+	 * that it is one of the valid codes.
+	 *
+	 * @param state          the state, already checked
+	 * @param resolutionCode the resolution code
+	 * @return true if the resolution code is valid for the state
+	 */
+	private static boolean checkResolutionCode(String state, String resolutionCode) {
+		if (state.equals(ManagedIncident.RESOLVED_NAME) || state.equals(ManagedIncident.CLOSED_NAME)) {
+			return Command.RC_PERMANENTLY_SOLVED.equals(resolutionCode) || RC_WORKAROUND.equals(resolutionCode)
+					|| Command.RC_NOT_SOLVED.equals(resolutionCode) || Command.RC_CALLER_CLOSED.equals(resolutionCode);
+		}
+		return resolutionCode == null;
+	}
+}
@@ -0,0 +1,53 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * Holds the XML machinery that is expensive to create and can be shared by
+ * every load and save. The StAX input and output factories are created and
+ * configured once and shared by all threads.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentXmlContext {
+
+	/** Factory for the StAX pull parsers, configured not to resolve external entities */
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+	/** Factory for the StAX writers used to save incident files */
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	/**
+	 * Gets the shared StAX input factory.
+	 *
+	 * @return the input factory
+	 */
+	public static XMLInputFactory getInputFactory() {
+		return INPUT_FACTORY;
+	}
+
+	/**
+	 * Gets the shared StAX output factory.
+	 *
+	 * @return the output factory
+	 */
+	public static XMLOutputFactory getOutputFactory() {
+		return OUTPUT_FACTORY;
+	}
+
+	/**
+	 * Creates the factory for the StAX pull parsers.
+	 *
+	 * @return the factory
+	 */
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		return factory;
+	}
+}
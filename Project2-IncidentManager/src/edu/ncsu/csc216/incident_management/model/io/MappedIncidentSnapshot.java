@@ -0,0 +1,198 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+
+/**
+ * A binary snapshot mapped into memory by IncidentBinaryReader.mapIncidents.
+ * Only the id and offset of each record are kept on the heap. The id, category,
+ * state, priority and name of a record can be read straight from the mapped
+ * file, and a ManagedIncident with its notes is only built when readIncident is
+ * called, so incidents that are never opened cost no heap. The pages of the
+ * file are loaded by the operating system as they are touched.
+ *
+ * Records are numbered from 0 in the order they appear in the file. A mapped
+ * snapshot is never changed, so it may be read from several threads at once.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class MappedIncidentSnapshot {
+
+	/** The mapped file */
+	private final ByteBuffer buffer;
+
+	/** The id of each record */
+	private final int[] ids;
+
+	/** The offset of each record in the file */
+	private final int[] offsets;
+
+	/**
+	 * Indexes a mapped snapshot. The header, index and trailer are checked, along
+	 * with the category, state and priority of every record; the rest of each
+	 * record is only checked when it is read.
+	 *
+	 * @param buffer the mapped file
+	 * @throws IncidentIOException if the file is not a snapshot, was written by a
+	 *                             newer version or is damaged
+	 */
+	MappedIncidentSnapshot(ByteBuffer buffer) throws IncidentIOException {
+		this.buffer = buffer;
+		int length = buffer.limit();
+		if (length < IncidentBinaryFormat.HEADER_SIZE + IncidentBinaryFormat.TRAILER_SIZE)
+			throw new IncidentIOException("The snapshot is cut short.");
+		int count;
+		try {
+			count = IncidentBinaryReader.readHeader(new DataInputStream(new ByteBufferInputStream(buffer, 0)));
+		} catch (IOException e) {
+			throw new IncidentIOException(e.getMessage());
+		}
+		int trailer = length - IncidentBinaryFormat.TRAILER_SIZE;
+		long indexOffset = buffer.getLong(trailer);
+		if (buffer.getInt(trailer + 12) != IncidentBinaryFormat.TRAILER_MAGIC || buffer.getInt(trailer + 8) != count
+				|| indexOffset < IncidentBinaryFormat.HEADER_SIZE
+				|| indexOffset + (long) count * IncidentBinaryFormat.INDEX_ENTRY_SIZE != trailer)
+			throw new IncidentIOException("The snapshot index is damaged.");
+
+		// The index is sorted by id; sort it by offset to get the file order back.
+		long[] entries = new long[count];
+		for (int i = 0; i < count; i++) {
+			int entry = (int) indexOffset + i * IncidentBinaryFormat.INDEX_ENTRY_SIZE;
+			long offset = buffer.getLong(entry + 4);
+			if (offset < IncidentBinaryFormat.HEADER_SIZE || offset >= indexOffset)
+				throw new IncidentIOException("The snapshot index is damaged.");
+			entries[i] = (offset << 32) | (buffer.getInt(entry) & 0xffffffffL);
+		}
+		Arrays.sort(entries);
+		ids = new int[count];
+		offsets = new int[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = (int) entries[i];
+			offsets[i] = (int) (entries[i] >>> 32);
+			if (buffer.getInt(offsets[i]) != ids[i] || ordinal(i, IncidentBinaryFormat.CATEGORY_OFFSET,
+					IncidentBinaryFormat.CATEGORY_NAMES.length) < 0
+					|| ordinal(i, IncidentBinaryFormat.STATE_OFFSET, ManagedIncident.STATE_COUNT) < 0
+					|| ordinal(i, IncidentBinaryFormat.PRIORITY_OFFSET, IncidentBinaryFormat.PRIORITY_NAMES.length) < 0)
+				throw new IncidentIOException("Incident " + ids[i] + " in the snapshot is damaged.");
+		}
+	}
+
+	/**
+	 * Gets the number of incidents in the snapshot.
+	 *
+	 * @return the number of incidents
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Gets the id of a record.
+	 *
+	 * @param record the record number
+	 * @return the id of the incident
+	 */
+	public int getIncidentId(int record) {
+		return ids[record];
+	}
+
+	/**
+	 * Gets the Category of a record without reading the rest of it.
+	 *
+	 * @param record the record number
+	 * @return the category of the incident
+	 */
+	public Category getCategory(int record) {
+		return Category.values()[ordinal(record, IncidentBinaryFormat.CATEGORY_OFFSET, 0)];
+	}
+
+	/**
+	 * Gets the Category of a record as a String.
+	 *
+	 * @param record the record number
+	 * @return the category of the incident
+	 */
+	public String getCategoryString(int record) {
+		return IncidentBinaryFormat.CATEGORY_NAMES[ordinal(record, IncidentBinaryFormat.CATEGORY_OFFSET, 0)];
+	}
+
+	/**
+	 * Gets the state name of a record without reading the rest of it.
+	 *
+	 * @param record the record number
+	 * @return the name of the incident's state
+	 */
+	public String getStateName(int record) {
+		return ManagedIncident.getStateName(ordinal(record, IncidentBinaryFormat.STATE_OFFSET, 0));
+	}
+
+	/**
+	 * Gets the Priority of a record as a String.
+	 *
+	 * @param record the record number
+	 * @return the priority of the incident
+	 */
+	public String getPriorityString(int record) {
+		return IncidentBinaryFormat.PRIORITY_NAMES[ordinal(record, IncidentBinaryFormat.PRIORITY_OFFSET, 0)];
+	}
+
+	/**
+	 * Gets the name of a record, skipping over its caller and owner.
+	 *
+	 * @param record the record number
+	 * @return the name of the incident
+	 */
+	public String getName(int record) {
+		int position = offsets[record] + IncidentBinaryFormat.STRINGS_OFFSET;
+		for (int skip = 0; skip < 2; skip++) {
+			position += 4 + Math.max(0, buffer.getInt(position));
+		}
+		int length = buffer.getInt(position);
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(position + 4);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Builds the ManagedIncident of a record, with its notes. Each call builds a
+	 * new ManagedIncident.
+	 *
+	 * @param record the record number
+	 * @return the incident
+	 * @throws IllegalArgumentException if the record is damaged
+	 */
+	public ManagedIncident readIncident(int record) {
+		try {
+			return IncidentBinaryFormat.readIncident(new DataInputStream(new ByteBufferInputStream(buffer, offsets[record])));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Incident " + ids[record] + " in the snapshot is damaged: "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads an ordinal byte of a record.
+	 *
+	 * @param record the record number
+	 * @param offset the offset of the byte in the record
+	 * @param limit  the number of valid ordinals, or 0 to skip the check
+	 * @return the ordinal, or -1 if it is not below the limit
+	 */
+	private int ordinal(int record, int offset, int limit) {
+		int ordinal = buffer.get(offsets[record] + offset);
+		return limit > 0 && ordinal >= limit ? -1 : ordinal;
+	}
+}
@@ -0,0 +1,396 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Reads a large incident file on several threads. The file is mapped into
+ * memory and split at the start tags of its Incident elements; runs of
+ * incidents are then parsed, validated and turned into ManagedIncidents as
+ * separate tasks on a ForkJoinPool, each with its own IncidentStreamReader
+ * parser. The results are joined back in file order, so the incidents are the
+ * same as IncidentStreamReader would return.
+ *
+ * Unlike IncidentStreamReader, a file holding the same id twice is rejected,
+ * since the incidents are read apart from each other and would otherwise
+ * silently replace one another when added to a list.
+ *
+ * Splitting needs the Incident tags to be found by a plain byte search, so a
+ * file that is not UTF-8 or that holds comments, CDATA sections or a document
+ * type after its root tag is read with IncidentStreamReader instead, as is a
+ * compressed file, which cannot be split without decompressing it first, and a
+ * file over 2 GB, which is too large for one mapping.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class ParallelIncidentReader {
+
+	/** Largest file that is mapped and split; a larger one is streamed instead */
+	static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+	/** Fewest incidents worth a task of their own */
+	private static final int MIN_TASK_INCIDENTS = 64;
+
+	/** Encoding a file must have to be split */
+	private static final String ENCODING = "UTF-8";
+
+	/** Start tag of the root element, used to read runs of incidents as documents */
+	private static final byte[] ROOT_START = ("<" + IncidentStreamReader.INCIDENTS + ">")
+			.getBytes(StandardCharsets.UTF_8);
+
+	/** End tag of the root element */
+	private static final byte[] ROOT_END = ("</" + IncidentStreamReader.INCIDENTS + ">")
+			.getBytes(StandardCharsets.UTF_8);
+
+	/** Byte order mark a UTF-8 file may start with */
+	private static final byte[] UTF8_BOM = { (byte) 0xef, (byte) 0xbb, (byte) 0xbf };
+
+	/** Start of an XML declaration */
+	private static final byte[] DECLARATION = "<?xml".getBytes(StandardCharsets.UTF_8);
+
+	/** The encoding named in an XML declaration */
+	private static final Pattern ENCODING_ATTRIBUTE = Pattern.compile("encoding\\s*=\\s*[\"']([^\"']*)[\"']");
+
+	/** The name of an Incident element */
+	private static final byte[] INCIDENT = IncidentStreamReader.INCIDENT.getBytes(StandardCharsets.UTF_8);
+
+	/** Name of the file to read */
+	private String fileName;
+
+	/** The pool the tasks run on */
+	private ForkJoinPool pool;
+
+	/**
+	 * Creates a ParallelIncidentReader for the given file that runs on the common
+	 * ForkJoinPool.
+	 *
+	 * @param fileName name of the file to read
+	 */
+	public ParallelIncidentReader(String fileName) {
+		this(fileName, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a ParallelIncidentReader for the given file that runs on the given
+	 * pool.
+	 *
+	 * @param fileName name of the file to read
+	 * @param pool     the pool to run on
+	 */
+	public ParallelIncidentReader(String fileName, ForkJoinPool pool) {
+		if (pool == null)
+			throw new IllegalArgumentException("A pool is required.");
+		this.fileName = fileName;
+		this.pool = pool;
+	}
+
+	/**
+	 * Reads and validates every incident in the file. Nothing is returned unless
+	 * the whole file is valid and no id appears twice.
+	 *
+	 * @return the incidents in the order they appear in the file
+	 * @throws IncidentIOException if the file cannot be read, any incident is
+	 *                             invalid or two incidents have the same id
+	 */
+	public ArrayList<ManagedIncident> readIncidents() throws IncidentIOException {
+		ByteBuffer buffer = map();
+		int[] starts = buffer == null ? null : findIncidents(buffer);
+		ArrayList<ManagedIncident> incidents;
+		if (starts == null) {
+			incidents = new IncidentStreamReader(fileName).readIncidents();
+		} else {
+			// Everything around the incidents is checked as a document of its own.
+			int end = lastIndexOf(buffer, ROOT_END, starts[starts.length - 1]);
+			if (end < 0)
+				throw new IncidentIOException("Expected the end of the " + IncidentStreamReader.INCIDENTS + " element.");
+			ArrayList<ManagedIncident> none = new ArrayList<ManagedIncident>();
+			IncidentStreamReader parser = new IncidentStreamReader(fileName);
+			parser.parse(new SequenceInputStream(new ByteBufferInputStream(buffer, 0, starts[0]),
+					new ByteArrayInputStream(ROOT_END)), ENCODING, 0, none);
+			parser.parse(new SequenceInputStream(new ByteArrayInputStream(ROOT_START),
+					new ByteBufferInputStream(buffer, end)), ENCODING, 0, none);
+			if (!none.isEmpty())
+				throw new IncidentIOException("Expected no incidents outside the " + IncidentStreamReader.INCIDENTS
+						+ " element.");
+
+			int threshold = Math.max(MIN_TASK_INCIDENTS, starts.length / (pool.getParallelism() * 4));
+			ReadTask task = new ReadTask(buffer, starts, end, 0, starts.length, threshold);
+			try {
+				incidents = pool.invoke(task);
+			} catch (TaskFailure e) {
+				throw new IncidentIOException(e.getMessage());
+			}
+		}
+		checkIds(incidents);
+		return incidents;
+	}
+
+	/**
+	 * Checks whether a file is small enough to be mapped and split. A
+	 * MappedByteBuffer is indexed by int, so a larger file is read with
+	 * IncidentStreamReader, which has no limit on the length of a file.
+	 *
+	 * @param size the length of the file, in bytes
+	 * @return true if the file can be mapped
+	 */
+	static boolean isMappable(long size) {
+		return size <= MAX_MAPPED_SIZE;
+	}
+
+	/**
+	 * Maps the file into memory.
+	 *
+	 * @return the mapped file, or null if the file is too large to map
+	 * @throws IncidentIOException if the file cannot be read
+	 */
+	private ByteBuffer map() throws IncidentIOException {
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			long size = channel.size();
+			if (!isMappable(size))
+				return null;
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} catch (IOException e) {
+			throw new IncidentIOException(e.getMessage());
+		} catch (InvalidPathException e) {
+			throw new IncidentIOException(e.getMessage());
+		} finally {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					// The mapping stays valid once the channel is closed.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the offset of every Incident start tag.
+	 *
+	 * @param buffer the mapped file
+	 * @return the offsets in file order, or null if the file cannot be split
+	 */
+	private static int[] findIncidents(ByteBuffer buffer) {
+		if (buffer.limit() >= 2 && IncidentCompression.isCompressed(buffer.get(0) & 0xff, buffer.get(1) & 0xff))
+			return null;
+		if (!isUtf8(buffer))
+			return null;
+		int limit = buffer.limit();
+		int[] starts = new int[16];
+		int count = 0;
+		for (int i = 0; i < limit - 1; i++) {
+			if (buffer.get(i) != '<')
+				continue;
+			// A comment, CDATA section or document type may hide tags from the search.
+			if (buffer.get(i + 1) == '!')
+				return null;
+			if (matches(buffer, i + 1, INCIDENT) && i + 1 + INCIDENT.length < limit
+					&& isTagEnd(buffer.get(i + 1 + INCIDENT.length))) {
+				if (count == starts.length)
+					starts = Arrays.copyOf(starts, count * 2);
+				starts[count++] = i;
+			}
+		}
+		return count == 0 ? null : Arrays.copyOf(starts, count);
+	}
+
+	/**
+	 * Checks whether the file is UTF-8, the default when its XML declaration
+	 * names no encoding.
+	 *
+	 * @param buffer the mapped file
+	 * @return true if the file is UTF-8
+	 */
+	private static boolean isUtf8(ByteBuffer buffer) {
+		int offset = matches(buffer, 0, UTF8_BOM) ? UTF8_BOM.length : 0;
+		if (!matches(buffer, offset, DECLARATION))
+			return true;
+		StringBuilder declaration = new StringBuilder();
+		for (int i = offset; i < buffer.limit() && buffer.get(i) != '>'; i++) {
+			declaration.append((char) buffer.get(i));
+		}
+		Matcher encoding = ENCODING_ATTRIBUTE.matcher(declaration);
+		return !encoding.find() || ENCODING.equalsIgnoreCase(encoding.group(1));
+	}
+
+	/**
+	 * Checks whether a byte ends an element name.
+	 *
+	 * @param b the byte after the name
+	 * @return true if the name ends there
+	 */
+	private static boolean isTagEnd(byte b) {
+		return b == '>' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+
+	/**
+	 * Checks whether the bytes at an offset match a pattern.
+	 *
+	 * @param buffer  the mapped file
+	 * @param offset  where to look
+	 * @param pattern the bytes to match
+	 * @return true if they match
+	 */
+	private static boolean matches(ByteBuffer buffer, int offset, byte[] pattern) {
+		if (offset + pattern.length > buffer.limit())
+			return false;
+		for (int i = 0; i < pattern.length; i++) {
+			if (buffer.get(offset + i) != pattern[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the last occurrence of a pattern after an offset.
+	 *
+	 * @param buffer  the mapped file
+	 * @param pattern the bytes to find
+	 * @param from    the lowest offset to consider
+	 * @return the offset of the pattern, or -1 if it is not found
+	 */
+	private static int lastIndexOf(ByteBuffer buffer, byte[] pattern, int from) {
+		for (int i = buffer.limit() - pattern.length; i >= from; i--) {
+			if (matches(buffer, i, pattern))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks that no two incidents have the same id.
+	 *
+	 * @param incidents the incidents
+	 * @throws IncidentIOException if an id appears twice
+	 */
+	private static void checkIds(List<ManagedIncident> incidents) throws IncidentIOException {
+		HashSet<Integer> ids = new HashSet<Integer>(incidents.size() * 2);
+		for (ManagedIncident incident : incidents) {
+			if (!ids.add(incident.getIncidentId()))
+				throw new IncidentIOException("Incident id " + incident.getIncidentId() + " appears more than once.");
+		}
+	}
+
+	/**
+	 * Carries the IncidentIOException of a task out of the pool, since a task
+	 * cannot throw a checked exception.
+	 *
+	 * @author Dennis Sarsozo
+	 * @author Zhongxiao Mei
+	 *
+	 */
+	private static class TaskFailure extends RuntimeException {
+
+		/** Serial version */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Creates a TaskFailure with the message of the failure.
+		 *
+		 * @param message the message
+		 */
+		TaskFailure(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Reads a run of incidents, splitting it in half until each half is small
+	 * enough to read on one thread.
+	 *
+	 * @author Dennis Sarsozo
+	 * @author Zhongxiao Mei
+	 *
+	 */
+	private static class ReadTask extends RecursiveTask<ArrayList<ManagedIncident>> {
+
+		/** Serial version */
+		private static final long serialVersionUID = 1L;
+
+		/** The mapped file */
+		private final ByteBuffer buffer;
+
+		/** The offset of every Incident start tag */
+		private final int[] starts;
+
+		/** The offset of the root end tag */
+		private final int end;
+
+		/** The first incident of the run */
+		private final int from;
+
+		/** One past the last incident of the run */
+		private final int to;
+
+		/** Most incidents read without splitting */
+		private final int threshold;
+
+		/**
+		 * Creates a task for a run of incidents.
+		 *
+		 * @param buffer    the mapped file
+		 * @param starts    the offset of every Incident start tag
+		 * @param end       the offset of the root end tag
+		 * @param from      the first incident of the run
+		 * @param to        one past the last incident of the run
+		 * @param threshold most incidents read without splitting
+		 */
+		ReadTask(ByteBuffer buffer, int[] starts, int end, int from, int to, int threshold) {
+			this.buffer = buffer;
+			this.starts = starts;
+			this.end = end;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected ArrayList<ManagedIncident> compute() {
+			if (to - from <= threshold) {
+				ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>(to - from);
+				int stop = to == starts.length ? end : starts[to];
+				InputStream in = new SequenceInputStream(new ByteArrayInputStream(ROOT_START),
+						new SequenceInputStream(new ByteBufferInputStream(buffer, starts[from], stop),
+								new ByteArrayInputStream(ROOT_END)));
+				try {
+					new IncidentStreamReader(null).parse(in, ENCODING, from, incidents);
+				} catch (IncidentIOException e) {
+					throw new TaskFailure(e.getMessage());
+				}
+				if (incidents.size() != to - from)
+					throw new TaskFailure("Expected " + (to - from) + " incidents but read " + incidents.size() + ".");
+				return incidents;
+			}
+			int middle = (from + to) >>> 1;
+			ReadTask second = new ReadTask(buffer, starts, end, middle, to, threshold);
+			second.fork();
+			ArrayList<ManagedIncident> incidents = new ReadTask(buffer, starts, end, from, middle, threshold)
+					.compute();
+			incidents.addAll(second.join());
+			return incidents;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+/**
+ * A view of the background autosave started with IncidentManager.startAutosave
+ * at a single point in time: how long the last save took, how far the saved
+ * file lags behind the list, and how many saves have succeeded or failed.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class AutosaveMetrics {
+
+	/** Changes made since the last save started */
+	private final long pendingChanges;
+
+	/** Time since the oldest change not yet saved, in milliseconds */
+	private final long lagMillis;
+
+	/** Time the last save took, in nanoseconds */
+	private final long lastSaveNanos;
+
+	/** Number of saves that succeeded */
+	private final long saveCount;
+
+	/** Number of saves that failed */
+	private final long failureCount;
+
+	/** Why the last save failed, or null if it succeeded */
+	private final String lastError;
+
+	/**
+	 * Creates the metrics.
+	 *
+	 * @param pendingChanges changes made since the last save started
+	 * @param lagMillis      time since the oldest change not yet saved
+	 * @param lastSaveNanos  time the last save took
+	 * @param saveCount      number of saves that succeeded
+	 * @param failureCount   number of saves that failed
+	 * @param lastError      why the last save failed, or null
+	 */
+	AutosaveMetrics(long pendingChanges, long lagMillis, long lastSaveNanos, long saveCount, long failureCount,
+			String lastError) {
+		this.pendingChanges = pendingChanges;
+		this.lagMillis = lagMillis;
+		this.lastSaveNanos = lastSaveNanos;
+		this.saveCount = saveCount;
+		this.failureCount = failureCount;
+		this.lastError = lastError;
+	}
+
+	/**
+	 * Gets the number of changes made since the last save started. Changes made
+	 * while a save is copying the list may be counted even though the save
+	 * includes them.
+	 *
+	 * @return the number of changes
+	 */
+	public long getPendingChanges() {
+		return pendingChanges;
+	}
+
+	/**
+	 * Gets how long ago the oldest change that is not yet saved was made.
+	 *
+	 * @return the lag, in milliseconds, or 0 if every change is saved
+	 */
+	public long getLagMillis() {
+		return lagMillis;
+	}
+
+	/**
+	 * Gets how long the last save took, from copying the list to replacing the
+	 * file.
+	 *
+	 * @return the time, in nanoseconds, or 0 if nothing has been saved
+	 */
+	public long getLastSaveNanos() {
+		return lastSaveNanos;
+	}
+
+	/**
+	 * Gets the number of saves that succeeded.
+	 *
+	 * @return the number of saves
+	 */
+	public long getSaveCount() {
+		return saveCount;
+	}
+
+	/**
+	 * Gets the number of saves that failed.
+	 *
+	 * @return the number of failures
+	 */
+	public long getFailureCount() {
+		return failureCount;
+	}
+
+	/**
+	 * Gets why the last save failed.
+	 *
+	 * @return the message, or null if the last save succeeded
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+}
@@ -0,0 +1,193 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves an IncidentManager's list to a file from a background thread, so edits
+ * are never more than a bounded time or number of changes away from disk and
+ * the thread making them never waits for a save. A save starts once the
+ * interval has passed with changes unsaved, or as soon as the given number of
+ * changes has been made. A burst of changes made while a save is queued or
+ * running is picked up by a single following save.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+class Autosaver {
+
+	/** The manager to save */
+	private final IncidentManager manager;
+
+	/** The file to save to */
+	private final String fileName;
+
+	/** Number of changes that starts a save without waiting for the interval */
+	private final int maxChanges;
+
+	/** Runs the saves */
+	private final ScheduledExecutorService executor;
+
+	/** Saves once, whether started by the interval or by the changes */
+	private final Runnable save = new Runnable() {
+		@Override
+		public void run() {
+			save();
+		}
+	};
+
+	/** Changes made since the last save started */
+	private long pending;
+
+	/** When the oldest unsaved change was made, from System.nanoTime */
+	private long firstPending;
+
+	/** Whether a save has been queued and has not started */
+	private boolean queued;
+
+	/** Time the last save took, in nanoseconds */
+	private long lastSaveNanos;
+
+	/** Number of saves that succeeded */
+	private long saveCount;
+
+	/** Number of saves that failed */
+	private long failureCount;
+
+	/** Why the last save failed, or null */
+	private String lastError;
+
+	/**
+	 * Creates an Autosaver and starts its thread.
+	 *
+	 * @param manager        the manager to save
+	 * @param fileName       the file to save to
+	 * @param intervalMillis the longest time a change waits to be saved, in
+	 *                       milliseconds
+	 * @param maxChanges     number of changes that starts a save early
+	 */
+	Autosaver(IncidentManager manager, String fileName, long intervalMillis, int maxChanges) {
+		this.manager = manager;
+		this.fileName = fileName;
+		this.maxChanges = maxChanges;
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "incident-autosave");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				if (isPending())
+					save();
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Counts a change to the list, and queues a save if enough changes are
+	 * unsaved and none is queued already. A change made while the autosave is
+	 * stopping is only counted, since the change has already been applied and
+	 * must not fail because no save can be queued.
+	 */
+	void changed() {
+		synchronized (this) {
+			if (pending++ == 0)
+				firstPending = System.nanoTime();
+			if (pending < maxChanges || queued || executor.isShutdown())
+				return;
+			queued = true;
+		}
+		try {
+			executor.execute(save);
+		} catch (RejectedExecutionException e) {
+			// stop shut the thread down after the check above.
+			synchronized (this) {
+				queued = false;
+			}
+		}
+	}
+
+	/**
+	 * Gets the metrics of the saves so far.
+	 *
+	 * @return the metrics
+	 */
+	synchronized AutosaveMetrics getMetrics() {
+		long lag = pending == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstPending);
+		return new AutosaveMetrics(pending, lag, lastSaveNanos, saveCount, failureCount, lastError);
+	}
+
+	/**
+	 * Stops the thread after saving any unsaved changes, and waits for the save
+	 * to finish.
+	 */
+	void stop() {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (isPending())
+					save();
+			}
+		});
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Checks whether any change is unsaved.
+	 *
+	 * @return true if a change is unsaved
+	 */
+	private synchronized boolean isPending() {
+		return pending > 0;
+	}
+
+	/**
+	 * Saves the list as it is now. The changes counted before the copy is taken
+	 * are marked saved once the file is written; if the save fails they stay
+	 * unsaved and are tried again at the next interval. Any RuntimeException is
+	 * recorded as a failure rather than thrown, since a scheduled task that throws
+	 * is never run again.
+	 */
+	private void save() {
+		long counted;
+		long oldest;
+		synchronized (this) {
+			queued = false;
+			counted = pending;
+			oldest = firstPending;
+		}
+		long start = System.nanoTime();
+		try {
+			manager.saveSnapshot(fileName);
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				failureCount++;
+				lastError = e instanceof IllegalArgumentException ? e.getMessage() : e.toString();
+			}
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		synchronized (this) {
+			pending -= counted;
+			// Changes made during the save are dated from when it started.
+			if (pending > 0 && firstPending == oldest)
+				firstPending = start;
+			lastSaveNanos = elapsed;
+			saveCount++;
+			lastError = null;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkpoints a journaled IncidentManager from a background thread, so the
+ * journal does not grow without bound and a restart has little to replay. A
+ * checkpoint is taken once the snapshot interval has passed since the last one,
+ * or sooner if the journal grows past its maximum size. Nothing is done while
+ * the journal is empty.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+class Checkpointer {
+
+	/** How often the interval and journal size are checked, in milliseconds */
+	private static final long POLL_MILLIS = 250;
+
+	/** The manager to checkpoint */
+	private final IncidentManager manager;
+
+	/** The journal whose size is watched */
+	private final CommandJournal journal;
+
+	/** Runs the checks */
+	private final ScheduledExecutorService executor;
+
+	/** Time between checkpoints, in milliseconds */
+	private volatile long intervalMillis;
+
+	/** Size of the journal, in bytes, that triggers a checkpoint early */
+	private volatile long maxJournalSize;
+
+	/** When the last checkpoint finished, from System.nanoTime */
+	private volatile long lastCheckpoint;
+
+	/**
+	 * Creates a Checkpointer and starts its thread.
+	 *
+	 * @param manager        the manager to checkpoint
+	 * @param journal        the manager's journal
+	 * @param intervalMillis time between checkpoints, in milliseconds
+	 * @param maxJournalSize size of the journal, in bytes, that triggers a
+	 *                       checkpoint early
+	 */
+	Checkpointer(IncidentManager manager, CommandJournal journal, long intervalMillis, long maxJournalSize) {
+		this.manager = manager;
+		this.journal = journal;
+		this.intervalMillis = intervalMillis;
+		this.maxJournalSize = maxJournalSize;
+		this.lastCheckpoint = System.nanoTime();
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "incident-checkpointer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				check();
+			}
+		}, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sets the time between checkpoints.
+	 *
+	 * @param intervalMillis the interval, in milliseconds
+	 */
+	void setInterval(long intervalMillis) {
+		this.intervalMillis = intervalMillis;
+	}
+
+	/**
+	 * Sets the size of the journal that triggers a checkpoint early.
+	 *
+	 * @param maxJournalSize the size, in bytes
+	 */
+	void setMaxJournalSize(long maxJournalSize) {
+		this.maxJournalSize = maxJournalSize;
+	}
+
+	/**
+	 * Notes that a checkpoint was just taken, so the interval starts over.
+	 */
+	void checkpointed() {
+		lastCheckpoint = System.nanoTime();
+	}
+
+	/**
+	 * Stops the thread, waiting for a checkpoint in progress to finish.
+	 */
+	void stop() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Takes a checkpoint if one is due. A checkpoint that fails is tried again at
+	 * the next check; no RuntimeException is let out, since a scheduled task that
+	 * throws is never run again.
+	 */
+	private void check() {
+		try {
+			if (journal.isEmpty())
+				return;
+			long size = journal.size();
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastCheckpoint);
+			if (elapsed < intervalMillis && size < maxJournalSize)
+				return;
+			manager.checkpoint();
+		} catch (RuntimeException e) {
+			// The snapshot could not be saved; the journal keeps every change, so
+			// try again at the next check.
+		}
+	}
+}
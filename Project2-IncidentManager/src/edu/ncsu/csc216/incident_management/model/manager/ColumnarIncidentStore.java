@@ -0,0 +1,457 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import edu.ncsu.csc216.incident_management.model.command.Command.CancellationCode;
+import edu.ncsu.csc216.incident_management.model.command.Command.OnHoldReason;
+import edu.ncsu.csc216.incident_management.model.command.Command.ResolutionCode;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
+
+/**
+ * Holds incidents column by column: the ids in an int array, the category,
+ * state, priority and codes as ordinals in byte arrays, and the caller, owner,
+ * name, change request and notes as references into a pool that keeps each
+ * distinct string once. A scan by category, state or priority reads one small
+ * contiguous array instead of following a pointer to every incident, and a
+ * caller or owner shared by many incidents is stored once.
+ *
+ * The store is filled once, for example by IncidentManager.getManagedIncidentColumns
+ * from a point-in-time view of the list, and is then only read. A row is turned
+ * back into a ManagedIncident, a detached copy, only when it is asked for.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class ColumnarIncidentStore {
+
+	/** Ordinal stored for a code the incident does not have */
+	private static final byte NONE = -1;
+
+	/** Reference stored for a string the incident does not have */
+	private static final int NO_STRING = -1;
+
+	/** The initial number of rows */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The categories, by ordinal */
+	private static final Category[] CATEGORIES = Category.values();
+
+	/** The priorities, by ordinal */
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	/** The on hold reasons, by ordinal */
+	private static final OnHoldReason[] ON_HOLD_REASONS = OnHoldReason.values();
+
+	/** The resolution codes, by ordinal */
+	private static final ResolutionCode[] RESOLUTION_CODES = ResolutionCode.values();
+
+	/** The cancellation codes, by ordinal */
+	private static final CancellationCode[] CANCELLATION_CODES = CancellationCode.values();
+
+	/** Number of rows */
+	private int size;
+
+	/** Id of each row */
+	private int[] ids;
+
+	/** Category ordinal of each row */
+	private byte[] categories;
+
+	/** State index of each row, as ManagedIncident.getStateIndex gives it */
+	private byte[] states;
+
+	/** Priority ordinal of each row */
+	private byte[] priorities;
+
+	/** On hold reason ordinal of each row, or NONE */
+	private byte[] onHoldReasons;
+
+	/** Resolution code ordinal of each row, or NONE */
+	private byte[] resolutionCodes;
+
+	/** Cancellation code ordinal of each row, or NONE */
+	private byte[] cancellationCodes;
+
+	/** Pool reference of each row's caller */
+	private int[] callers;
+
+	/** Pool reference of each row's owner, or NO_STRING */
+	private int[] owners;
+
+	/** Pool reference of each row's name */
+	private int[] names;
+
+	/** Pool reference of each row's change request, or NO_STRING */
+	private int[] changeRequests;
+
+	/**
+	 * Where each row's notes start in notes; the notes of row r run up to
+	 * noteStarts[r + 1], or noteCount for the last row
+	 */
+	private int[] noteStarts;
+
+	/** Pool references of every row's notes, one row after another */
+	private int[] notes;
+
+	/** Number of entries used in notes */
+	private int noteCount;
+
+	/** The display string of each category ordinal seen so far, as getCategoryString gives it */
+	private String[] categoryStrings = new String[CATEGORIES.length];
+
+	/** The display string of each priority ordinal seen so far, as getPriorityString gives it */
+	private String[] priorityStrings = new String[PRIORITIES.length];
+
+	/** The distinct strings, by reference */
+	private ArrayList<String> pool;
+
+	/** The reference of each string in the pool */
+	private HashMap<String, Integer> poolIndex;
+
+	/**
+	 * Creates an empty store.
+	 */
+	public ColumnarIncidentStore() {
+		ids = new int[INITIAL_CAPACITY];
+		categories = new byte[INITIAL_CAPACITY];
+		states = new byte[INITIAL_CAPACITY];
+		priorities = new byte[INITIAL_CAPACITY];
+		onHoldReasons = new byte[INITIAL_CAPACITY];
+		resolutionCodes = new byte[INITIAL_CAPACITY];
+		cancellationCodes = new byte[INITIAL_CAPACITY];
+		callers = new int[INITIAL_CAPACITY];
+		owners = new int[INITIAL_CAPACITY];
+		names = new int[INITIAL_CAPACITY];
+		changeRequests = new int[INITIAL_CAPACITY];
+		noteStarts = new int[INITIAL_CAPACITY];
+		notes = new int[INITIAL_CAPACITY];
+		pool = new ArrayList<String>();
+		poolIndex = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Creates a store holding the given incidents, in order.
+	 *
+	 * @param incidents the incidents
+	 */
+	public ColumnarIncidentStore(List<ManagedIncident> incidents) {
+		this();
+		for (ManagedIncident incident : incidents) {
+			add(incident);
+		}
+	}
+
+	/**
+	 * Adds an incident as the last row. The incident's fields are copied, so
+	 * later commands on it do not change the row.
+	 *
+	 * @param incident the incident
+	 */
+	public void add(ManagedIncident incident) {
+		if (incident == null)
+			throw new IllegalArgumentException("The incident is null.");
+		if (size == ids.length)
+			grow();
+		int row = size;
+		ids[row] = incident.getIncidentId();
+		categories[row] = (byte) incident.getCategory().ordinal();
+		categoryStrings[categories[row]] = incident.getCategoryString();
+		states[row] = (byte) incident.getStateIndex();
+		priorities[row] = (byte) incident.getPriority().ordinal();
+		priorityStrings[priorities[row]] = incident.getPriorityString();
+		onHoldReasons[row] = incident.getOnHoldReason() == null ? NONE : (byte) incident.getOnHoldReason().ordinal();
+		resolutionCodes[row] = incident.getResolutionCode() == null ? NONE
+				: (byte) incident.getResolutionCode().ordinal();
+		cancellationCodes[row] = incident.getCancellationCode() == null ? NONE
+				: (byte) incident.getCancellationCode().ordinal();
+		callers[row] = intern(incident.getCaller());
+		owners[row] = intern(incident.getOwner());
+		names[row] = intern(incident.getName());
+		changeRequests[row] = intern(incident.getChangeRequest());
+		noteStarts[row] = noteCount;
+		for (String note : incident.getNotes()) {
+			if (noteCount == notes.length)
+				notes = Arrays.copyOf(notes, notes.length * 2);
+			notes[noteCount++] = intern(note);
+		}
+		size++;
+	}
+
+	/**
+	 * Gets the number of rows.
+	 *
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of distinct strings the rows refer to.
+	 *
+	 * @return the number of pooled strings
+	 */
+	public int getPooledStringCount() {
+		return pool.size();
+	}
+
+	/**
+	 * Gets the id of a row.
+	 *
+	 * @param row the row
+	 * @return the id
+	 */
+	public int getIncidentId(int row) {
+		checkRow(row);
+		return ids[row];
+	}
+
+	/**
+	 * Gets the category of a row.
+	 *
+	 * @param row the row
+	 * @return the category
+	 */
+	public Category getCategory(int row) {
+		checkRow(row);
+		return CATEGORIES[categories[row]];
+	}
+
+	/**
+	 * Gets the state name of a row.
+	 *
+	 * @param row the row
+	 * @return the state name
+	 */
+	public String getStateName(int row) {
+		checkRow(row);
+		return ManagedIncident.getStateName(states[row]);
+	}
+
+	/**
+	 * Gets the priority of a row.
+	 *
+	 * @param row the row
+	 * @return the priority
+	 */
+	public Priority getPriority(int row) {
+		checkRow(row);
+		return PRIORITIES[priorities[row]];
+	}
+
+	/**
+	 * Gets the name of a row.
+	 *
+	 * @param row the row
+	 * @return the name
+	 */
+	public String getName(int row) {
+		checkRow(row);
+		return pool.get(names[row]);
+	}
+
+	/**
+	 * Counts the rows in each category.
+	 *
+	 * @return the counts, indexed by Category ordinal
+	 */
+	public int[] countByCategory() {
+		return count(categories, CATEGORIES.length);
+	}
+
+	/**
+	 * Counts the rows in each state.
+	 *
+	 * @return the counts, indexed by ManagedIncident's state index
+	 */
+	public int[] countByState() {
+		return count(states, ManagedIncident.STATE_COUNT);
+	}
+
+	/**
+	 * Counts the rows with each priority.
+	 *
+	 * @return the counts, indexed by Priority ordinal
+	 */
+	public int[] countByPriority() {
+		return count(priorities, PRIORITIES.length);
+	}
+
+	/**
+	 * Finds the rows in a category.
+	 *
+	 * @param category the category
+	 * @return the rows, in order
+	 */
+	public int[] findByCategory(Category category) {
+		if (category == null)
+			throw new IllegalArgumentException();
+		return find(categories, category.ordinal());
+	}
+
+	/**
+	 * Finds the rows in a state.
+	 *
+	 * @param stateName the name of the state, one of the state names in
+	 *                  ManagedIncident
+	 * @return the rows, in order
+	 */
+	public int[] findByState(String stateName) {
+		return find(states, ManagedIncident.getStateIndex(stateName));
+	}
+
+	/**
+	 * Finds the rows with a priority.
+	 *
+	 * @param priority the priority
+	 * @return the rows, in order
+	 */
+	public int[] findByPriority(Priority priority) {
+		if (priority == null)
+			throw new IllegalArgumentException();
+		return find(priorities, priority.ordinal());
+	}
+
+	/**
+	 * Gets the table rows of the given rows, each holding the id, category, state
+	 * name, priority and name, as IncidentManager.getManagedIncidentsAsArray
+	 * does.
+	 *
+	 * @param rows the rows, for example from findByState
+	 * @return the table rows
+	 */
+	public String[][] getTableRows(int[] rows) {
+		String[][] table = new String[rows.length][];
+		for (int i = 0; i < rows.length; i++) {
+			int row = rows[i];
+			checkRow(row);
+			table[i] = new String[] { Integer.toString(ids[row]), categoryStrings[categories[row]],
+					ManagedIncident.getStateName(states[row]), priorityStrings[priorities[row]],
+					pool.get(names[row]) };
+		}
+		return table;
+	}
+
+	/**
+	 * Builds a ManagedIncident from a row. The incident is a copy; commands on it
+	 * do not change the store.
+	 *
+	 * @param row the row
+	 * @return the incident
+	 */
+	public ManagedIncident getIncident(int row) {
+		checkRow(row);
+		int end = row + 1 == size ? noteCount : noteStarts[row + 1];
+		ArrayList<String> rowNotes = new ArrayList<String>(end - noteStarts[row]);
+		for (int i = noteStarts[row]; i < end; i++) {
+			rowNotes.add(pool.get(notes[i]));
+		}
+		return new ManagedIncident(ids[row], pool.get(callers[row]), CATEGORIES[categories[row]],
+				ManagedIncident.getStateName(states[row]), PRIORITIES[priorities[row]], lookup(owners[row]),
+				pool.get(names[row]), onHoldReasons[row] == NONE ? null : ON_HOLD_REASONS[onHoldReasons[row]],
+				lookup(changeRequests[row]),
+				resolutionCodes[row] == NONE ? null : RESOLUTION_CODES[resolutionCodes[row]],
+				cancellationCodes[row] == NONE ? null : CANCELLATION_CODES[cancellationCodes[row]], rowNotes);
+	}
+
+	/**
+	 * Counts the rows holding each ordinal of a column.
+	 *
+	 * @param column the column
+	 * @param values the number of ordinals
+	 * @return the counts, indexed by ordinal
+	 */
+	private int[] count(byte[] column, int values) {
+		int[] counts = new int[values];
+		for (int row = 0; row < size; row++) {
+			counts[column[row]]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Finds the rows holding an ordinal in a column.
+	 *
+	 * @param column  the column
+	 * @param ordinal the ordinal
+	 * @return the rows, in order
+	 */
+	private int[] find(byte[] column, int ordinal) {
+		byte value = (byte) ordinal;
+		int matches = 0;
+		for (int row = 0; row < size; row++) {
+			if (column[row] == value)
+				matches++;
+		}
+		int[] rows = new int[matches];
+		int next = 0;
+		for (int row = 0; row < size && next < matches; row++) {
+			if (column[row] == value)
+				rows[next++] = row;
+		}
+		return rows;
+	}
+
+	/**
+	 * Gets the pool reference of a string, adding it to the pool if it is new.
+	 *
+	 * @param value the string, or null
+	 * @return the reference, or NO_STRING for null
+	 */
+	private int intern(String value) {
+		if (value == null)
+			return NO_STRING;
+		Integer ref = poolIndex.get(value);
+		if (ref == null) {
+			ref = pool.size();
+			pool.add(value);
+			poolIndex.put(value, ref);
+		}
+		return ref;
+	}
+
+	/**
+	 * Gets the pooled string of a reference.
+	 *
+	 * @param ref the reference, or NO_STRING
+	 * @return the string, or null for NO_STRING
+	 */
+	private String lookup(int ref) {
+		return ref == NO_STRING ? null : pool.get(ref);
+	}
+
+	/**
+	 * Checks that a row is in the store.
+	 *
+	 * @param row the row
+	 */
+	private void checkRow(int row) {
+		if (row < 0 || row >= size)
+			throw new IndexOutOfBoundsException("Row " + row + " is not in the store.");
+	}
+
+	/**
+	 * Doubles the room for rows.
+	 */
+	private void grow() {
+		int capacity = ids.length * 2;
+		ids = Arrays.copyOf(ids, capacity);
+		categories = Arrays.copyOf(categories, capacity);
+		states = Arrays.copyOf(states, capacity);
+		priorities = Arrays.copyOf(priorities, capacity);
+		onHoldReasons = Arrays.copyOf(onHoldReasons, capacity);
+		resolutionCodes = Arrays.copyOf(resolutionCodes, capacity);
+		cancellationCodes = Arrays.copyOf(cancellationCodes, capacity);
+		callers = Arrays.copyOf(callers, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+		names = Arrays.copyOf(names, capacity);
+		changeRequests = Arrays.copyOf(changeRequests, capacity);
+		noteStarts = Arrays.copyOf(noteStarts, capacity);
+	}
+}
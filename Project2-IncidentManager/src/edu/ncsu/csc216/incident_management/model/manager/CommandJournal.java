@@ -0,0 +1,736 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import edu.ncsu.csc216.incident.xml.Incident;
+import edu.ncsu.csc216.incident.xml.WorkNotes;
+import edu.ncsu.csc216.incident_management.model.command.Command;
+import edu.ncsu.csc216.incident_management.model.command.Command.CancellationCode;
+import edu.ncsu.csc216.incident_management.model.command.Command.CommandValue;
+import edu.ncsu.csc216.incident_management.model.command.Command.OnHoldReason;
+import edu.ncsu.csc216.incident_management.model.command.Command.ResolutionCode;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.io.BinaryEncoding;
+
+/**
+ * An append-only journal of the changes made to a ManagedIncidentList since its
+ * last snapshot was saved. Each incident added or loaded, each Command run and
+ * each incident deleted is appended as one binary record, so a change costs a
+ * short sequential write instead of a rewrite of the whole incident file.
+ * Replaying the journal on top of the snapshot rebuilds the list after a crash.
+ *
+ * Records are buffered in memory as the list changes and made durable by sync.
+ * Threads that sync at the same time share a single write and fsync: the first
+ * one writes every buffered record and the others wait for it to finish.
+ *
+ * The journal is split into numbered segment files named after the journal,
+ * such as incidents.log.1 and incidents.log.2. A checkpoint rolls the journal
+ * over to a new segment when it copies the list, and once the snapshot is saved
+ * the segments before it are deleted.
+ *
+ * Each record is framed as its length, a record type, the record's fields and
+ * a CRC32 of the type and fields. A record torn by a crash fails its length or
+ * checksum and is dropped, along with anything after it, when the journal is
+ * next opened.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class CommandJournal {
+
+	/** Marks the start of a journal file */
+	private static final int MAGIC = 0x494d4a31;
+
+	/** Length of the file header */
+	private static final int HEADER_SIZE = 4;
+
+	/** Length of the frame around a record's type and fields */
+	private static final int FRAME_SIZE = 8;
+
+	/** Largest record accepted when reading, to reject corrupt lengths */
+	private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+	/** Record holding every field of an added or loaded incident */
+	private static final byte PUT = 1;
+	/** Record holding a Command run on an incident */
+	private static final byte COMMAND = 2;
+	/** Record holding the id of a deleted incident */
+	private static final byte DELETE = 3;
+	/** Record marking that the list was replaced by an empty one */
+	private static final byte CLEAR = 4;
+
+	/** Directory holding the segments */
+	private final Path directory;
+
+	/** Name of the journal, which each segment's name starts with */
+	private final String baseName;
+
+	/** The segment being appended to */
+	private FileChannel channel;
+
+	/** Number of the segment being appended to */
+	private long segment;
+
+	/** Guards the fields below */
+	private final Object lock = new Object();
+
+	/** Records appended but not yet written */
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+	/** Number of records appended */
+	private long appended;
+
+	/** Number of records written and forced to disk */
+	private long durable;
+
+	/** Whether a thread is writing a batch of records */
+	private boolean syncing;
+
+	/** Length of the segment being appended to */
+	private long size;
+
+	/** Total length of the older segments that have not been deleted */
+	private long olderSize;
+
+	/** The error that stopped the journal, or null */
+	private IOException failure;
+
+	/**
+	 * Opens a journal, creating its first segment if it has none. Records are
+	 * appended to the newest segment.
+	 *
+	 * @param fileName the journal, which names its segments
+	 * @throws IOException if a segment cannot be opened or is not a journal
+	 */
+	public CommandJournal(String fileName) throws IOException {
+		Path base = Paths.get(fileName).toAbsolutePath();
+		directory = base.getParent();
+		baseName = base.getFileName().toString();
+		long[] segments = listSegments();
+		if (segments.length == 0) {
+			segment = 1;
+			channel = createSegment(segment);
+			size = HEADER_SIZE;
+		} else {
+			segment = segments[segments.length - 1];
+			channel = openSegment(segment);
+			size = channel.size();
+			for (int i = 0; i < segments.length - 1; i++) {
+				olderSize += Files.size(segmentPath(segments[i]));
+			}
+		}
+	}
+
+	/**
+	 * Applies every complete record in the journal to a list, in the order they
+	 * were written. A torn record at the end of the newest segment is cut off.
+	 * A Command for an incident that is not in the list, which was deleted later
+	 * in the journal, is skipped. A Command that replays differently from how it
+	 * ran, accepted where it was rejected or the other way round, means the
+	 * journal does not match the snapshot and fails the replay.
+	 *
+	 * @param list the list rebuilt from the last snapshot
+	 * @return the rebuilt list, which is a new list if the journal holds a
+	 *         CLEAR record
+	 * @throws IOException if the journal cannot be read
+	 */
+	public ManagedIncidentList replay(ManagedIncidentList list) throws IOException {
+		return replay(list, 0);
+	}
+
+	/**
+	 * Applies the records in the segments a snapshot does not cover. Segments
+	 * before firstSegment are already in the snapshot and are skipped. If every
+	 * segment is covered, later records go to a new segment numbered
+	 * firstSegment.
+	 *
+	 * @param list         the list rebuilt from the last snapshot
+	 * @param firstSegment the first segment the snapshot does not cover
+	 * @return the rebuilt list, which is a new list if the journal holds a
+	 *         CLEAR record
+	 * @throws IOException if the journal cannot be read
+	 */
+	public ManagedIncidentList replay(ManagedIncidentList list, long firstSegment) throws IOException {
+		if (segment < firstSegment) {
+			synchronized (lock) {
+				FileChannel next = createSegment(firstSegment);
+				channel.close();
+				channel = next;
+				olderSize += size;
+				size = HEADER_SIZE;
+				segment = firstSegment;
+			}
+			return list;
+		}
+		long[] segments = listSegments();
+		for (long number : segments) {
+			if (number < firstSegment)
+				continue;
+			if (number == segment)
+				break;
+			FileChannel older = openSegment(number);
+			try {
+				list = replay(older, list).list;
+			} finally {
+				older.close();
+			}
+		}
+		Replayed replayed = replay(channel, list);
+		synchronized (lock) {
+			if (replayed.end < channel.size()) {
+				channel.truncate(replayed.end);
+				channel.force(true);
+			}
+			size = replayed.end;
+		}
+		return replayed.list;
+	}
+
+	/**
+	 * Applies the complete records in one segment to a list.
+	 *
+	 * @param file the segment
+	 * @param list the list
+	 * @return the list and the end of the last complete record
+	 * @throws IOException if the segment cannot be read
+	 */
+	private static Replayed replay(FileChannel file, ManagedIncidentList list) throws IOException {
+		long position = HEADER_SIZE;
+		long end = file.size();
+		ByteBuffer frame = ByteBuffer.allocate(4);
+		while (position + FRAME_SIZE <= end) {
+			frame.clear();
+			readFully(file, frame, position);
+			int length = frame.getInt(0);
+			if (length < 1 || length > MAX_RECORD_SIZE || position + FRAME_SIZE + length > end)
+				break;
+			ByteBuffer record = ByteBuffer.allocate(length + 4);
+			readFully(file, record, position + 4);
+			CRC32 crc = new CRC32();
+			crc.update(record.array(), 0, length);
+			if ((int) crc.getValue() != record.getInt(length))
+				break;
+			list = apply(list, record.array(), length);
+			position += FRAME_SIZE + length;
+		}
+		return new Replayed(list, position);
+	}
+
+	/**
+	 * Appends a record of an incident added or loaded into the list. Called while
+	 * the list is locked so records are in the order the changes were made.
+	 *
+	 * @param incident the incident
+	 */
+	void put(ManagedIncident incident) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(PUT);
+			out.writeInt(incident.getIncidentId());
+			BinaryEncoding.writeString(out, incident.getCaller());
+			BinaryEncoding.writeString(out, incident.getCategoryString());
+			BinaryEncoding.writeString(out, incident.getState().getStateName());
+			BinaryEncoding.writeString(out, incident.getPriorityString());
+			BinaryEncoding.writeString(out, incident.getOwner());
+			BinaryEncoding.writeString(out, incident.getName());
+			BinaryEncoding.writeString(out, incident.getOnHoldReasonString());
+			BinaryEncoding.writeString(out, incident.getChangeRequest());
+			BinaryEncoding.writeString(out, incident.getResolutionCodeString());
+			BinaryEncoding.writeString(out, incident.getCancellationCodeString());
+			List<String> notes = incident.getNotes();
+			if (notes == null)
+				notes = Collections.<String>emptyList();
+			out.writeInt(notes.size());
+			for (String note : notes) {
+				BinaryEncoding.writeString(out, note);
+			}
+			append(bytes.toByteArray());
+		} catch (IOException e) {
+			// Only an in-memory stream is written to.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Appends a record of a Command run on an incident. A command the incident
+	 * rejected is recorded too if it changed the incident first, so replay
+	 * expects the same rejection.
+	 *
+	 * @param id       the id of the incident
+	 * @param command  the command
+	 * @param rejected true if the incident rejected the command
+	 */
+	void command(int id, Command command, boolean rejected) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(COMMAND);
+			out.writeInt(id);
+			out.writeByte(command.getCommand().ordinal());
+			BinaryEncoding.writeString(out, command.getOwnerId());
+			out.writeByte(BinaryEncoding.ordinal(command.getOnHoldReason()));
+			out.writeByte(BinaryEncoding.ordinal(command.getResolutionCode()));
+			out.writeByte(BinaryEncoding.ordinal(command.getCancellationCode()));
+			BinaryEncoding.writeString(out, command.getWorkNote());
+			out.writeBoolean(rejected);
+			append(bytes.toByteArray());
+		} catch (IOException e) {
+			// Only an in-memory stream is written to.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Appends a record of a deleted incident.
+	 *
+	 * @param id the id of the incident
+	 */
+	void delete(int id) {
+		ByteBuffer record = ByteBuffer.allocate(5);
+		record.put(DELETE).putInt(id);
+		append(record.array());
+	}
+
+	/**
+	 * Appends a record marking that the list was replaced by an empty one.
+	 */
+	void clear() {
+		append(new byte[] { CLEAR });
+	}
+
+	/**
+	 * Makes every record appended so far durable. If another thread is already
+	 * writing, this waits for it and then writes whatever is still buffered, so
+	 * records appended at about the same time share one fsync.
+	 *
+	 * @throws IOException if the records cannot be written
+	 */
+	public void sync() throws IOException {
+		byte[] batch;
+		long batchEnd;
+		FileChannel file;
+		long position;
+		synchronized (lock) {
+			long target = appended;
+			awaitSync();
+			if (failure != null)
+				throw failure;
+			if (durable >= target)
+				return;
+			syncing = true;
+			batch = pending.toByteArray();
+			pending.reset();
+			batchEnd = appended;
+			file = channel;
+			position = size;
+		}
+		IOException error = null;
+		try {
+			// roll waits for this batch, so the segment cannot change underneath it.
+			writeFully(file, ByteBuffer.wrap(batch), position);
+			file.force(false);
+		} catch (IOException e) {
+			error = e;
+		}
+		synchronized (lock) {
+			syncing = false;
+			if (error == null) {
+				size += batch.length;
+				durable = batchEnd;
+			} else {
+				failure = error;
+			}
+			lock.notifyAll();
+			if (failure != null)
+				throw failure;
+		}
+	}
+
+	/**
+	 * Makes every buffered record durable and starts a new segment for the
+	 * records that follow. Called by a checkpoint while the list is paused, so the
+	 * older segments hold exactly the changes in the list's copy.
+	 *
+	 * @return the number of the new segment, the first one the checkpoint does
+	 *         not cover
+	 * @throws IOException if the records cannot be written or the segment
+	 *                     cannot be created
+	 */
+	public long roll() throws IOException {
+		synchronized (lock) {
+			awaitSync();
+			if (failure != null)
+				throw failure;
+			try {
+				byte[] batch = pending.toByteArray();
+				writeFully(channel, ByteBuffer.wrap(batch), size);
+				channel.force(false);
+				pending.reset();
+				durable = appended;
+				FileChannel next = createSegment(segment + 1);
+				channel.close();
+				channel = next;
+				olderSize += size + batch.length;
+				size = HEADER_SIZE;
+				segment++;
+			} catch (IOException e) {
+				failure = e;
+				throw e;
+			}
+			return segment;
+		}
+	}
+
+	/**
+	 * Deletes the segments before the given one, once a snapshot holding their
+	 * changes has been saved.
+	 *
+	 * @param first the first segment to keep, as returned by roll
+	 * @throws IOException if a segment cannot be deleted
+	 */
+	public void discardBefore(long first) throws IOException {
+		long remaining = 0;
+		for (long number : listSegments()) {
+			if (number < first) {
+				Files.deleteIfExists(segmentPath(number));
+			} else if (number != currentSegment()) {
+				remaining += Files.size(segmentPath(number));
+			}
+		}
+		synchronized (lock) {
+			olderSize = remaining;
+		}
+	}
+
+	/**
+	 * Gets the number of the segment being appended to.
+	 *
+	 * @return the segment number
+	 */
+	private long currentSegment() {
+		synchronized (lock) {
+			return segment;
+		}
+	}
+
+	/**
+	 * Gets the length of every segment on disk, not counting buffered records.
+	 *
+	 * @return the length in bytes
+	 */
+	public long size() {
+		synchronized (lock) {
+			return olderSize + size;
+		}
+	}
+
+	/**
+	 * Checks whether the journal holds no records, either on disk or buffered.
+	 *
+	 * @return true if there is nothing to replay
+	 */
+	public boolean isEmpty() {
+		synchronized (lock) {
+			return olderSize == 0 && size == HEADER_SIZE && pending.size() == 0;
+		}
+	}
+
+	/**
+	 * Writes any buffered records and closes the journal.
+	 *
+	 * @throws IOException if the records cannot be written
+	 */
+	public void close() throws IOException {
+		try {
+			sync();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Frames an encoded record and adds it to the buffer.
+	 *
+	 * @param body the record's type and fields
+	 */
+	private void append(byte[] body) {
+		CRC32 crc = new CRC32();
+		crc.update(body, 0, body.length);
+		ByteBuffer framed = ByteBuffer.allocate(FRAME_SIZE + body.length);
+		framed.putInt(body.length).put(body).putInt((int) crc.getValue());
+		synchronized (lock) {
+			pending.write(framed.array(), 0, framed.capacity());
+			appended++;
+		}
+	}
+
+	/**
+	 * Applies one record to a list.
+	 *
+	 * @param list   the list
+	 * @param record the record's type and fields
+	 * @param length the length of the type and fields
+	 * @return the list, or a new empty list for a CLEAR record
+	 * @throws IOException if the record cannot be decoded
+	 */
+	private static ManagedIncidentList apply(ManagedIncidentList list, byte[] record, int length)
+			throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 0, length));
+		byte type = in.readByte();
+		if (type == PUT) {
+			Incident incident = new Incident();
+			incident.setId(in.readInt());
+			incident.setCaller(BinaryEncoding.readString(in));
+			incident.setCategory(BinaryEncoding.readString(in));
+			incident.setState(BinaryEncoding.readString(in));
+			incident.setPriority(BinaryEncoding.readString(in));
+			incident.setOwner(BinaryEncoding.readString(in));
+			incident.setName(BinaryEncoding.readString(in));
+			incident.setOnHoldReason(BinaryEncoding.readString(in));
+			incident.setChangeRequest(BinaryEncoding.readString(in));
+			incident.setResolutionCode(BinaryEncoding.readString(in));
+			incident.setCancellationCode(BinaryEncoding.readString(in));
+			WorkNotes notes = new WorkNotes();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				notes.getNotes().add(BinaryEncoding.readString(in));
+			}
+			incident.setWorkNotes(notes);
+			ArrayList<ManagedIncident> added = new ArrayList<ManagedIncident>(1);
+			added.add(new ManagedIncident(incident));
+			list.addManagedIncidents(added);
+		} else if (type == COMMAND) {
+			int id = in.readInt();
+			CommandValue value = BinaryEncoding.valueOf(CommandValue.values(), in.readByte(), false);
+			String ownerId = BinaryEncoding.readString(in);
+			OnHoldReason onHoldReason = BinaryEncoding.valueOf(OnHoldReason.values(), in.readByte(), true);
+			ResolutionCode resolutionCode = BinaryEncoding.valueOf(ResolutionCode.values(), in.readByte(), true);
+			CancellationCode cancellationCode = BinaryEncoding.valueOf(CancellationCode.values(), in.readByte(), true);
+			String note = BinaryEncoding.readString(in);
+			boolean rejected = in.readBoolean();
+			boolean wasRejected = false;
+			try {
+				list.executeCommand(id,
+						new Command(value, ownerId, onHoldReason, resolutionCode, cancellationCode, note));
+			} catch (UnsupportedOperationException e) {
+				wasRejected = true;
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Journaled command for incident " + id + " is invalid: " + e.getMessage(), e);
+			}
+			if (wasRejected != rejected)
+				throw new IOException("Journaled command for incident " + id + " was "
+						+ (rejected ? "rejected" : "accepted") + " but is " + (wasRejected ? "rejected" : "accepted")
+						+ " on replay.");
+		} else if (type == DELETE) {
+			list.deleteIncidentById(in.readInt());
+		} else if (type == CLEAR) {
+			list = new ManagedIncidentList();
+		} else {
+			throw new IOException("Unknown journal record type " + type + ".");
+		}
+		return list;
+	}
+
+	/**
+	 * Waits until no thread is writing a batch of records. The caller must hold
+	 * lock.
+	 *
+	 * @throws IOException if interrupted while waiting
+	 */
+	private void awaitSync() throws IOException {
+		while (syncing) {
+			try {
+				lock.wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the journal.");
+			}
+		}
+	}
+
+	/**
+	 * Lists the numbers of the journal's segments, oldest first.
+	 *
+	 * @return the segment numbers
+	 * @throws IOException if the directory cannot be read
+	 */
+	private long[] listSegments() throws IOException {
+		ArrayList<Long> numbers = new ArrayList<Long>();
+		String prefix = baseName + ".";
+		DirectoryStream<Path> entries = Files.newDirectoryStream(directory);
+		try {
+			for (Path entry : entries) {
+				String name = entry.getFileName().toString();
+				if (name.startsWith(prefix) && name.length() > prefix.length()) {
+					try {
+						numbers.add(Long.parseLong(name.substring(prefix.length())));
+					} catch (NumberFormatException e) {
+						// Not a segment of this journal.
+					}
+				}
+			}
+		} finally {
+			entries.close();
+		}
+		Collections.sort(numbers);
+		long[] segments = new long[numbers.size()];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = numbers.get(i);
+		}
+		return segments;
+	}
+
+	/**
+	 * Gets the file of a segment.
+	 *
+	 * @param number the segment number
+	 * @return the segment's file
+	 */
+	private Path segmentPath(long number) {
+		return directory.resolve(baseName + "." + number);
+	}
+
+	/**
+	 * Creates an empty segment holding only the header, and makes it durable.
+	 *
+	 * @param number the segment number
+	 * @return the segment, open for reading and writing
+	 * @throws IOException if the segment cannot be created
+	 */
+	private FileChannel createSegment(long number) throws IOException {
+		FileChannel file = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).flip();
+			writeFully(file, header, 0);
+			file.force(true);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		syncDirectory();
+		return file;
+	}
+
+	/**
+	 * Opens an existing segment and checks its header. A segment too short to
+	 * hold a header was torn while it was created and is given a fresh one.
+	 *
+	 * @param number the segment number
+	 * @return the segment, open for reading and writing
+	 * @throws IOException if the segment cannot be opened or is not a journal
+	 */
+	private FileChannel openSegment(long number) throws IOException {
+		FileChannel file = FileChannel.open(segmentPath(number), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			if (file.size() < HEADER_SIZE) {
+				header.putInt(MAGIC).flip();
+				file.truncate(0);
+				writeFully(file, header, 0);
+				file.force(true);
+			} else {
+				readFully(file, header, 0);
+				if (header.getInt(0) != MAGIC)
+					throw new IOException(segmentPath(number) + " is not an incident journal.");
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		return file;
+	}
+
+	/**
+	 * Forces the directory's entries to disk so a new segment survives a crash.
+	 * Not every platform can open a directory, in which case this does nothing.
+	 */
+	private void syncDirectory() {
+		try {
+			FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ);
+			try {
+				dir.force(true);
+			} finally {
+				dir.close();
+			}
+		} catch (IOException e) {
+			// The segment exists; only its durability on this platform is weaker.
+		}
+	}
+
+	/**
+	 * Writes a whole buffer at a position in a file.
+	 *
+	 * @param file     the file
+	 * @param buffer   the bytes to write
+	 * @param position where to write them
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += file.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Fills a buffer from a position in a file.
+	 *
+	 * @param file     the file
+	 * @param buffer   the buffer to fill
+	 * @param position where to read from
+	 * @throws IOException if the file ends first or cannot be read
+	 */
+	private static void readFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = file.read(buffer, position);
+			if (read < 0)
+				throw new IOException("Unexpected end of journal.");
+			position += read;
+		}
+	}
+
+	/**
+	 * The result of replaying one segment.
+	 *
+	 * @author Dennis Sarsozo
+	 * @author Zhongxiao Mei
+	 *
+	 */
+	private static class Replayed {
+
+		/** The list after the segment's records were applied */
+		private final ManagedIncidentList list;
+
+		/** The end of the segment's last complete record */
+		private final long end;
+
+		/**
+		 * Creates the result of replaying a segment.
+		 *
+		 * @param list the list
+		 * @param end  the end of the last complete record
+		 */
+		private Replayed(ManagedIncidentList list, long end) {
+			this.list = list;
+			this.end = end;
+		}
+	}
+}
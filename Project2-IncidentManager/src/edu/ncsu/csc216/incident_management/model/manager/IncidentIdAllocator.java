@@ -0,0 +1,75 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the ids of new ManagedIncidents for a ManagedIncidentList. Ids are
+ * allocated without locking, so threads adding incidents at the same time
+ * always get different ids. Bulk imports can reserve a whole block of ids at
+ * once and then number their incidents without touching the allocator again.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentIdAllocator {
+
+	/**
+	 * The id that will be given to the next incident.
+	 */
+	private final AtomicInteger next;
+
+	/**
+	 * Constructs an allocator whose first id is the given value.
+	 *
+	 * @param first the first id to hand out
+	 */
+	public IncidentIdAllocator(int first) {
+		if (first < 0)
+			throw new IllegalArgumentException("The first id cannot be negative.");
+		next = new AtomicInteger(first);
+	}
+
+	/**
+	 * Allocates a single id.
+	 *
+	 * @return the allocated id
+	 */
+	public int nextId() {
+		return next.getAndIncrement();
+	}
+
+	/**
+	 * Allocates a block of consecutive ids.
+	 *
+	 * @param count the number of ids in the block
+	 * @return the first id of the block; the block ends at first + count - 1
+	 */
+	public int reserve(int count) {
+		if (count < 1)
+			throw new IllegalArgumentException("A block must hold at least one id.");
+		return next.getAndAdd(count);
+	}
+
+	/**
+	 * Makes sure the next id handed out is greater than the given id. Used after
+	 * incidents with existing ids are loaded, so new incidents never reuse them.
+	 *
+	 * @param id an id that is already in use
+	 */
+	public void advancePast(int id) {
+		int current = next.get();
+		while (current <= id && !next.compareAndSet(current, id + 1)) {
+			current = next.get();
+		}
+	}
+
+	/**
+	 * Gets the id that will be given to the next incident, without allocating it.
+	 *
+	 * @return the next id
+	 */
+	public int peek() {
+		return next.get();
+	}
+}
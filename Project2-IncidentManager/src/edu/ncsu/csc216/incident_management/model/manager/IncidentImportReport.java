@@ -0,0 +1,201 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of importing several incident files with
+ * IncidentManager.importManagedIncidentsFromFiles: for each file, how many
+ * incidents it held and added, how long it took to read, and why it failed if
+ * it did.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentImportReport {
+
+	/** The outcome of each file, in the order the files were given */
+	private final List<FileResult> files;
+
+	/** Time spent adding the incidents to the list, in nanoseconds */
+	private long mergeNanos;
+
+	/**
+	 * Creates an empty report.
+	 */
+	IncidentImportReport() {
+		files = new ArrayList<FileResult>();
+	}
+
+	/**
+	 * Gets the outcome of each file, in the order the files were given.
+	 *
+	 * @return the outcomes
+	 */
+	public List<FileResult> getFileResults() {
+		return Collections.unmodifiableList(files);
+	}
+
+	/**
+	 * Gets the number of incidents added to the list.
+	 *
+	 * @return the number of incidents added
+	 */
+	public int getAdded() {
+		int added = 0;
+		for (FileResult file : files) {
+			added += file.added;
+		}
+		return added;
+	}
+
+	/**
+	 * Gets the number of files that could not be imported.
+	 *
+	 * @return the number of failed files
+	 */
+	public int getFailed() {
+		int failed = 0;
+		for (FileResult file : files) {
+			if (file.error != null) {
+				failed++;
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Gets the time spent adding the incidents to the list once every file was
+	 * read.
+	 *
+	 * @return the time, in nanoseconds
+	 */
+	public long getMergeNanos() {
+		return mergeNanos;
+	}
+
+	/**
+	 * Adds the outcome of a file.
+	 *
+	 * @param file the outcome
+	 */
+	void add(FileResult file) {
+		files.add(file);
+	}
+
+	/**
+	 * Sets the time spent adding the incidents to the list.
+	 *
+	 * @param nanos the time, in nanoseconds
+	 */
+	void setMergeNanos(long nanos) {
+		this.mergeNanos = nanos;
+	}
+
+	/**
+	 * The outcome of importing one file.
+	 *
+	 * @author Dennis Sarsozo
+	 * @author Zhongxiao Mei
+	 *
+	 */
+	public static class FileResult {
+
+		/** Name of the file */
+		private final String fileName;
+
+		/** Number of incidents read from the file */
+		int read;
+
+		/** Number of incidents from the file that were added to the list */
+		int added;
+
+		/** Number of incidents from the file added under a new id */
+		int remapped;
+
+		/** Number of incidents from the file dropped for a newer one */
+		int superseded;
+
+		/** Time spent reading the file, in nanoseconds */
+		long readNanos;
+
+		/** Why the file was not imported, or null if it was */
+		String error;
+
+		/**
+		 * Creates the outcome of a file.
+		 *
+		 * @param fileName name of the file
+		 */
+		FileResult(String fileName) {
+			this.fileName = fileName;
+		}
+
+		/**
+		 * Gets the name of the file.
+		 *
+		 * @return the name of the file
+		 */
+		public String getFileName() {
+			return fileName;
+		}
+
+		/**
+		 * Gets the number of incidents read from the file.
+		 *
+		 * @return the number of incidents read
+		 */
+		public int getRead() {
+			return read;
+		}
+
+		/**
+		 * Gets the number of incidents from the file that were added to the list.
+		 *
+		 * @return the number of incidents added
+		 */
+		public int getAdded() {
+			return added;
+		}
+
+		/**
+		 * Gets the number of incidents from the file that were added under a new
+		 * id.
+		 *
+		 * @return the number of incidents remapped
+		 */
+		public int getRemapped() {
+			return remapped;
+		}
+
+		/**
+		 * Gets the number of incidents from the file that were dropped because a
+		 * newer file held the same id.
+		 *
+		 * @return the number of incidents superseded
+		 */
+		public int getSuperseded() {
+			return superseded;
+		}
+
+		/**
+		 * Gets the time spent reading and validating the file.
+		 *
+		 * @return the time, in nanoseconds
+		 */
+		public long getReadNanos() {
+			return readNanos;
+		}
+
+		/**
+		 * Gets why the file was not imported.
+		 *
+		 * @return the reason, or null if the file was imported
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamReader;
+import edu.ncsu.csc216.incident_management.model.manager.IncidentImportReport.FileResult;
+import edu.ncsu.csc216.incident_management.model.manager.IncidentManager.IdCollisionPolicy;
+
+/**
+ * Imports several incident files into a ManagedIncidentList. The files are
+ * read and validated at the same time, one thread per file up to the number of
+ * processors. Once all of them are read, ids that collide with the list or with
+ * each other are settled by the IdCollisionPolicy, and the surviving incidents
+ * are added to the list in one batch while other changes wait, so the list
+ * never shows part of an import.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+class IncidentImporter {
+
+	/** The list to import into */
+	private final ManagedIncidentList list;
+
+	/** What to do with colliding ids */
+	private final IdCollisionPolicy policy;
+
+	/**
+	 * Creates an IncidentImporter.
+	 *
+	 * @param list   the list to import into
+	 * @param policy what to do with colliding ids
+	 */
+	IncidentImporter(ManagedIncidentList list, IdCollisionPolicy policy) {
+		this.list = list;
+		this.policy = policy;
+	}
+
+	/**
+	 * Imports the files.
+	 *
+	 * @param fileNames the files to import
+	 * @return the outcome of each file
+	 */
+	IncidentImportReport importFiles(List<String> fileNames) {
+		List<ReadFile> files = readAll(fileNames);
+		IncidentImportReport report = new IncidentImportReport();
+		for (ReadFile file : files) {
+			report.add(file.result);
+		}
+		long start = System.nanoTime();
+		list.pauseWriters();
+		try {
+			list.addManagedIncidents(merge(files));
+		} finally {
+			list.resumeWriters();
+		}
+		report.setMergeNanos(System.nanoTime() - start);
+		return report;
+	}
+
+	/**
+	 * Reads every file, several at a time.
+	 *
+	 * @param fileNames the files to read
+	 * @return the files, in the order given
+	 */
+	private static List<ReadFile> readAll(List<String> fileNames) {
+		ArrayList<ReadFile> files = new ArrayList<ReadFile>(fileNames.size());
+		for (String fileName : fileNames) {
+			files.add(new ReadFile(fileName));
+		}
+		if (files.isEmpty())
+			return files;
+		int threads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "incident-import");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			ArrayList<Future<Void>> done = new ArrayList<Future<Void>>(files.size());
+			for (ReadFile file : files) {
+				done.add(executor.submit(file));
+			}
+			for (int i = 0; i < done.size(); i++) {
+				try {
+					done.get(i).get();
+				} catch (ExecutionException e) {
+					files.get(i).fail(String.valueOf(e.getCause()));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					files.get(i).fail("The import was interrupted.");
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return files;
+	}
+
+	/**
+	 * Settles colliding ids and gathers the incidents to add. The caller must
+	 * have paused the list's writers, so its ids cannot change meanwhile.
+	 *
+	 * @param files the files that were read
+	 * @return the incidents to add
+	 */
+	private List<ManagedIncident> merge(List<ReadFile> files) {
+		LinkedHashMap<Integer, ManagedIncident> accepted = new LinkedHashMap<Integer, ManagedIncident>();
+		HashMap<Integer, FileResult> from = new HashMap<Integer, FileResult>();
+		ArrayList<ManagedIncident> remap = new ArrayList<ManagedIncident>();
+		ArrayList<FileResult> remapFrom = new ArrayList<FileResult>();
+		int largest = -1;
+
+		List<ReadFile> order = files;
+		if (policy == IdCollisionPolicy.KEEP_NEWEST) {
+			// Oldest first, so newer files replace what older ones added.
+			order = new ArrayList<ReadFile>(files);
+			Collections.sort(order, new Comparator<ReadFile>() {
+				@Override
+				public int compare(ReadFile a, ReadFile b) {
+					return Long.compare(a.lastModified, b.lastModified);
+				}
+			});
+		}
+		for (ReadFile file : order) {
+			if (file.incidents == null)
+				continue;
+			if (policy == IdCollisionPolicy.REJECT) {
+				int collision = findCollision(file.incidents, accepted);
+				if (collision >= 0) {
+					file.fail("Incident id " + collision + " is already in use.");
+					continue;
+				}
+			}
+			for (ManagedIncident incident : file.incidents) {
+				int id = incident.getIncidentId();
+				boolean collides = accepted.containsKey(id) || list.containsId(id);
+				if (collides && policy == IdCollisionPolicy.REMAP) {
+					remap.add(incident);
+					remapFrom.add(file.result);
+					continue;
+				}
+				if (accepted.containsKey(id)) {
+					FileResult older = from.get(id);
+					older.added--;
+					older.superseded++;
+					accepted.remove(id);
+				}
+				accepted.put(id, incident);
+				from.put(id, file.result);
+				file.result.added++;
+				largest = Math.max(largest, id);
+			}
+		}
+
+		ArrayList<ManagedIncident> merged = new ArrayList<ManagedIncident>(accepted.values());
+		if (!remap.isEmpty()) {
+			int next = list.reserveIdsAbove(largest, remap.size());
+			for (int i = 0; i < remap.size(); i++) {
+				merged.add(withId(remap.get(i), next + i));
+				remapFrom.get(i).added++;
+				remapFrom.get(i).remapped++;
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Finds an id in a file that is already in the list, already accepted from
+	 * another file, or held twice by the file.
+	 *
+	 * @param incidents the incidents of the file
+	 * @param accepted  the incidents accepted so far, by id
+	 * @return a colliding id, or -1 if there is none
+	 */
+	private int findCollision(List<ManagedIncident> incidents, HashMap<Integer, ManagedIncident> accepted) {
+		HashSet<Integer> seen = new HashSet<Integer>();
+		for (ManagedIncident incident : incidents) {
+			int id = incident.getIncidentId();
+			if (!seen.add(id) || accepted.containsKey(id) || list.containsId(id))
+				return id;
+		}
+		return -1;
+	}
+
+	/**
+	 * Copies an incident under a new id.
+	 *
+	 * @param incident the incident
+	 * @param id       the new id
+	 * @return the copy
+	 */
+	private static ManagedIncident withId(ManagedIncident incident, int id) {
+		return new ManagedIncident(id, incident.getCaller(), incident.getCategory(),
+				incident.getState().getStateName(), incident.getPriority(), incident.getOwner(), incident.getName(),
+				incident.getOnHoldReason(), incident.getChangeRequest(), incident.getResolutionCode(),
+				incident.getCancellationCode(), incident.getNotes());
+	}
+
+	/**
+	 * Reads one file and times it.
+	 *
+	 * @author Dennis Sarsozo
+	 * @author Zhongxiao Mei
+	 *
+	 */
+	private static class ReadFile implements Callable<Void> {
+
+		/** The outcome of the file */
+		private final FileResult result;
+
+		/** The incidents read, or null if the file failed */
+		private List<ManagedIncident> incidents;
+
+		/** When the file was last modified */
+		private long lastModified;
+
+		/**
+		 * Creates a ReadFile for the given file.
+		 *
+		 * @param fileName name of the file
+		 */
+		ReadFile(String fileName) {
+			result = new FileResult(fileName);
+		}
+
+		@Override
+		public Void call() {
+			long start = System.nanoTime();
+			try {
+				lastModified = new File(result.getFileName()).lastModified();
+				incidents = new IncidentStreamReader(result.getFileName()).readIncidents();
+				result.read = incidents.size();
+			} catch (IncidentIOException e) {
+				fail(e.getMessage());
+			} finally {
+				result.readNanos = System.nanoTime() - start;
+			}
+			return null;
+		}
+
+		/**
+		 * Marks the file as failed, so none of its incidents are added.
+		 *
+		 * @param error why the file failed
+		 */
+		void fail(String error) {
+			incidents = null;
+			result.error = error == null ? "The file could not be read." : error;
+		}
+	}
+}
@@ -1,20 +1,36 @@
 package edu.ncsu.csc216.incident_management.model.manager;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
 import edu.ncsu.csc216.incident.io.IncidentIOException;
-import edu.ncsu.csc216.incident.io.IncidentReader;
-import edu.ncsu.csc216.incident.io.IncidentWriter;
-import edu.ncsu.csc216.incident.xml.Incident;
 import edu.ncsu.csc216.incident_management.model.command.Command;
+import edu.ncsu.csc216.incident_management.model.io.IncidentBinaryReader;
+import edu.ncsu.csc216.incident_management.model.io.IncidentBinaryWriter;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamReader;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamReader.ValidationMode;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamWriter;
+import edu.ncsu.csc216.incident_management.model.io.IncidentValidationError;
+import edu.ncsu.csc216.incident_management.model.io.ParallelIncidentReader;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
+import edu.ncsu.csc216.incident_management.model.incident.OffHeapNoteStore;
+import edu.ncsu.csc216.incident_management.model.incident.StringPool;
 
 /**
  * The class is called IncidentManager. It implements the Singleton design
  * pattern, works with the XML files that contain the ManagedIncidents in a file
  * when the application is not in use., and also provides information to the GUI
  * through methods. Controls the creation and modification of (potentially many)
- * ManagedIncidentLists.
+ * ManagedIncidentLists. The IncidentManager may be used from several threads at
+ * once, for example intake threads adding incidents while triage threads run
+ * commands.
  * 
  * @author Dennis Sarsozo
  * @author Zhongxiao Mei
@@ -23,9 +39,104 @@ import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priori
 public class IncidentManager {
 
 	/**
-	 * The list containing the ManagedIncidents.
+	 * What a bulk import does with an incident whose id is already in the list or
+	 * in another imported file.
+	 * 
+	 * @author Dennis Sarsozo
+	 * @author Zhongxiao Mei
+	 *
+	 */
+	public enum IdCollisionPolicy {
+		/**
+		 * A file holding a colliding id is not imported at all.
+		 */
+		REJECT,
+		/**
+		 * A colliding incident is imported under a new id.
+		 */
+		REMAP,
+		/**
+		 * Of the colliding incidents, the one from the most recently modified file
+		 * is kept. Imported incidents replace those already in the list.
+		 */
+		KEEP_NEWEST
+	}
+
+	/**
+	 * Default time between checkpoints: five minutes.
+	 */
+	public static final long DEFAULT_CHECKPOINT_INTERVAL = 5 * 60 * 1000;
+
+	/**
+	 * Default size of the journal that triggers an early checkpoint: 16 MB.
+	 */
+	public static final long DEFAULT_MAX_JOURNAL_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * Default fraction of the list an incremental save's delta file may hold
+	 * before the next save merges it into the base file.
+	 */
+	public static final double DEFAULT_DELTA_MERGE_FRACTION = 0.25;
+
+	/**
+	 * The list containing the ManagedIncidents. Volatile so that every thread sees
+	 * the list created by createNewManagedIncidentList.
+	 */
+	private volatile ManagedIncidentList incidentList;
+
+	/**
+	 * Number of backup generations kept of a file replaced by a save.
+	 */
+	private volatile int backupCount;
+
+	/**
+	 * Records every change made since the snapshot was saved, or null if changes
+	 * are not journaled.
+	 */
+	private volatile CommandJournal journal;
+
+	/**
+	 * The incident file the journal's changes are relative to.
+	 */
+	private volatile Path snapshotPath;
+
+	/**
+	 * Takes checkpoints in the background while changes are journaled, or null.
+	 */
+	private volatile Checkpointer checkpointer;
+
+	/**
+	 * Time between checkpoints, in milliseconds.
+	 */
+	private volatile long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+	/**
+	 * Size of the journal, in bytes, that triggers a checkpoint before the
+	 * interval has passed.
 	 */
-	private ManagedIncidentList incidentList;
+	private volatile long maxJournalSize = DEFAULT_MAX_JOURNAL_SIZE;
+
+	/**
+	 * Saves incrementally to the file last given to
+	 * saveManagedIncidentsIncrementally, or null.
+	 */
+	private volatile IncrementalSaver incrementalSaver;
+
+	/**
+	 * Fraction of the list a delta file may hold before the next incremental save
+	 * merges it into the base file.
+	 */
+	private volatile double deltaMergeFraction = DEFAULT_DELTA_MERGE_FRACTION;
+
+	/**
+	 * Saves the list in the background once started by startAutosave, or null.
+	 */
+	private volatile Autosaver autosaver;
+
+	/**
+	 * Makes sure only one checkpoint runs at a time.
+	 */
+	private final Object checkpointLock = new Object();
 
 	/**
 	 * The only Instance of IncidentManager.
@@ -49,35 +160,514 @@ public class IncidentManager {
 	}
 
 	/**
-	 * Save the ManagedIncidents to a file.
+	 * Save the ManagedIncidents to a file. Incidents are written one at a time
+	 * straight from the list into a temporary file, which replaces the file only
+	 * once it is complete, so a crash during a save never truncates the file.
+	 * A file name ending in .gz is saved as a gzip stream, compressed as it is
+	 * written. Saving to the snapshot file of a journaled list takes a
+	 * checkpoint.
 	 * 
 	 * @param fileName The name of the saved file.
 	 */
 	public void saveManagedIncidentsToFile(String fileName) {
-		IncidentWriter xmlWriter = new IncidentWriter(fileName);
+		if (journal != null && snapshotPath.equals(Paths.get(fileName).toAbsolutePath().normalize())) {
+			checkpoint();
+			return;
+		}
+		IncidentStreamWriter xmlWriter = new IncidentStreamWriter(fileName, backupCount);
+		try {
+			xmlWriter.writeIncidents(incidentList.getManagedIncidents());
+		} catch (IncidentIOException iioe) {
+			throw new IllegalArgumentException(iioe.getMessage());
+		}
+	}
+
+	/**
+	 * Saves the snapshot file of a journaled list and deletes the journal
+	 * segments it covers. Changes are paused only while the incidents are copied
+	 * and the journal is rolled over to a new segment; the copy is then written
+	 * while changes continue. Does nothing if changes are not journaled.
+	 */
+	public void checkpoint() {
+		synchronized (checkpointLock) {
+			CommandJournal j = journal;
+			if (j == null)
+				return;
+			ArrayList<ManagedIncident> copy;
+			long firstKept;
+			try {
+				while (true) {
+					ManagedIncidentList list = incidentList;
+					list.pauseWriters();
+					try {
+						// The list was replaced while waiting, so copy the new one.
+						if (list != incidentList)
+							continue;
+						copy = list.copyIncidents();
+						firstKept = j.roll();
+						break;
+					} finally {
+						list.resumeWriters();
+					}
+				}
+				// The snapshot names the first segment it does not cover, so a crash
+				// before the older segments are deleted cannot replay them twice.
+				IncidentStreamWriter xmlWriter = new IncidentStreamWriter(snapshotPath.toString(), backupCount);
+				xmlWriter.setJournalSegment(firstKept);
+				xmlWriter.writeIncidents(copy);
+				j.discardBefore(firstKept);
+			} catch (IncidentIOException iioe) {
+				throw new IllegalArgumentException(iioe.getMessage());
+			} catch (IOException ioe) {
+				throw new IllegalArgumentException(ioe.getMessage());
+			}
+			Checkpointer c = checkpointer;
+			if (c != null)
+				c.checkpointed();
+		}
+	}
+
+	/**
+	 * Saves a copy of the list taken at a single point in time, so the file never
+	 * mixes incidents from before and after a change made during the save.
+	 * Changes are paused only while the incidents are copied. Saving to the
+	 * snapshot file of a journaled list takes a checkpoint.
+	 * 
+	 * @param fileName The name of the saved file.
+	 */
+	void saveSnapshot(String fileName) {
+		if (journal != null && snapshotPath.equals(Paths.get(fileName).toAbsolutePath().normalize())) {
+			checkpoint();
+			return;
+		}
+		ArrayList<ManagedIncident> copy;
+		while (true) {
+			ManagedIncidentList list = incidentList;
+			list.pauseWriters();
+			try {
+				// The list was replaced while waiting, so copy the new one.
+				if (list != incidentList)
+					continue;
+				copy = list.copyIncidents();
+				break;
+			} finally {
+				list.resumeWriters();
+			}
+		}
+		IncidentStreamWriter xmlWriter = new IncidentStreamWriter(fileName, backupCount);
 		try {
-			for (ManagedIncident i : incidentList.getManagedIncidents()) {
-				Incident converted = i.getXMLIncident();
-				xmlWriter.addItem(converted);
+			xmlWriter.writeIncidents(copy);
+		} catch (IncidentIOException iioe) {
+			throw new IllegalArgumentException(iioe.getMessage());
+		}
+	}
+
+	/**
+	 * Starts saving the list to a file in the background, replacing any autosave
+	 * already running. A save starts once the interval has passed with changes
+	 * unsaved, or as soon as maxChanges changes have been made, whichever comes
+	 * first, and each save writes a copy of the list taken at a single point in
+	 * time. Changes made while a save is running are saved together by the next
+	 * one. A save that fails is tried again at the next interval; see
+	 * getAutosaveMetrics.
+	 * 
+	 * @param fileName       The name of the saved file.
+	 * @param intervalMillis The longest time a change waits to be saved, in
+	 *                       milliseconds.
+	 * @param maxChanges     The number of changes that starts a save without
+	 *                       waiting for the interval.
+	 */
+	public synchronized void startAutosave(String fileName, long intervalMillis, int maxChanges) {
+		if (fileName == null || fileName.isEmpty())
+			throw new IllegalArgumentException("The autosave file must be named.");
+		if (intervalMillis <= 0)
+			throw new IllegalArgumentException("The autosave interval must be positive.");
+		if (maxChanges <= 0)
+			throw new IllegalArgumentException("The number of changes between autosaves must be positive.");
+		stopAutosave();
+		autosaver = new Autosaver(this, fileName, intervalMillis, maxChanges);
+	}
+
+	/**
+	 * Stops saving the list in the background, after saving any changes not yet
+	 * saved. Does nothing if no autosave is running.
+	 */
+	public synchronized void stopAutosave() {
+		Autosaver a = autosaver;
+		if (a == null)
+			return;
+		autosaver = null;
+		a.stop();
+	}
+
+	/**
+	 * Gets how far the autosave file lags behind the list and how long the last
+	 * save took.
+	 * 
+	 * @return the metrics, or null if no autosave is running
+	 */
+	public AutosaveMetrics getAutosaveMetrics() {
+		Autosaver a = autosaver;
+		return a == null ? null : a.getMetrics();
+	}
+
+	/**
+	 * Saves only what changed since the file was last fully written. The file is
+	 * the base file; the incidents added or changed since it was written, and the
+	 * ids deleted since, go to a delta file next to it named fileName.delta, so
+	 * the cost of a save follows the number of edits rather than the number of
+	 * incidents. The first incremental save of a list, and any save where the
+	 * delta would hold more than the merge fraction of the list, writes the whole
+	 * list to the base file and removes the delta. Read both files back with
+	 * loadManagedIncidentsFromIncrementalFile.
+	 * 
+	 * @param fileName The name of the base file.
+	 */
+	public void saveManagedIncidentsIncrementally(String fileName) {
+		IncrementalSaver saver = incrementalSaver;
+		if (saver == null || !saver.getBaseFile().equals(fileName)) {
+			if (saver != null)
+				saver.release();
+			saver = new IncrementalSaver(fileName);
+			incrementalSaver = saver;
+		}
+		try {
+			saver.save(incidentList, deltaMergeFraction, backupCount);
+		} catch (IncidentIOException iioe) {
+			throw new IllegalArgumentException(iioe.getMessage());
+		}
+	}
+
+	/**
+	 * Sets the fraction of the list a delta file may hold before the next
+	 * incremental save merges it into the base file.
+	 * 
+	 * @param fraction A fraction greater than 0 and at most 1.
+	 */
+	public void setDeltaMergeFraction(double fraction) {
+		if (!(fraction > 0 && fraction <= 1))
+			throw new IllegalArgumentException("The merge fraction must be greater than 0 and at most 1.");
+		deltaMergeFraction = fraction;
+	}
+
+	/**
+	 * Load ManagedIncidents saved by saveManagedIncidentsIncrementally: the base
+	 * file, with the changes in its delta file applied. A delta file written for
+	 * an older version of the base file is ignored. No incidents are added
+	 * unless both files are valid.
+	 * 
+	 * @param fileName The name of the base file.
+	 */
+	public void loadManagedIncidentsFromIncrementalFile(String fileName) {
+		try {
+			IncidentStreamReader baseReader = new IncidentStreamReader(fileName);
+			ArrayList<ManagedIncident> base = baseReader.readIncidents();
+			String deltaFile = IncrementalSaver.deltaOf(fileName);
+			if (deltaFile != null) {
+				IncidentStreamReader deltaReader = new IncidentStreamReader(deltaFile);
+				ArrayList<ManagedIncident> delta = deltaReader.readIncidents();
+				if (baseReader.getBaseId() != 0 && deltaReader.getBaseId() == baseReader.getBaseId()) {
+					base = applyDelta(base, delta, deltaReader.getDeletedIds());
+				}
 			}
-			xmlWriter.marshal();
+			incidentList.addManagedIncidents(base);
 		} catch (IncidentIOException iioe) {
 			throw new IllegalArgumentException(iioe.getMessage());
 		}
+		changed();
+	}
+
+	/**
+	 * Applies the changes in a delta file to the incidents of its base file.
+	 * 
+	 * @param base    the incidents of the base file
+	 * @param delta   the incidents added or changed since the base file
+	 * @param deleted the ids deleted since the base file
+	 * @return the incidents as they were when the delta was saved
+	 */
+	private static ArrayList<ManagedIncident> applyDelta(ArrayList<ManagedIncident> base,
+			ArrayList<ManagedIncident> delta, int[] deleted) {
+		LinkedHashMap<Integer, ManagedIncident> merged = new LinkedHashMap<Integer, ManagedIncident>();
+		for (ManagedIncident incident : base) {
+			merged.put(incident.getIncidentId(), incident);
+		}
+		for (int id : deleted) {
+			merged.remove(id);
+		}
+		for (ManagedIncident incident : delta) {
+			merged.put(incident.getIncidentId(), incident);
+		}
+		return new ArrayList<ManagedIncident>(merged.values());
+	}
+
+	/**
+	 * Sets the time between the checkpoints taken in the background while changes
+	 * are journaled. A checkpoint is only taken if there are changes to save.
+	 * 
+	 * @param millis The interval, in milliseconds.
+	 */
+	public void setCheckpointInterval(long millis) {
+		if (millis <= 0)
+			throw new IllegalArgumentException("The checkpoint interval must be positive.");
+		checkpointInterval = millis;
+		Checkpointer c = checkpointer;
+		if (c != null)
+			c.setInterval(millis);
+	}
+
+	/**
+	 * Sets the size the journal may reach before a checkpoint is taken without
+	 * waiting for the interval to pass.
+	 * 
+	 * @param bytes The size, in bytes.
+	 */
+	public void setMaxJournalSize(long bytes) {
+		if (bytes <= 0)
+			throw new IllegalArgumentException("The maximum journal size must be positive.");
+		maxJournalSize = bytes;
+		Checkpointer c = checkpointer;
+		if (c != null)
+			c.setMaxJournalSize(bytes);
+	}
+
+	/**
+	 * Sets how many backups of a file are kept when a save replaces it. The newest
+	 * backup is named fileName.bak. A count of 0, the default, keeps none.
+	 * 
+	 * @param backupCount The number of backup generations to keep.
+	 */
+	public void setBackupCount(int backupCount) {
+		if (backupCount < 0)
+			throw new IllegalArgumentException("The number of backups cannot be negative.");
+		this.backupCount = backupCount;
+	}
+
+	/**
+	 * Keeps the work notes of incidents created or loaded from now on off the Java
+	 * heap, in an OffHeapNoteStore, or back on the heap. Incidents already in the
+	 * list keep their notes where they are, so turn this on before loading a
+	 * large file.
+	 * 
+	 * @param enabled True to keep new notes off the heap.
+	 */
+	public void setOffHeapNotes(boolean enabled) {
+		if (!enabled)
+			ManagedIncident.setDefaultNoteStore(null);
+		else if (ManagedIncident.getDefaultNoteStore() == null)
+			ManagedIncident.setDefaultNoteStore(new OffHeapNoteStore());
 	}
 
 	/**
-	 * Load ManagedIncidents from a file.
+	 * Gets the store new work notes are kept in, to see how much memory it holds.
+	 * 
+	 * @return the store, or null if notes are kept on the heap
+	 */
+	public OffHeapNoteStore getOffHeapNoteStore() {
+		return ManagedIncident.getDefaultNoteStore();
+	}
+
+	/**
+	 * Gets the pool the callers, owners and notes of incidents are shared
+	 * through, for example to report how many bytes it saved.
+	 * 
+	 * @return the pool
+	 */
+	public StringPool getStringPool() {
+		return ManagedIncident.getStringPool();
+	}
+
+	/**
+	 * Load ManagedIncidents from a file. The file is streamed one incident at a
+	 * time, and no incidents are added unless the whole file is valid. A file
+	 * saved compressed is recognized by its first bytes and decompressed as it
+	 * is read.
 	 * 
 	 * @param fileName The name of the file that will be used to load the Incidents.
 	 */
 	public void loadManagedIncidentsFromFile(String fileName) {
 		try {
-			IncidentReader xmlReader = new IncidentReader(fileName);
-			incidentList.addXMLIncidents(xmlReader.getIncidents());
+			IncidentStreamReader xmlReader = new IncidentStreamReader(fileName);
+			incidentList.addManagedIncidents(xmlReader.readIncidents());
+		} catch (IncidentIOException iioe) {
+			throw new IllegalArgumentException(iioe.getMessage());
+		}
+		changed();
+	}
+
+	/**
+	 * Load ManagedIncidents from a file, choosing what happens to incidents that
+	 * are not valid. The file is validated as it is streamed, in one pass. In
+	 * FAIL_FAST mode this is the same as loadManagedIncidentsFromFile. In
+	 * COLLECT_ALL mode the whole file is checked and, if any incident is invalid,
+	 * nothing is added and every error is returned. In SKIP_INVALID mode the
+	 * valid incidents are added and the errors of the others are returned.
+	 * 
+	 * @param fileName The name of the file that will be used to load the Incidents.
+	 * @param mode     What to do with an incident that is not valid.
+	 * @return The errors found, each naming the record, field and reason; empty
+	 *         if every incident was valid.
+	 */
+	public List<IncidentValidationError> loadManagedIncidentsFromFile(String fileName, ValidationMode mode) {
+		IncidentStreamReader xmlReader = new IncidentStreamReader(fileName);
+		xmlReader.setValidationMode(mode);
+		try {
+			incidentList.addManagedIncidents(xmlReader.readIncidents());
+		} catch (IncidentIOException iioe) {
+			List<IncidentValidationError> errors = xmlReader.getValidationErrors();
+			if (mode == ValidationMode.COLLECT_ALL && !errors.isEmpty())
+				return errors;
+			throw new IllegalArgumentException(iioe.getMessage());
+		}
+		changed();
+		return xmlReader.getValidationErrors();
+	}
+
+	/**
+	 * Load ManagedIncidents from a large file by parsing and validating runs of
+	 * incidents on several threads at once. The incidents added are the same as
+	 * loadManagedIncidentsFromFile adds, except that a file holding the same id
+	 * twice is rejected. No incidents are added unless the whole file is valid.
+	 * 
+	 * @param fileName The name of the file that will be used to load the Incidents.
+	 */
+	public void loadManagedIncidentsFromFileInParallel(String fileName) {
+		try {
+			ParallelIncidentReader xmlReader = new ParallelIncidentReader(fileName);
+			incidentList.addManagedIncidents(xmlReader.readIncidents());
+		} catch (IncidentIOException iioe) {
+			throw new IllegalArgumentException(iioe.getMessage());
+		}
+		changed();
+	}
+
+	/**
+	 * Imports several incident files at once. The files are read and validated on
+	 * separate threads, then every incident is added to the list under a single
+	 * lock, with ids that collide handled as the policy says. A file that cannot
+	 * be read does not stop the others; its error is in the report, along with
+	 * the time each file took.
+	 * 
+	 * @param fileNames The names of the files to import.
+	 * @param policy    What to do with incidents whose ids collide.
+	 * @return The outcome of the import for each file.
+	 */
+	public IncidentImportReport importManagedIncidentsFromFiles(List<String> fileNames, IdCollisionPolicy policy) {
+		if (fileNames == null || policy == null)
+			throw new IllegalArgumentException();
+		IncidentImportReport report = new IncidentImporter(incidentList, policy).importFiles(fileNames);
+		changed();
+		return report;
+	}
+
+	/**
+	 * Save the ManagedIncidents to a binary snapshot, which is smaller and faster
+	 * to load than an incident XML file. The file is replaced the same way as by
+	 * saveManagedIncidentsToFile.
+	 * 
+	 * @param fileName The name of the saved file.
+	 */
+	public void saveManagedIncidentsToBinaryFile(String fileName) {
+		IncidentBinaryWriter binaryWriter = new IncidentBinaryWriter(fileName, backupCount);
+		try {
+			binaryWriter.writeIncidents(incidentList.getManagedIncidents());
+		} catch (IncidentIOException iioe) {
+			throw new IllegalArgumentException(iioe.getMessage());
+		}
+	}
+
+	/**
+	 * Load ManagedIncidents from a binary snapshot. No incidents are added unless
+	 * the whole snapshot is valid.
+	 * 
+	 * @param fileName The name of the file that will be used to load the Incidents.
+	 */
+	public void loadManagedIncidentsFromBinaryFile(String fileName) {
+		try {
+			IncidentBinaryReader binaryReader = new IncidentBinaryReader(fileName);
+			incidentList.addManagedIncidents(binaryReader.readIncidents());
+		} catch (IncidentIOException iioe) {
+			throw new IllegalArgumentException(iioe.getMessage());
+		}
+		changed();
+	}
+
+	/**
+	 * Load ManagedIncidents from a binary snapshot by mapping it into memory. Only
+	 * the ids, categories and states are read up front; each ManagedIncident is
+	 * built with its notes the first time it is looked up, for example when it is
+	 * opened in the GUI, and the table is filled from the mapped file. The
+	 * incidents are built right away if changes are journaled.
+	 * 
+	 * @param fileName The name of the file that will be used to load the Incidents.
+	 */
+	public void mapManagedIncidentsFromBinaryFile(String fileName) {
+		try {
+			IncidentBinaryReader binaryReader = new IncidentBinaryReader(fileName);
+			incidentList.addMappedIncidents(binaryReader.mapIncidents());
 		} catch (IncidentIOException iioe) {
 			throw new IllegalArgumentException(iioe.getMessage());
 		}
+		changed();
+	}
+
+	/**
+	 * Rebuilds the ManagedIncidents after a restart or crash from the last saved
+	 * snapshot and the journal of changes made since, then keeps journaling every
+	 * change. Each later add, delete, load and command is durable once its method
+	 * returns. Checkpoints save the snapshot file and trim the journal in the
+	 * background, as set by setCheckpointInterval and setMaxJournalSize. A missing
+	 * snapshot or journal is treated as empty.
+	 * 
+	 * @param snapshotFile The incident file the journal's changes are relative to.
+	 * @param journalFile  The journal file.
+	 */
+	public synchronized void recoverManagedIncidents(String snapshotFile, String journalFile) {
+		closeJournal();
+		ManagedIncidentList list = new ManagedIncidentList();
+		CommandJournal j = null;
+		try {
+			long firstSegment = 0;
+			if (new File(snapshotFile).exists()) {
+				IncidentStreamReader xmlReader = new IncidentStreamReader(snapshotFile);
+				list.addManagedIncidents(xmlReader.readIncidents());
+				firstSegment = xmlReader.getJournalSegment();
+			}
+			j = new CommandJournal(journalFile);
+			list = j.replay(list, firstSegment);
+		} catch (IncidentIOException iioe) {
+			throw new IllegalArgumentException(iioe.getMessage());
+		} catch (IOException ioe) {
+			close(j);
+			throw new IllegalArgumentException(ioe.getMessage());
+		}
+		list.setJournal(j);
+		snapshotPath = Paths.get(snapshotFile).toAbsolutePath().normalize();
+		incidentList = list;
+		journal = j;
+		checkpointer = new Checkpointer(this, j, checkpointInterval, maxJournalSize);
+	}
+
+	/**
+	 * Stops journaling changes and closes the journal, after making any buffered
+	 * changes durable. Does nothing if changes are not journaled.
+	 */
+	public synchronized void closeJournal() {
+		CommandJournal j = journal;
+		if (j == null)
+			return;
+		Checkpointer c = checkpointer;
+		if (c != null)
+			c.stop();
+		synchronized (checkpointLock) {
+			checkpointer = null;
+			incidentList.setJournal(null);
+			journal = null;
+			try {
+				j.close();
+			} catch (IOException ioe) {
+				throw new IllegalArgumentException(ioe.getMessage());
+			}
+		}
 	}
 
 	/**
@@ -85,7 +675,24 @@ public class IncidentManager {
 	 * MangedIncidents.
 	 */
 	public void createNewManagedIncidentList() {
-		incidentList = new ManagedIncidentList();
+		ManagedIncidentList list = new ManagedIncidentList();
+		CommandJournal j = journal;
+		if (j == null) {
+			incidentList = list;
+			changed();
+			return;
+		}
+		ManagedIncidentList old = incidentList;
+		old.pauseWriters();
+		try {
+			old.setJournal(null);
+			list.setJournal(j);
+			j.clear();
+			incidentList = list;
+		} finally {
+			old.resumeWriters();
+		}
+		changed();
 	}
 
 	/**
@@ -94,22 +701,7 @@ public class IncidentManager {
 	 * @return a 2D String Array with information concerning the ManagedIncidents.
 	 */
 	public String[][] getManagedIncidentsAsArray() {
-		if (incidentList.getManagedIncidents().size() == 0)
-			return new String[0][0];
-
-		String[][] incidentInfo = new String[incidentList.getManagedIncidents().size()][5];
-		int incidentCounter = 0;
-		for (ManagedIncident infoMe : incidentList.getManagedIncidents()) {
-			incidentInfo[incidentCounter][0] = Integer.toString(infoMe.getIncidentId());
-			incidentInfo[incidentCounter][1] = infoMe.getCategoryString();
-			incidentInfo[incidentCounter][2] = infoMe.getState().getStateName();
-			incidentInfo[incidentCounter][3] = infoMe.getPriorityString();
-			incidentInfo[incidentCounter][4] = infoMe.getName();
-
-			incidentCounter++;
-		}
-
-		return incidentInfo;
+		return toArray(incidentList.getIncidentRows());
 	}
 
 	/**
@@ -121,20 +713,54 @@ public class IncidentManager {
 	public String[][] getManagedIncidentsAsArrayByCategory(Category c) {
 		if (c == null)
 			throw new IllegalArgumentException();
-		else if (incidentList.getIncidentsByCategory(c).size() == 0)
-			return new String[0][0];
+		return toArray(incidentList.getIncidentRowsByCategory(c));
+	}
 
-		String[][] incidentInfo = new String[incidentList.getIncidentsByCategory(c).size()][5];
-		int incidentCounter = 0;
-		for (ManagedIncident infoMe : incidentList.getIncidentsByCategory(c)) {
-			incidentInfo[incidentCounter][0] = Integer.toString(infoMe.getIncidentId());
-			incidentInfo[incidentCounter][1] = infoMe.getCategoryString();
-			incidentInfo[incidentCounter][2] = infoMe.getState().getStateName();
-			incidentInfo[incidentCounter][3] = infoMe.getPriorityString();
-			incidentInfo[incidentCounter][4] = infoMe.getName();
+	/**
+	 * Return the ManagedIncidents that are in a certain state as an Array.
+	 * 
+	 * @param stateName The name of the state to filter the Incidents by.
+	 * @return a 2D String Array with information concerning the ManagedIncidents.
+	 */
+	public String[][] getManagedIncidentsAsArrayByState(String stateName) {
+		return toArray(incidentList.getIncidentRowsByState(stateName));
+	}
 
-			incidentCounter++;
+	/**
+	 * Gets the list as it is now, stored column by column. Counting or finding
+	 * incidents by category, state or priority in the result scans one compact
+	 * array, and the result does not change as commands run, so a report can
+	 * make several passes over the same point in time.
+	 * 
+	 * @return the incidents, column by column
+	 */
+	public ColumnarIncidentStore getManagedIncidentColumns() {
+		while (true) {
+			ManagedIncidentList list = incidentList;
+			list.pauseWriters();
+			try {
+				// The list was replaced while waiting, so copy the new one.
+				if (list != incidentList)
+					continue;
+				return list.copyColumns();
+			} finally {
+				list.resumeWriters();
+			}
 		}
+	}
+
+	/**
+	 * Returns the table rows built by the ManagedIncidentList. The rows of
+	 * incidents that have not been built from a mapped snapshot are read from the
+	 * snapshot, so showing the table does not build them.
+	 * 
+	 * @param incidentInfo the rows, each holding the id, category, state,
+	 *                     priority and name of an incident
+	 * @return a 2D String Array with information concerning the ManagedIncidents.
+	 */
+	private static String[][] toArray(String[][] incidentInfo) {
+		if (incidentInfo.length == 0)
+			return new String[0][0];
 		return incidentInfo;
 	}
 
@@ -149,13 +775,19 @@ public class IncidentManager {
 	}
 
 	/**
-	 * Execute the following command to the incident with the corresponding ID.
+	 * Execute the following command to the incident with the corresponding ID. A
+	 * rejected command may still have changed the incident and been journaled, so
+	 * the change is finished even when the command throws.
 	 * 
 	 * @param id the id of Incident you want to run a command on.
 	 * @param c  the command
 	 */
 	public void executeCommand(int id, Command c) {
-		incidentList.executeCommand(id, c);
+		try {
+			incidentList.executeCommand(id, c);
+		} finally {
+			changed();
+		}
 	}
 
 	/**
@@ -165,6 +797,7 @@ public class IncidentManager {
 	 */
 	public void deleteManagedIncidentById(int incidentId) {
 		incidentList.deleteIncidentById(incidentId);
+		changed();
 	}
 
 	/**
@@ -179,6 +812,48 @@ public class IncidentManager {
 	public void addManagedIncidentToList(String caller, Category category, Priority priority, String name,
 			String workNote) {
 		incidentList.addIncident(caller, category, priority, name, workNote);
+		changed();
+	}
+
+	/**
+	 * Finishes a change to the list: waits until it is durable in the journal,
+	 * and counts it towards the next autosave.
+	 */
+	private void changed() {
+		Autosaver a = autosaver;
+		if (a != null)
+			a.changed();
+		syncJournal();
+	}
+
+	/**
+	 * Waits until the changes recorded in the journal are durable. Changes made
+	 * by other threads at the same time are written together.
+	 */
+	private void syncJournal() {
+		CommandJournal j = journal;
+		if (j == null)
+			return;
+		try {
+			j.sync();
+		} catch (IOException ioe) {
+			throw new IllegalArgumentException("Unable to write the journal: " + ioe.getMessage());
+		}
+	}
+
+	/**
+	 * Closes a journal that could not be opened fully.
+	 * 
+	 * @param j the journal, or null
+	 */
+	private static void close(CommandJournal j) {
+		if (j == null)
+			return;
+		try {
+			j.close();
+		} catch (IOException ioe) {
+			// Already failing for another reason.
+		}
 	}
 
 }
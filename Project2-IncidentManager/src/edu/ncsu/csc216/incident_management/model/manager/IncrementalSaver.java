@@ -0,0 +1,172 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamWriter;
+
+/**
+ * Saves a ManagedIncidentList to a base file plus a delta file, so that a save
+ * writes only what changed instead of every incident. The delta file, named
+ * after the base file with DELTA_SUFFIX, holds the incidents added or changed
+ * since the base file was last written and the ids deleted since then. Once the
+ * delta holds more than the merge fraction of the list, the next save merges:
+ * it writes the whole list to the base file and removes the delta.
+ *
+ * Both files are ordinary incident files. The base file names itself with a
+ * base id and the delta names the base id it applies to, so a delta left over
+ * from before a merge is never applied to the newer base file.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+class IncrementalSaver {
+
+	/** Suffix of the delta file */
+	static final String DELTA_SUFFIX = ".delta";
+
+	/** The base file */
+	private final String baseFile;
+
+	/** The delta file */
+	private final String deltaFile;
+
+	/** The list last saved, or null before the first save */
+	private ManagedIncidentList list;
+
+	/** The version mark taken when the base file was last written */
+	private long baseMark;
+
+	/** The id written into the base file */
+	private long baseId;
+
+	/** The last base id handed out, so ids never repeat */
+	private static long lastBaseId;
+
+	/**
+	 * Creates an IncrementalSaver for the given base file.
+	 *
+	 * @param baseFile the base file
+	 */
+	IncrementalSaver(String baseFile) {
+		this.baseFile = baseFile;
+		this.deltaFile = baseFile + DELTA_SUFFIX;
+	}
+
+	/**
+	 * Gets the base file.
+	 *
+	 * @return the base file
+	 */
+	String getBaseFile() {
+		return baseFile;
+	}
+
+	/**
+	 * Saves the changes made to the list since the base file was written, or the
+	 * whole list if this is the first save of the list or the delta has grown past
+	 * the merge fraction. Changes are paused only while the changed incidents are
+	 * copied.
+	 *
+	 * @param current       the list to save
+	 * @param mergeFraction the fraction of the list the delta may hold before the
+	 *                      next save merges
+	 * @param backupCount   number of backups kept of the base file
+	 * @return true if the whole list was written to the base file
+	 * @throws IncidentIOException if a file cannot be written
+	 */
+	synchronized boolean save(ManagedIncidentList current, double mergeFraction, int backupCount)
+			throws IncidentIOException {
+		ArrayList<ManagedIncident> changed = null;
+		int[] deleted = null;
+		long mark;
+		boolean merge = current != list;
+		current.pauseWriters();
+		try {
+			mark = ManagedIncident.nextVersion();
+			if (!merge) {
+				changed = current.copyIncidentsChangedSince(baseMark);
+				deleted = current.getDeletedSince(baseMark);
+				merge = changed.size() + deleted.length > current.size() * mergeFraction;
+			}
+			if (merge) {
+				changed = current.copyIncidents();
+			}
+		} finally {
+			current.resumeWriters();
+		}
+
+		if (!merge) {
+			IncidentStreamWriter deltaWriter = new IncidentStreamWriter(deltaFile);
+			deltaWriter.setBaseId(baseId);
+			deltaWriter.setDeletedIds(deleted);
+			deltaWriter.writeIncidents(changed);
+			return false;
+		}
+		long newBaseId = nextBaseId();
+		IncidentStreamWriter baseWriter = new IncidentStreamWriter(baseFile, backupCount);
+		baseWriter.setBaseId(newBaseId);
+		baseWriter.writeIncidents(changed);
+		try {
+			Files.deleteIfExists(Paths.get(deltaFile));
+		} catch (IOException e) {
+			// The delta names the old base, so it is ignored when the files are read.
+		}
+		if (list != current)
+			release();
+		list = current;
+		baseMark = mark;
+		baseId = newBaseId;
+		current.pauseWriters();
+		try {
+			current.trackDeletionsAfter(mark);
+		} finally {
+			current.resumeWriters();
+		}
+		return true;
+	}
+
+	/**
+	 * Stops basing saves on the list last saved, so the list no longer records
+	 * its deletions for a delta. The next save writes the whole list.
+	 */
+	synchronized void release() {
+		ManagedIncidentList last = list;
+		if (last == null)
+			return;
+		list = null;
+		last.pauseWriters();
+		try {
+			last.untrackDeletions();
+		} finally {
+			last.resumeWriters();
+		}
+	}
+
+	/**
+	 * Gets the delta file of a base file, if the file exists.
+	 *
+	 * @param baseFile the base file
+	 * @return the delta file, or null if there is none
+	 */
+	static String deltaOf(String baseFile) {
+		String delta = baseFile + DELTA_SUFFIX;
+		return new File(delta).exists() ? delta : null;
+	}
+
+	/**
+	 * Hands out a base id that differs from every earlier one.
+	 *
+	 * @return the base id
+	 */
+	private static synchronized long nextBaseId() {
+		lastBaseId = Math.max(lastBaseId + 1, System.currentTimeMillis());
+		return lastBaseId;
+	}
+}
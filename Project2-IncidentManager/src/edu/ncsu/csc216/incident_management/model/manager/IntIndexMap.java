@@ -0,0 +1,276 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from int keys to int values. Used by
+ * ManagedIncidentList to find the position of an incident from its id without
+ * boxing either the key or the value. Collisions are resolved by linear probing
+ * and removals shift the following entries back, so no deleted markers are left
+ * behind in the table.
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IntIndexMap {
+
+	/**
+	 * Value returned by get, put and remove when the key is not in the map.
+	 */
+	public static final int NO_VALUE = -1;
+
+	/**
+	 * Key used to mark an empty bucket in the table.
+	 */
+	private static final int FREE_KEY = Integer.MIN_VALUE;
+
+	/**
+	 * The smallest number of buckets in the table.
+	 */
+	private static final int MIN_CAPACITY = 16;
+
+	/**
+	 * Multiplier used to spread the bits of a key before it is masked.
+	 */
+	private static final int PHI = 0x9E3779B9;
+
+	/**
+	 * The keys of the map, FREE_KEY if the bucket is empty.
+	 */
+	private int[] keys;
+	/**
+	 * The values of the map, in the same bucket as their key.
+	 */
+	private int[] values;
+	/**
+	 * The number of entries in the table, not counting FREE_KEY.
+	 */
+	private int size;
+	/**
+	 * Mask used to turn a hash into a bucket.
+	 */
+	private int mask;
+	/**
+	 * Whether FREE_KEY itself has been put in the map.
+	 */
+	private boolean hasFreeKey;
+	/**
+	 * The value stored for FREE_KEY.
+	 */
+	private int freeKeyValue;
+
+	/**
+	 * Constructs an empty map.
+	 */
+	public IntIndexMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty map that can hold the given number of entries without
+	 * growing.
+	 *
+	 * @param expectedSize the number of entries expected
+	 */
+	public IntIndexMap(int expectedSize) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Expected size cannot be negative.");
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	/**
+	 * Gets the value for a key.
+	 *
+	 * @param key the key
+	 * @return the value, or NO_VALUE if the key is not in the map
+	 */
+	public int get(int key) {
+		if (key == FREE_KEY)
+			return hasFreeKey ? freeKeyValue : NO_VALUE;
+		int i = bucket(key);
+		while (keys[i] != FREE_KEY) {
+			if (keys[i] == key)
+				return values[i];
+			i = (i + 1) & mask;
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * Checks if the map contains a key.
+	 *
+	 * @param key the key
+	 * @return true if the key is in the map
+	 */
+	public boolean containsKey(int key) {
+		if (key == FREE_KEY)
+			return hasFreeKey;
+		int i = bucket(key);
+		while (keys[i] != FREE_KEY) {
+			if (keys[i] == key)
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * Maps a key to a value, replacing any value the key already had.
+	 *
+	 * @param key   the key
+	 * @param value the value
+	 * @return the previous value, or NO_VALUE if the key was not in the map
+	 */
+	public int put(int key, int value) {
+		if (key == FREE_KEY) {
+			int old = hasFreeKey ? freeKeyValue : NO_VALUE;
+			if (!hasFreeKey)
+				size++;
+			hasFreeKey = true;
+			freeKeyValue = value;
+			return old;
+		}
+		int i = bucket(key);
+		while (keys[i] != FREE_KEY) {
+			if (keys[i] == key) {
+				int old = values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		if (size * 4 > keys.length * 3)
+			rehash(keys.length * 2);
+		return NO_VALUE;
+	}
+
+	/**
+	 * Removes a key from the map.
+	 *
+	 * @param key the key
+	 * @return the value the key had, or NO_VALUE if the key was not in the map
+	 */
+	public int remove(int key) {
+		if (key == FREE_KEY) {
+			if (!hasFreeKey)
+				return NO_VALUE;
+			hasFreeKey = false;
+			size--;
+			return freeKeyValue;
+		}
+		int i = bucket(key);
+		while (keys[i] != FREE_KEY) {
+			if (keys[i] == key) {
+				int old = values[i];
+				shiftBack(i);
+				size--;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * Gets the number of entries in the map.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every entry from the map.
+	 */
+	public void clear() {
+		Arrays.fill(keys, FREE_KEY);
+		hasFreeKey = false;
+		size = 0;
+	}
+
+	/**
+	 * Fills the hole left at bucket i by moving back any entry further along the
+	 * probe sequence that would no longer be reachable.
+	 *
+	 * @param i the bucket that was emptied
+	 */
+	private void shiftBack(int i) {
+		int hole = i;
+		int j = (i + 1) & mask;
+		while (keys[j] != FREE_KEY) {
+			int home = bucket(keys[j]);
+			// Move the entry if the hole lies between its home bucket and j.
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+			j = (j + 1) & mask;
+		}
+		keys[hole] = FREE_KEY;
+	}
+
+	/**
+	 * Gets the home bucket of a key.
+	 *
+	 * @param key the key
+	 * @return the bucket the key hashes to
+	 */
+	private int bucket(int key) {
+		int h = key * PHI;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Moves every entry into a table of the given size.
+	 *
+	 * @param capacity the new number of buckets, a power of two
+	 */
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE_KEY) {
+				int j = bucket(oldKeys[i]);
+				while (keys[j] != FREE_KEY) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Creates empty key and value tables of the given size.
+	 *
+	 * @param capacity the number of buckets, a power of two
+	 */
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE_KEY);
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Gets the number of buckets needed to hold the given number of entries under
+	 * the load factor.
+	 *
+	 * @param expectedSize the number of entries
+	 * @return a power of two number of buckets
+	 */
+	private static int tableSizeFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3 < expectedSize * 4) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+}
@@ -1,10 +1,21 @@
 package edu.ncsu.csc216.incident_management.model.manager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import edu.ncsu.csc216.incident.xml.Incident;
+import edu.ncsu.csc216.incident_management.model.io.MappedIncidentSnapshot;
 import edu.ncsu.csc216.incident_management.model.command.Command;
+import edu.ncsu.csc216.incident_management.model.incident.IncidentState;
+import edu.ncsu.csc216.incident_management.model.incident.IncidentStateListener;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
@@ -18,6 +29,14 @@ import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priori
  * ManagedIncidentList can return a List of ManagedIncidents filtered by
  * Category).
  * 
+ * The list is safe to share between threads. Adding, loading and deleting
+ * incidents take an exclusive lock on the list's structure, while commands on
+ * different incidents run in parallel under locks striped by incident id.
+ * getManagedIncidents reads without locking and is weakly consistent.
+ * 
+ * Incidents added from a MappedIncidentSnapshot are only built when they are
+ * first looked up; until then the list keeps just their slot and index
+ * entries, and the table rows read their fields from the mapped file.
  * 
  * @author Dennis Sarsozo
  * @author Zhongxiao Mei
@@ -26,16 +45,155 @@ import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priori
 public class ManagedIncidentList {
 
 	/**
-	 * the list of Incidents
+	 * The default fraction of deleted slots that triggers a compaction.
+	 */
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.25;
+
+	/**
+	 * The initial number of slots.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The number of locks that commands are striped over, a power of two.
+	 */
+	private static final int STRIPES = 64;
+
+	/**
+	 * the list of Incidents in the order they were added. A deleted incident
+	 * leaves a null tombstone in its slot until the next compaction.
+	 */
+	private volatile ManagedIncident[] incidents;
+
+	/**
+	 * The number of slots in incidents that have been used, including tombstones.
+	 * A slot is filled in before this is raised past it, so a reader that sees
+	 * the new count without the lock also sees the incident in the slot.
+	 */
+	private volatile int slotCount;
+
+	/**
+	 * The number of tombstones in incidents.
+	 */
+	private int tombstones;
+
+	/**
+	 * The fraction of used slots that may be tombstones before they are reclaimed.
+	 */
+	private double compactionThreshold;
+
+	/**
+	 * Maps the id of each incident to its slot in incidents.
+	 */
+	private IntIndexMap idIndex;
+
+	/**
+	 * The ids of the incidents in each Category, in the order they were added.
+	 */
+	private EnumMap<Category, LinkedHashSet<Integer>> categoryIndex;
+
+	/**
+	 * The ids of the incidents in each state, keyed by state name, in the order
+	 * they entered the state.
+	 */
+	private HashMap<String, LinkedHashSet<Integer>> stateIndex;
+
+	/**
+	 * Moves incidents between the sets of stateIndex as they change state.
+	 */
+	private IncidentStateListener stateIndexer;
+
+	/**
+	 * Guards incidents, the indexes and the counters. Held for reading while a
+	 * command runs so the incident cannot be deleted out from under it.
+	 */
+	private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Held for reading by every change to the list, before structureLock, and for
+	 * writing by pauseWriters, so a pause stops the changes while readers, which
+	 * take only structureLock, carry on.
 	 */
-	private ArrayList<ManagedIncident> incidents;
+	private final ReentrantReadWriteLock writerLock = new ReentrantReadWriteLock();
 
 	/**
-	 * Create a new list of ManagedIncidents and sets the current incident ID to 0.
+	 * Locks that serialize commands on the same incident, chosen by incident id.
+	 */
+	private final ReentrantLock[] stripes;
+
+	/**
+	 * Allocates the ids of incidents added to this list.
+	 */
+	private final IncidentIdAllocator idAllocator;
+
+	/**
+	 * Records every change to the list, or null if the list is not journaled.
+	 */
+	private volatile CommandJournal journal;
+
+	/**
+	 * The mapped snapshot that incidents not built yet are read from, or null once
+	 * every incident in the list has been built.
+	 */
+	private volatile MappedIncidentSnapshot snapshot;
+
+	/**
+	 * For each slot whose incident has not been built yet, its record number in
+	 * snapshot plus one; 0 for every other slot. Null when snapshot is null.
+	 */
+	private int[] snapshotRecords;
+
+	/**
+	 * The number of incidents that have not been built yet.
+	 */
+	private int unbuilt;
+
+	/**
+	 * The ids of incidents deleted from the list, each with the version taken when
+	 * it was deleted, so an incremental save can list the deletions since the
+	 * last full save. Changed under the write lock of structureLock, and read
+	 * only while writers are paused.
+	 */
+	private final HashMap<Integer, Long> deletions = new HashMap<Integer, Long>();
+
+	/**
+	 * Whether deleted ids are recorded in deletions, which is only while an
+	 * incremental save has written a base file of the list. Read under the write
+	 * lock of structureLock, and changed only while writers are paused.
+	 */
+	private boolean deletionsTracked;
+
+	/**
+	 * Serializes building incidents from the snapshot, which happens while only
+	 * the read lock of structureLock is held. Guards snapshot, snapshotRecords and
+	 * unbuilt along with the write lock.
+	 */
+	private final Object buildLock = new Object();
+
+	/**
+	 * Create a new list of ManagedIncidents whose first incident ID is 0.
 	 */
 	public ManagedIncidentList() {
-		incidents = new ArrayList<ManagedIncident>();
-		ManagedIncident.setCounter(0);
+		incidents = new ManagedIncident[INITIAL_CAPACITY];
+		compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+		idIndex = new IntIndexMap();
+		categoryIndex = new EnumMap<Category, LinkedHashSet<Integer>>(Category.class);
+		for (Category c : Category.values()) {
+			categoryIndex.put(c, new LinkedHashSet<Integer>());
+		}
+		stateIndex = new HashMap<String, LinkedHashSet<Integer>>();
+		stateIndex.put(ManagedIncident.NEW_NAME, new LinkedHashSet<Integer>());
+		stateIndex.put(ManagedIncident.IN_PROGRESS_NAME, new LinkedHashSet<Integer>());
+		stateIndex.put(ManagedIncident.ON_HOLD_NAME, new LinkedHashSet<Integer>());
+		stateIndex.put(ManagedIncident.RESOLVED_NAME, new LinkedHashSet<Integer>());
+		stateIndex.put(ManagedIncident.CLOSED_NAME, new LinkedHashSet<Integer>());
+		stateIndex.put(ManagedIncident.CANCELED_NAME, new LinkedHashSet<Integer>());
+		stateIndexer = new StateIndexer();
+		stripes = new ReentrantLock[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+		idAllocator = new IncidentIdAllocator(0);
 	}
 
 	/**
@@ -49,8 +207,17 @@ public class ManagedIncidentList {
 	 * @return the number of added incidents
 	 */
 	public int addIncident(String caller, Category category, Priority priority, String name, String workNote) {
-		ManagedIncident incident = new ManagedIncident(caller, category, priority, name, workNote);
-		incidents.add(incident);
+		ManagedIncident incident = new ManagedIncident(idAllocator.nextId(), caller, category, priority, name,
+				workNote);
+		writerLock.readLock().lock();
+		structureLock.writeLock().lock();
+		try {
+			insert(incident);
+			journalPut(incident);
+		} finally {
+			structureLock.writeLock().unlock();
+			writerLock.readLock().unlock();
+		}
 		return incident.getIncidentId();
 	}
 
@@ -61,22 +228,216 @@ public class ManagedIncidentList {
 	 */
 	public void addXMLIncidents(List<Incident> xmlIncidents) {
 		int count = 0;
-		for (int i = 0; i < xmlIncidents.size(); i++) {
-			if (count < xmlIncidents.get(i).getId()) {
-				count = xmlIncidents.get(i).getId();
+		writerLock.readLock().lock();
+		structureLock.writeLock().lock();
+		try {
+			for (int i = 0; i < xmlIncidents.size(); i++) {
+				if (count < xmlIncidents.get(i).getId()) {
+					count = xmlIncidents.get(i).getId();
+				}
+				ManagedIncident incident = new ManagedIncident(xmlIncidents.get(i));
+				insert(incident);
+				journalPut(incident);
 			}
-			incidents.add(new ManagedIncident(xmlIncidents.get(i)));
+		} finally {
+			structureLock.writeLock().unlock();
+			writerLock.readLock().unlock();
 		}
-		ManagedIncident.setCounter(count + 1);
+		idAllocator.advancePast(count);
 	}
 
 	/**
-	 * Get the list of Managed Incidents.
+	 * Add ManagedIncidents that have already been read from a file. New incidents
+	 * added afterwards get ids above the largest id that was added.
+	 * 
+	 * @param loaded the incidents to add
+	 */
+	public void addManagedIncidents(List<ManagedIncident> loaded) {
+		int count = 0;
+		writerLock.readLock().lock();
+		structureLock.writeLock().lock();
+		try {
+			ensureCapacity(loaded.size());
+			for (ManagedIncident incident : loaded) {
+				if (count < incident.getIncidentId()) {
+					count = incident.getIncidentId();
+				}
+				insert(incident);
+				journalPut(incident);
+			}
+		} finally {
+			structureLock.writeLock().unlock();
+			writerLock.readLock().unlock();
+		}
+		idAllocator.advancePast(count);
+	}
+
+	/**
+	 * Add the incidents of a mapped snapshot without building them. Each incident
+	 * is built the first time it is looked up, so loading takes time and memory
+	 * only for the ids, categories and states needed to index the incidents. The
+	 * incidents are built right away if the list is journaled, since the journal
+	 * records them in full, or if the list is already reading from another
+	 * snapshot. New incidents added afterwards get ids above the largest id that
+	 * was added.
+	 * 
+	 * @param mapped the snapshot
+	 */
+	public void addMappedIncidents(MappedIncidentSnapshot mapped) {
+		int count = 0;
+		writerLock.readLock().lock();
+		structureLock.writeLock().lock();
+		try {
+			boolean lazy = journal == null && snapshot == null;
+			if (lazy) {
+				snapshot = mapped;
+				snapshotRecords = new int[incidents.length];
+			}
+			for (int record = 0; record < mapped.size(); record++) {
+				int id = mapped.getIncidentId(record);
+				if (count < id) {
+					count = id;
+				}
+				if (!lazy) {
+					ManagedIncident incident = mapped.readIncident(record);
+					insert(incident);
+					journalPut(incident);
+					continue;
+				}
+				int position = idIndex.get(id);
+				boolean appended = false;
+				if (position != IntIndexMap.NO_VALUE) {
+					unindex(position);
+				} else {
+					ensureCapacity();
+					position = slotCount;
+					appended = true;
+					idIndex.put(id, position);
+				}
+				deletions.remove(id);
+				incidents[position] = null;
+				snapshotRecords[position] = record + 1;
+				if (appended) {
+					slotCount = position + 1;
+				}
+				unbuilt++;
+				categoryIndex.get(mapped.getCategory(record)).add(id);
+				stateIndex.get(mapped.getStateName(record)).add(id);
+			}
+			if (lazy && unbuilt == 0) {
+				snapshot = null;
+				snapshotRecords = null;
+			}
+		} finally {
+			structureLock.writeLock().unlock();
+			writerLock.readLock().unlock();
+		}
+		idAllocator.advancePast(count);
+	}
+
+	/**
+	 * Reserves a block of consecutive ids for incidents that will be added later,
+	 * for example by a bulk import that numbers its incidents itself.
+	 * 
+	 * @param count the number of ids to reserve
+	 * @return the first id of the block
+	 */
+	public int reserveIds(int count) {
+		return idAllocator.reserve(count);
+	}
+
+	/**
+	 * Reserves a block of consecutive ids that are all greater than the given id,
+	 * for example to renumber imported incidents whose ids are taken.
+	 * 
+	 * @param id    an id the block must be above
+	 * @param count the number of ids to reserve
+	 * @return the first id of the block
+	 */
+	int reserveIdsAbove(int id, int count) {
+		idAllocator.advancePast(id);
+		return idAllocator.reserve(count);
+	}
+
+	/**
+	 * Checks whether an incident with the given id is in the list, without
+	 * building it if it comes from a snapshot.
+	 * 
+	 * @param id the id
+	 * @return true if the list holds the id
+	 */
+	boolean containsId(int id) {
+		structureLock.readLock().lock();
+		try {
+			return idIndex.get(id) != IntIndexMap.NO_VALUE;
+		} finally {
+			structureLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the id that will be given to the next incident added to the list.
+	 * 
+	 * @return the next incident id
+	 */
+	public int getNextIncidentId() {
+		return idAllocator.peek();
+	}
+
+	/**
+	 * Get the list of Managed Incidents, in the order they were added. The list is
+	 * a copy, so changing it does not change this ManagedIncidentList. No lock is
+	 * taken: the copy holds every incident that was in the list for the whole
+	 * call, and may or may not hold incidents added or deleted during it.
 	 * 
 	 * @return a list of Managed Incidents
 	 */
 	public ArrayList<ManagedIncident> getManagedIncidents() {
-		return incidents;
+		if (snapshot != null) {
+			// Incidents that have not been built yet are built under the read lock.
+			structureLock.readLock().lock();
+			try {
+				ArrayList<ManagedIncident> list = new ArrayList<ManagedIncident>(slotCount - tombstones);
+				for (int i = 0; i < slotCount; i++) {
+					ManagedIncident incident = slot(i);
+					if (incident != null) {
+						list.add(incident);
+					}
+				}
+				return list;
+			} finally {
+				structureLock.readLock().unlock();
+			}
+		}
+		while (true) {
+			ManagedIncident[] slots = incidents;
+			int count = Math.min(slotCount, slots.length);
+			ArrayList<ManagedIncident> list = new ArrayList<ManagedIncident>(count);
+			for (int i = 0; i < count; i++) {
+				ManagedIncident incident = slots[i];
+				if (incident != null) {
+					list.add(incident);
+				}
+			}
+			// A compaction moved the incidents while they were copied, so start over.
+			if (slots == incidents) {
+				return list;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of Managed Incidents in the list.
+	 * 
+	 * @return the number of Managed Incidents
+	 */
+	public int size() {
+		structureLock.readLock().lock();
+		try {
+			return slotCount - tombstones;
+		} finally {
+			structureLock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -89,13 +450,109 @@ public class ManagedIncidentList {
 		if (category == null) {
 			throw new IllegalArgumentException();
 		}
-		ArrayList<ManagedIncident> list = new ArrayList<ManagedIncident>();
-		for (int i = 0; i < incidents.size(); i++) {
-			if (incidents.get(i).getCategory().equals(category)) {
-				list.add(incidents.get(i));
+		structureLock.readLock().lock();
+		try {
+			LinkedHashSet<Integer> ids = categoryIndex.get(category);
+			ArrayList<ManagedIncident> list = new ArrayList<ManagedIncident>(ids.size());
+			for (int id : ids) {
+				list.add(lookup(id));
+			}
+			return list;
+		} finally {
+			structureLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the list of Managed Incidents that are in a certain state, in the order
+	 * they entered that state.
+	 * 
+	 * @param stateName the name of the state, one of the state names in
+	 *                  ManagedIncident
+	 * @return a list of Managed Incidents
+	 */
+	public ArrayList<ManagedIncident> getIncidentsByState(String stateName) {
+		if (stateName == null || !stateIndex.containsKey(stateName)) {
+			throw new IllegalArgumentException();
+		}
+		structureLock.readLock().lock();
+		try {
+			// Commands on other incidents may be moving ids between the sets.
+			synchronized (stateIndex) {
+				LinkedHashSet<Integer> ids = stateIndex.get(stateName);
+				ArrayList<ManagedIncident> list = new ArrayList<ManagedIncident>(ids.size());
+				for (int id : ids) {
+					list.add(lookup(id));
+				}
+				return list;
+			}
+		} finally {
+			structureLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the table rows of every incident, in the order they were added. Each
+	 * row holds the id, category, state name, priority and name of an incident.
+	 * Incidents that have not been built from a snapshot yet are not built.
+	 * 
+	 * @return the rows
+	 */
+	String[][] getIncidentRows() {
+		structureLock.readLock().lock();
+		try {
+			ArrayList<String[]> rows = new ArrayList<String[]>(slotCount - tombstones);
+			for (int i = 0; i < slotCount; i++) {
+				String[] row = row(i);
+				if (row != null) {
+					rows.add(row);
+				}
+			}
+			return rows.toArray(new String[rows.size()][]);
+		} finally {
+			structureLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the table rows of the incidents in a certain category, as
+	 * getIncidentRows does.
+	 * 
+	 * @param category the category of incidents
+	 * @return the rows
+	 */
+	String[][] getIncidentRowsByCategory(Category category) {
+		if (category == null) {
+			throw new IllegalArgumentException();
+		}
+		structureLock.readLock().lock();
+		try {
+			return rows(categoryIndex.get(category));
+		} finally {
+			structureLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the table rows of the incidents in a certain state, in the order they
+	 * entered that state, as getIncidentRows does.
+	 * 
+	 * @param stateName the name of the state, one of the state names in
+	 *                  ManagedIncident
+	 * @return the rows
+	 */
+	String[][] getIncidentRowsByState(String stateName) {
+		if (stateName == null || !stateIndex.containsKey(stateName)) {
+			throw new IllegalArgumentException();
+		}
+		structureLock.readLock().lock();
+		try {
+			synchronized (stateIndex) {
+				return rows(stateIndex.get(stateName));
 			}
+		} finally {
+			structureLock.readLock().unlock();
 		}
-		return list;
 	}
 
 	/**
@@ -105,41 +562,460 @@ public class ManagedIncidentList {
 	 * @return the Incident with the corresponding ID
 	 */
 	public ManagedIncident getIncidentById(int byId) {
-		ManagedIncident incident = null;
-		for (int i = 0; i < incidents.size(); i++) {
-			if (incidents.get(i).getIncidentId() == byId) {
-				incident = incidents.get(i);
-			}
+		structureLock.readLock().lock();
+		try {
+			return lookup(byId);
+		} finally {
+			structureLock.readLock().unlock();
 		}
-		return incident;
 	}
 
 	/**
 	 * Execute the following command to the incident with the corresponding ID.
+	 * The command is journaled whenever it changed the incident, including a
+	 * command that was rejected after changing it, so replay reaches the same
+	 * state.
 	 * 
 	 * @param id      the id of Incident you want to run a command on.
 	 * @param thisCmd the command
 	 */
 	public void executeCommand(int id, Command thisCmd) {
-		for (ManagedIncident mi : incidents) {
-			if (mi.getIncidentId() == id) {
-				mi.update(thisCmd);
-				return;
+		writerLock.readLock().lock();
+		structureLock.readLock().lock();
+		try {
+			ManagedIncident mi = lookup(id);
+			if (mi != null) {
+				ReentrantLock stripe = stripes[(id ^ (id >>> 16)) & (STRIPES - 1)];
+				stripe.lock();
+				try {
+					long before = mi.getVersion();
+					boolean rejected = true;
+					try {
+						mi.update(thisCmd);
+						rejected = false;
+					} finally {
+						CommandJournal j = journal;
+						if (j != null && mi.getVersion() != before) {
+							j.command(id, thisCmd, rejected);
+						}
+					}
+				} finally {
+					stripe.unlock();
+				}
 			}
-
+		} finally {
+			structureLock.readLock().unlock();
+			writerLock.readLock().unlock();
 		}
 	}
 
 	/**
-	 * Delete a certain Incident by an ID.
+	 * Delete a certain Incident by an ID. The incident's slot is left as a
+	 * tombstone, and the tombstones are compacted away once they make up more
+	 * than the compaction threshold of the used slots.
 	 * 
 	 * @param id the id of Incident to be deleted.
 	 */
 	public void deleteIncidentById(int id) {
-		for (int i = 0; i < incidents.size(); i++) {
-			if (incidents.get(i).getIncidentId() == id) {
-				incidents.remove(i);
+		writerLock.readLock().lock();
+		structureLock.writeLock().lock();
+		try {
+			int position = idIndex.remove(id);
+			if (position == IntIndexMap.NO_VALUE) {
+				return;
+			}
+			unindex(position);
+			incidents[position] = null;
+			tombstones++;
+			if (deletionsTracked) {
+				deletions.put(id, ManagedIncident.nextVersion());
+			}
+			CommandJournal j = journal;
+			if (j != null) {
+				j.delete(id);
+			}
+			if (tombstones > slotCount * compactionThreshold) {
+				compact();
+			}
+		} finally {
+			structureLock.writeLock().unlock();
+			writerLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sets the fraction of used slots that may be tombstones left by deleted
+	 * incidents before the slots are reclaimed.
+	 * 
+	 * @param threshold a fraction greater than 0 and at most 1
+	 */
+	public void setCompactionThreshold(double threshold) {
+		if (!(threshold > 0 && threshold <= 1)) {
+			throw new IllegalArgumentException("Compaction threshold must be greater than 0 and at most 1.");
+		}
+		this.compactionThreshold = threshold;
+	}
+
+	/**
+	 * Reclaims the slots of deleted incidents, keeping the remaining incidents in
+	 * the order they were added.
+	 */
+	public void compact() {
+		structureLock.writeLock().lock();
+		try {
+			// Copy into a new array so unlocked readers of the old one are unaffected.
+			ManagedIncident[] live = new ManagedIncident[Math.max(INITIAL_CAPACITY, (slotCount - tombstones) * 2)];
+			int[] liveRecords = snapshotRecords == null ? null : new int[live.length];
+			int count = 0;
+			for (int i = 0; i < slotCount; i++) {
+				if (incidents[i] != null) {
+					live[count] = incidents[i];
+					idIndex.put(live[count].getIncidentId(), count);
+					count++;
+				} else if (liveRecords != null && snapshotRecords[i] != 0) {
+					liveRecords[count] = snapshotRecords[i];
+					idIndex.put(snapshot.getIncidentId(snapshotRecords[i] - 1), count);
+					count++;
+				}
+			}
+			if (unbuilt == 0) {
+				snapshot = null;
+				liveRecords = null;
+			}
+			snapshotRecords = liveRecords;
+			incidents = live;
+			slotCount = count;
+			tombstones = 0;
+		} finally {
+			structureLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Sets the journal that records every later change to the list. The records
+	 * are appended while the list is locked, so they are in the order the changes
+	 * were made.
+	 * 
+	 * @param journal the journal, or null to stop journaling
+	 */
+	void setJournal(CommandJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Gets a copy of every incident in the list, in the order they were added.
+	 * Unlike getManagedIncidents, the incidents themselves are copied, so the
+	 * result does not change as commands run. Called between pauseWriters and
+	 * resumeWriters, the copy is the state of the list at a single point in time.
+	 * 
+	 * @return copies of the incidents
+	 */
+	ArrayList<ManagedIncident> copyIncidents() {
+		ArrayList<ManagedIncident> live = getManagedIncidents();
+		ArrayList<ManagedIncident> copies = new ArrayList<ManagedIncident>(live.size());
+		for (ManagedIncident incident : live) {
+			copies.add(new ManagedIncident(incident));
+		}
+		return copies;
+	}
+
+	/**
+	 * Copies every incident in the list into a ColumnarIncidentStore, in the
+	 * order they were added. Called between pauseWriters and resumeWriters, the
+	 * store is the state of the list at a single point in time.
+	 * 
+	 * @return the incidents, column by column
+	 */
+	ColumnarIncidentStore copyColumns() {
+		return new ColumnarIncidentStore(getManagedIncidents());
+	}
+
+	/**
+	 * Gets copies of the incidents whose version is above a mark, that is, the
+	 * incidents added or changed after the mark was taken. Called between
+	 * pauseWriters and resumeWriters, the copies are consistent with the mark
+	 * taken at the same time.
+	 * 
+	 * @param mark a version from ManagedIncident.nextVersion
+	 * @return copies of the changed incidents, in the order they were added
+	 */
+	ArrayList<ManagedIncident> copyIncidentsChangedSince(long mark) {
+		ArrayList<ManagedIncident> copies = new ArrayList<ManagedIncident>();
+		for (ManagedIncident incident : getManagedIncidents()) {
+			if (incident.getVersion() > mark) {
+				copies.add(new ManagedIncident(incident));
 			}
 		}
+		return copies;
+	}
+
+	/**
+	 * Gets the ids of the incidents deleted after a mark was taken and not added
+	 * again since. The caller must have called pauseWriters.
+	 * 
+	 * @param mark a version from ManagedIncident.nextVersion
+	 * @return the deleted ids, in increasing order
+	 */
+	int[] getDeletedSince(long mark) {
+		int[] ids = new int[deletions.size()];
+		int count = 0;
+		for (Map.Entry<Integer, Long> deletion : deletions.entrySet()) {
+			if (deletion.getValue() > mark) {
+				ids[count++] = deletion.getKey();
+			}
+		}
+		ids = Arrays.copyOf(ids, count);
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	/**
+	 * Forgets the deletions made up to a mark, once a full save no longer holds
+	 * the deleted incidents, and records the deletions made afterwards. The
+	 * caller must have called pauseWriters.
+	 * 
+	 * @param mark a version from ManagedIncident.nextVersion
+	 */
+	void trackDeletionsAfter(long mark) {
+		deletionsTracked = true;
+		Iterator<Long> versions = deletions.values().iterator();
+		while (versions.hasNext()) {
+			if (versions.next() <= mark) {
+				versions.remove();
+			}
+		}
+	}
+
+	/**
+	 * Stops recording deletions and forgets the ones recorded, once no
+	 * incremental save is based on the list. The caller must have called
+	 * pauseWriters.
+	 */
+	void untrackDeletions() {
+		deletionsTracked = false;
+		deletions.clear();
+	}
+
+	/**
+	 * Blocks every change to the list until resumeWriters is called, so a
+	 * checkpoint can copy the list and roll the journal over without missing a
+	 * change. Readers are not blocked, since they take only structureLock. The
+	 * thread that paused the writers may still change the list itself.
+	 */
+	void pauseWriters() {
+		writerLock.writeLock().lock();
+	}
+
+	/**
+	 * Lets changes to the list continue after pauseWriters.
+	 */
+	void resumeWriters() {
+		writerLock.writeLock().unlock();
+	}
+
+	/**
+	 * Records an added incident in the journal, if there is one. The caller must
+	 * hold the write lock of structureLock.
+	 * 
+	 * @param incident the added incident
+	 */
+	private void journalPut(ManagedIncident incident) {
+		CommandJournal j = journal;
+		if (j != null) {
+			j.put(incident);
+		}
+	}
+
+	/**
+	 * Finds an incident by id. The caller must hold structureLock.
+	 * 
+	 * @param id the id of the incident
+	 * @return the incident, or null if there is no incident with the id
+	 */
+	private ManagedIncident lookup(int id) {
+		int position = idIndex.get(id);
+		if (position == IntIndexMap.NO_VALUE) {
+			return null;
+		}
+		return slot(position);
+	}
+
+	/**
+	 * Gets the incident in a slot, building it from the snapshot if it has not
+	 * been built yet. The caller must hold structureLock.
+	 * 
+	 * @param position the slot
+	 * @return the incident, or null if the slot is a tombstone
+	 */
+	private ManagedIncident slot(int position) {
+		ManagedIncident incident = incidents[position];
+		if (incident != null) {
+			return incident;
+		}
+		synchronized (buildLock) {
+			incident = incidents[position];
+			if (incident != null || snapshotRecords == null || snapshotRecords[position] == 0) {
+				return incident;
+			}
+			incident = snapshot.readIncident(snapshotRecords[position] - 1);
+			incident.setStateListener(stateIndexer);
+			incidents[position] = incident;
+			snapshotRecords[position] = 0;
+			if (--unbuilt == 0) {
+				// Every incident has been built, so the mapping can be released.
+				snapshot = null;
+				snapshotRecords = null;
+			}
+			return incident;
+		}
+	}
+
+	/**
+	 * Gets the table row of the incident in a slot, reading it from the snapshot
+	 * if the incident has not been built yet. The caller must hold structureLock.
+	 * 
+	 * @param position the slot
+	 * @return the row, or null if the slot is a tombstone
+	 */
+	private String[] row(int position) {
+		ManagedIncident incident = incidents[position];
+		if (incident == null) {
+			synchronized (buildLock) {
+				incident = incidents[position];
+				if (incident == null) {
+					if (snapshotRecords == null || snapshotRecords[position] == 0) {
+						return null;
+					}
+					int record = snapshotRecords[position] - 1;
+					return new String[] { Integer.toString(snapshot.getIncidentId(record)),
+							snapshot.getCategoryString(record), snapshot.getStateName(record),
+							snapshot.getPriorityString(record), snapshot.getName(record) };
+				}
+			}
+		}
+		return new String[] { Integer.toString(incident.getIncidentId()), incident.getCategoryString(),
+				incident.getState().getStateName(), incident.getPriorityString(), incident.getName() };
+	}
+
+	/**
+	 * Gets the table rows of the incidents with the given ids. The caller must
+	 * hold structureLock.
+	 * 
+	 * @param ids the ids, from one of the indexes
+	 * @return the rows
+	 */
+	private String[][] rows(LinkedHashSet<Integer> ids) {
+		String[][] rows = new String[ids.size()][];
+		int count = 0;
+		for (int id : ids) {
+			rows[count++] = row(idIndex.get(id));
+		}
+		return rows;
+	}
+
+	/**
+	 * Makes room for one more slot. The caller must hold the write lock of
+	 * structureLock.
+	 */
+	private void ensureCapacity() {
+		ensureCapacity(1);
+	}
+
+	/**
+	 * Makes room for more slots at once, so a batch of incidents grows the slots
+	 * a single time. The caller must hold the write lock of structureLock.
+	 * 
+	 * @param extra the number of slots needed
+	 */
+	private void ensureCapacity(int extra) {
+		if (slotCount + extra > incidents.length) {
+			int capacity = Math.max(slotCount * 2, slotCount + extra);
+			if (snapshotRecords != null) {
+				snapshotRecords = Arrays.copyOf(snapshotRecords, capacity);
+			}
+			incidents = Arrays.copyOf(incidents, capacity);
+		}
+	}
+
+	/**
+	 * Adds an incident to the end of the list and indexes it by id. An incident
+	 * whose id is already in the list replaces the existing one in place. The
+	 * incident gets a new version under the lock, so an incremental save that
+	 * took its mark before the incident was added still finds it. The caller
+	 * must hold the write lock of structureLock.
+	 * 
+	 * @param incident the incident to add
+	 */
+	private void insert(ManagedIncident incident) {
+		incident.markChanged();
+		deletions.remove(incident.getIncidentId());
+		int position = idIndex.get(incident.getIncidentId());
+		if (position != IntIndexMap.NO_VALUE) {
+			unindex(position);
+			incidents[position] = incident;
+		} else {
+			ensureCapacity();
+			position = slotCount;
+			idIndex.put(incident.getIncidentId(), position);
+			incidents[position] = incident;
+			// Publish the filled slot to readers that copy the list without the lock.
+			slotCount = position + 1;
+		}
+		if (incident.getCategory() != null) {
+			categoryIndex.get(incident.getCategory()).add(incident.getIncidentId());
+		}
+		if (incident.getState() != null) {
+			stateIndex.get(incident.getState().getStateName()).add(incident.getIncidentId());
+		}
+		incident.setStateListener(stateIndexer);
+	}
+
+	/**
+	 * Removes the incident in a slot from the Category and state indexes. An
+	 * incident that has not been built yet is forgotten without building it. The
+	 * caller must hold the write lock of structureLock.
+	 * 
+	 * @param position the slot of the incident leaving the list
+	 */
+	private void unindex(int position) {
+		ManagedIncident incident = incidents[position];
+		if (incident == null) {
+			int record = snapshotRecords[position] - 1;
+			int id = snapshot.getIncidentId(record);
+			categoryIndex.get(snapshot.getCategory(record)).remove(id);
+			stateIndex.get(snapshot.getStateName(record)).remove(id);
+			snapshotRecords[position] = 0;
+			unbuilt--;
+			return;
+		}
+		incident.setStateListener(null);
+		if (incident.getCategory() != null) {
+			categoryIndex.get(incident.getCategory()).remove(incident.getIncidentId());
+		}
+		if (incident.getState() != null) {
+			stateIndex.get(incident.getState().getStateName()).remove(incident.getIncidentId());
+		}
+	}
+
+	/**
+	 * Keeps stateIndex in step with the state transitions of the incidents in the
+	 * list.
+	 * 
+	 * @author Dennis Sarsozo
+	 * @author Zhongxiao Mei
+	 *
+	 */
+	private class StateIndexer implements IncidentStateListener {
+
+		@Override
+		public void stateChanged(ManagedIncident incident, IncidentState oldState, IncidentState newState) {
+			synchronized (stateIndex) {
+				if (oldState != null) {
+					stateIndex.get(oldState.getStateName()).remove(incident.getIncidentId());
+				}
+				stateIndex.get(newState.getStateName()).add(incident.getIncidentId());
+			}
+		}
+
 	}
 }
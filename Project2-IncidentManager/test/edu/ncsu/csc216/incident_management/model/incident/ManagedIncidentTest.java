@@ -3,7 +3,9 @@ package edu.ncsu.csc216.incident_management.model.incident;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
+import org.junit.Before;
 import org.junit.Test;
 
 import edu.ncsu.csc216.incident.xml.Incident;
@@ -14,7 +16,9 @@ import edu.ncsu.csc216.incident_management.model.command.Command.CommandValue;
 import edu.ncsu.csc216.incident_management.model.command.Command.OnHoldReason;
 import edu.ncsu.csc216.incident_management.model.command.Command.ResolutionCode;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.ClosedState;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.InProgressState;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.ResolvedState;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
 
 /**
@@ -26,6 +30,15 @@ import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priori
  */
 public class ManagedIncidentTest {
 
+	/**
+	 * Starts each test with the id counter at 0, so the ids the tests expect do
+	 * not depend on the order they run in.
+	 */
+	@Before
+	public void setUp() {
+		ManagedIncident.setCounter(0);
+	}
+
 	/**
 	 * Test incrementCounter()
 	 */
@@ -461,6 +474,35 @@ public class ManagedIncidentTest {
 		assertEquals("Awaiting Vendor", incidents.getOnHoldReasonString());
 	}
 
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.incident.ManagedIncident#fromValidIncident(edu.ncsu.csc216.incident.xml.Incident)}.
+	 */
+	@Test
+	public void testFromValidIncident() {
+		Incident incident = new Incident();
+		incident.setId(7);
+		incident.setCaller("sesmith5");
+		incident.setCategory("Network");
+		incident.setState("On Hold");
+		incident.setPriority("Low");
+		incident.setOwner("zmei");
+		incident.setName("Router down");
+		WorkNotes note = new WorkNotes();
+		note.getNotes().add("Waiting on the vendor.");
+		incident.setWorkNotes(note);
+		incident.setOnHoldReason("Awaiting Vendor");
+		ManagedIncident managed = ManagedIncident.fromValidIncident(incident);
+		ManagedIncident checked = new ManagedIncident(incident);
+		assertEquals(7, managed.getIncidentId());
+		assertEquals(checked.getCategory(), managed.getCategory());
+		assertEquals(ManagedIncident.ON_HOLD_NAME, managed.getState().getStateName());
+		assertEquals(checked.getPriority(), managed.getPriority());
+		assertEquals("zmei", managed.getOwner());
+		assertEquals(OnHoldReason.AWAITING_VENDOR, managed.getOnHoldReason());
+		assertEquals(Arrays.asList("Waiting on the vendor."), managed.getNotes());
+	}
+
 	/**
 	 * for jenkins
 	 */
@@ -470,25 +512,342 @@ public class ManagedIncidentTest {
 		Command cmINV = new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "note");
 		checkInc.update(cmINV);
 		
-		assertEquals(checkInc.new InProgressState().getClass(), checkInc.getState().getClass());
+		assertEquals(InProgressState.class, checkInc.getState().getClass());
 		assertEquals("owner", checkInc.getOwner());
 		
 		Command cmRES = new Command(CommandValue.RESOLVE, "owner", null, Command.ResolutionCode.PERMANENTLY_SOLVED, null, "note");
 		checkInc.update(cmRES);
 		
-		assertEquals(checkInc.new ResolvedState().getClass(), checkInc.getState().getClass());
+		assertEquals(ResolvedState.class, checkInc.getState().getClass());
 		assertEquals(Command.ResolutionCode.PERMANENTLY_SOLVED, checkInc.getResolutionCode());
 		
 		Command cmCONFIRM = new Command(CommandValue.CONFIRM, "owner", null, null, null, "note");
 		checkInc.update(cmCONFIRM);
 		
-		assertEquals(checkInc.new ClosedState().getClass(), checkInc.getState().getClass());
+		assertEquals(ClosedState.class, checkInc.getState().getClass());
 		assertEquals(Command.ResolutionCode.PERMANENTLY_SOLVED, checkInc.getResolutionCode());
 		
 		Command cmREOPEN = new Command(CommandValue.REOPEN, "owner", null, null, null, "note");
 		checkInc.update(cmREOPEN);
 		
-		assertEquals(checkInc.new InProgressState().getClass(), checkInc.getState().getClass());
+		assertEquals(InProgressState.class, checkInc.getState().getClass());
 		assertEquals(null, checkInc.getResolutionCode());
 	}
+
+	/**
+	 * Tests that incidents in the same state share one state object, and that a
+	 * shared state only changes the incident it is given.
+	 */
+	@Test
+	public void testSharedStates() {
+		ManagedIncident first = new ManagedIncident(3, "caller", Category.NETWORK, Priority.URGENT, "name", "note");
+		ManagedIncident second = new ManagedIncident(4, "caller", Category.NETWORK, Priority.URGENT, "name", "note");
+		assertSame(first.getState(), second.getState());
+
+		first.getState().updateState(first, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "taken"));
+		assertEquals(ManagedIncident.IN_PROGRESS_NAME, first.getState().getStateName());
+		assertEquals("owner", first.getOwner());
+		assertEquals(ManagedIncident.NEW_NAME, second.getState().getStateName());
+		assertNull(second.getOwner());
+		assertEquals(1, second.getNotes().size());
+
+		second.update(new Command(CommandValue.INVESTIGATE, "other", null, null, null, "taken"));
+		assertSame(first.getState(), second.getState());
+		assertSame(first.getState(), new ManagedIncident(first).getState());
+	}
+
+	/**
+	 * Tests every command in every state against the state model: the state each
+	 * allowed command moves to, and that every other command is rejected without
+	 * changing the incident, except that a Canceled incident loses its owner.
+	 */
+	@Test
+	public void testTransitionTable() {
+		String[] states = { ManagedIncident.NEW_NAME, ManagedIncident.IN_PROGRESS_NAME, ManagedIncident.ON_HOLD_NAME,
+				ManagedIncident.RESOLVED_NAME, ManagedIncident.CLOSED_NAME, ManagedIncident.CANCELED_NAME };
+		// Rows follow states; columns follow INVESTIGATE, HOLD, RESOLVE, CONFIRM,
+		// REOPEN and CANCEL. Null means the command is rejected.
+		String[][] expected = {
+				{ ManagedIncident.IN_PROGRESS_NAME, null, null, null, null, ManagedIncident.CANCELED_NAME },
+				{ null, ManagedIncident.ON_HOLD_NAME, ManagedIncident.RESOLVED_NAME, null, null,
+						ManagedIncident.CANCELED_NAME },
+				{ null, null, ManagedIncident.RESOLVED_NAME, null, ManagedIncident.IN_PROGRESS_NAME,
+						ManagedIncident.CANCELED_NAME },
+				{ null, ManagedIncident.ON_HOLD_NAME, null, ManagedIncident.CLOSED_NAME,
+						ManagedIncident.IN_PROGRESS_NAME, ManagedIncident.CANCELED_NAME },
+				{ null, null, null, null, ManagedIncident.IN_PROGRESS_NAME, null },
+				{ null, null, null, null, null, null } };
+		for (int i = 0; i < states.length; i++) {
+			for (CommandValue value : CommandValue.values()) {
+				ArrayList<String> notes = new ArrayList<String>();
+				notes.add("note");
+				OnHoldReason reason = ManagedIncident.ON_HOLD_NAME.equals(states[i]) ? OnHoldReason.AWAITING_CHANGE
+						: null;
+				ManagedIncident incident = new ManagedIncident(1, "caller", Category.NETWORK, states[i], Priority.LOW,
+						"owner", "name", reason, null, null, null, notes);
+				Command command = new Command(value, "other", OnHoldReason.AWAITING_VENDOR,
+						ResolutionCode.WORKAROUND, CancellationCode.DUPLICATE, "work");
+				String next = expected[i][value.ordinal()];
+				String cell = states[i] + " " + value;
+				if (next == null) {
+					try {
+						incident.update(command);
+						fail(cell);
+					} catch (UnsupportedOperationException e) {
+						assertEquals(cell, states[i], incident.getState().getStateName());
+						assertEquals(cell, 1, incident.getNotes().size());
+						if (ManagedIncident.CANCELED_NAME.equals(states[i]))
+							assertNull(cell, incident.getOwner());
+						else
+							assertEquals(cell, "owner", incident.getOwner());
+					}
+				} else {
+					incident.update(command);
+					assertEquals(cell, next, incident.getState().getStateName());
+					assertEquals(cell, 2, incident.getNotes().size());
+					assertEquals(cell, value == CommandValue.INVESTIGATE ? "other" : "owner", incident.getOwner());
+					assertEquals(cell, ManagedIncident.ON_HOLD_NAME.equals(next) ? Command.OH_VENDOR : null,
+							incident.getOnHoldReasonString());
+					// Leaving On Hold while awaiting a change keeps the note as the change request.
+					assertEquals(cell, reason != null && value != CommandValue.CANCEL ? "work" : null,
+							incident.getChangeRequest());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests the copy constructor
+	 */
+	@Test
+	public void testCopy() {
+		ManagedIncident original = new ManagedIncident(3, "caller", Category.NETWORK, Priority.URGENT, "name", "note");
+		original.update(new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "taken"));
+		original.update(new Command(CommandValue.HOLD, null, OnHoldReason.AWAITING_CHANGE, null, null, "waiting"));
+
+		ManagedIncident copy = new ManagedIncident(original);
+		assertEquals(3, copy.getIncidentId());
+		assertEquals("caller", copy.getCaller());
+		assertEquals(Category.NETWORK, copy.getCategory());
+		assertEquals("Urgent", copy.getPriorityString());
+		assertEquals("owner", copy.getOwner());
+		assertEquals(ManagedIncident.ON_HOLD_NAME, copy.getState().getStateName());
+		assertEquals(Command.OH_CHANGE, copy.getOnHoldReasonString());
+		assertEquals(original.getNotes(), copy.getNotes());
+
+		// Commands on the original do not reach the copy.
+		original.update(new Command(CommandValue.REOPEN, null, null, null, null, "back"));
+		assertEquals(ManagedIncident.IN_PROGRESS_NAME, original.getState().getStateName());
+		assertEquals(ManagedIncident.ON_HOLD_NAME, copy.getState().getStateName());
+		assertEquals(3, copy.getNotes().size());
+
+		// The copy moves through its own states.
+		copy.update(new Command(CommandValue.REOPEN, null, null, null, null, "back"));
+		assertEquals(ManagedIncident.IN_PROGRESS_NAME, copy.getState().getStateName());
+	}
+
+	/**
+	 * Tests that the version grows with each command and is kept by copies.
+	 */
+	@Test
+	public void testGetVersion() {
+		ManagedIncident first = new ManagedIncident(3, "caller", Category.NETWORK, Priority.URGENT, "name", "note");
+		ManagedIncident second = new ManagedIncident(4, "caller", Category.NETWORK, Priority.URGENT, "name", "note");
+		assertTrue(second.getVersion() > first.getVersion());
+
+		long mark = ManagedIncident.nextVersion();
+		first.update(new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "taken"));
+		assertTrue(first.getVersion() > mark);
+		assertTrue(second.getVersion() < mark);
+		assertEquals(first.getVersion(), new ManagedIncident(first).getVersion());
+
+		// A command that is not allowed does not change the version.
+		long version = second.getVersion();
+		try {
+			second.update(new Command(CommandValue.REOPEN, null, null, null, null, "back"));
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertEquals(version, second.getVersion());
+		}
+	}
+
+	/**
+	 * Tests that notes kept in an OffHeapNoteStore read back the same as notes on
+	 * the heap.
+	 */
+	@Test
+	public void testOffHeapNotes() {
+		OffHeapNoteStore store = new OffHeapNoteStore();
+		ManagedIncident.setDefaultNoteStore(store);
+		ManagedIncident incident;
+		try {
+			incident = new ManagedIncident("caller", Category.INQUIRY, Priority.HIGH, "name", "workNote");
+		} finally {
+			ManagedIncident.setDefaultNoteStore(null);
+		}
+		assertSame(store, incident.getNoteStore());
+		incident.update(new Command(CommandValue.INVESTIGATE, "zmei", null, null, null, "note"));
+		ManagedIncident copy = new ManagedIncident(incident);
+		for (int i = 0; i < 5; i++) {
+			incident.update(new Command(CommandValue.HOLD, null, OnHoldReason.AWAITING_CALLER, null, null, "hold" + i));
+			incident.update(new Command(CommandValue.REOPEN, null, null, null, null, "back" + i));
+		}
+
+		assertEquals(12, incident.getNotes().size());
+		assertEquals("hold4", incident.getNotes().get(10));
+		assertEquals(12, store.getNoteCount());
+		assertEquals(Arrays.asList("workNote", "note"), copy.getNotes());
+		assertEquals("workNote" + '\n' + "-------" + '\n' + "note" + '\n' + "-------" + '\n', copy.getNotesString());
+		assertEquals(incident.getNotes(), incident.getXMLIncident().getWorkNotes().getNotes());
+
+		// Incidents made after the store is turned off keep notes on the heap.
+		assertNull(new ManagedIncident("caller", Category.INQUIRY, Priority.HIGH, "name", "workNote").getNoteStore());
+	}
+
+	/**
+	 * Tests that callers, owners and notes repeated across incidents are shared
+	 * through the string pool.
+	 */
+	@Test
+	public void testStringPool() {
+		StringPool pool = ManagedIncident.getStringPool();
+		long saved = pool.getSavedBytes();
+		ManagedIncident first = new ManagedIncident(new String("sesmith5"), Category.INQUIRY, Priority.HIGH, "name",
+				new String("Hard drive resources are under investigation."));
+		ManagedIncident second = new ManagedIncident(new String("sesmith5"), Category.INQUIRY, Priority.HIGH, "name",
+				new String("Hard drive resources are under investigation."));
+		assertSame(first.getCaller(), second.getCaller());
+		assertSame(first.getNotes().get(0), second.getNotes().get(0));
+
+		first.update(new Command(CommandValue.INVESTIGATE, new String("cjgurley"), null, null, null, "note"));
+		second.update(new Command(CommandValue.INVESTIGATE, new String("cjgurley"), null, null, null, "note"));
+		assertSame(first.getOwner(), second.getOwner());
+		assertTrue(pool.getSavedBytes() > saved);
+	}
+
+	/**
+	 * Tests that a rejected command that clears the owner changes the version,
+	 * and one that changes nothing does not.
+	 */
+	@Test
+	public void testRejectedCommandVersion() {
+		ManagedIncident incident = new ManagedIncident("caller", Category.INQUIRY, Priority.HIGH, "name", "workNote");
+		incident.update(new Command(CommandValue.INVESTIGATE, "zmei", null, null, null, "note"));
+		incident.update(new Command(CommandValue.CANCEL, null, null, null, CancellationCode.DUPLICATE, "note"));
+		assertEquals("zmei", incident.getOwner());
+		long version = incident.getVersion();
+		try {
+			incident.update(new Command(CommandValue.REOPEN, null, null, null, null, "note"));
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertNull(incident.getOwner());
+			assertTrue(incident.getVersion() > version);
+		}
+		version = incident.getVersion();
+		try {
+			incident.update(new Command(CommandValue.REOPEN, null, null, null, null, "note"));
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertEquals(version, incident.getVersion());
+		}
+	}
+
+	/**
+	 * Tests that the notes can be read while another thread adds to them, and
+	 * that the list returned is a copy.
+	 * 
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test
+	public void testNotesReadWhileAdded() throws InterruptedException {
+		final ManagedIncident incident = new ManagedIncident("caller", Category.INQUIRY, Priority.HIGH, "name",
+				"workNote");
+		incident.update(new Command(CommandValue.INVESTIGATE, "zmei", null, null, null, "note"));
+		final RuntimeException[] failure = new RuntimeException[1];
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < 2000; i++) {
+						incident.getNotesString();
+						for (String note : incident.getNotes()) {
+							note.length();
+						}
+					}
+				} catch (RuntimeException e) {
+					failure[0] = e;
+				}
+			}
+		});
+		reader.start();
+		for (int i = 0; i < 500; i++) {
+			incident.update(new Command(CommandValue.HOLD, null, OnHoldReason.AWAITING_CALLER, null, null, "hold"));
+			incident.update(new Command(CommandValue.REOPEN, null, null, null, null, "back"));
+		}
+		reader.join();
+		assertNull(failure[0]);
+		assertEquals(1002, incident.getNotes().size());
+
+		incident.getNotes().clear();
+		assertEquals(1002, incident.getNotes().size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.incident.ManagedIncident#getStateIndex()}.
+	 */
+	@Test
+	public void testStateIndex() {
+		String[] names = { ManagedIncident.NEW_NAME, ManagedIncident.IN_PROGRESS_NAME, ManagedIncident.ON_HOLD_NAME,
+				ManagedIncident.RESOLVED_NAME, ManagedIncident.CLOSED_NAME, ManagedIncident.CANCELED_NAME };
+		assertEquals(names.length, ManagedIncident.STATE_COUNT);
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(i, ManagedIncident.getStateIndex(names[i]));
+			assertEquals(names[i], ManagedIncident.getStateName(i));
+		}
+
+		ManagedIncident incident = new ManagedIncident("caller", Category.INQUIRY, Priority.HIGH, "name", "workNote");
+		assertEquals(0, incident.getStateIndex());
+		incident.update(new Command(CommandValue.INVESTIGATE, "zmei", null, null, null, "note"));
+		assertEquals(ManagedIncident.getStateIndex(ManagedIncident.IN_PROGRESS_NAME), incident.getStateIndex());
+
+		try {
+			ManagedIncident.getStateIndex("Unknown");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid State String", e.getMessage());
+		}
+		try {
+			ManagedIncident.getStateName(ManagedIncident.STATE_COUNT);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid state index 6.", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a state only updates an incident in that state, and that an
+	 * update through the state changes the version like update() does.
+	 */
+	@Test
+	public void testUpdateStateOtherState() {
+		ManagedIncident fresh = new ManagedIncident("caller", Category.INQUIRY, Priority.HIGH, "name", "workNote");
+		ManagedIncident taken = new ManagedIncident("caller", Category.INQUIRY, Priority.HIGH, "name", "workNote");
+		taken.update(new Command(CommandValue.INVESTIGATE, "zmei", null, null, null, "note"));
+		long version = taken.getVersion();
+		try {
+			fresh.getState().updateState(taken, new Command(CommandValue.INVESTIGATE, "other", null, null, null,
+					"note"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("The incident is not in the New state.", e.getMessage());
+			assertEquals("zmei", taken.getOwner());
+			assertEquals(version, taken.getVersion());
+		}
+
+		taken.getState().updateState(taken,
+				new Command(CommandValue.HOLD, null, OnHoldReason.AWAITING_CALLER, null, null, "hold"));
+		assertEquals(ManagedIncident.ON_HOLD_NAME, taken.getState().getStateName());
+		assertTrue(taken.getVersion() > version);
+	}
 }
@@ -0,0 +1,93 @@
+package edu.ncsu.csc216.incident_management.model.incident;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests OffHeapNoteStore class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class OffHeapNoteStoreTest {
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.incident.OffHeapNoteStore#store(java.lang.String)}.
+	 */
+	@Test
+	public void testStoreAndRead() {
+		OffHeapNoteStore store = new OffHeapNoteStore(16);
+		long first = store.store("first");
+		long empty = store.store("");
+		long accented = store.store("caf\u00e9 \u2013 r\u00e9sum\u00e9");
+		StringBuilder longNote = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			longNote.append(i);
+		}
+		long big = store.store(longNote.toString());
+
+		assertEquals("first", store.read(first));
+		assertEquals("", store.read(empty));
+		assertEquals("caf\u00e9 \u2013 r\u00e9sum\u00e9", store.read(accented));
+		assertEquals(longNote.toString(), store.read(big));
+
+		assertEquals(4, store.getNoteCount());
+		assertTrue(store.getUsedBytes() >= 4 * 4 + 5 + longNote.length());
+		assertTrue(store.getCapacityBytes() >= store.getUsedBytes());
+
+		try {
+			store.store(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("A note is required.", e.getMessage());
+		}
+		try {
+			store.read(99L << 32);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(4, store.getNoteCount());
+		}
+		try {
+			new OffHeapNoteStore(2);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Tests that notes stored from several threads are all read back.
+	 *
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test
+	public void testConcurrentStore() throws InterruptedException {
+		final OffHeapNoteStore store = new OffHeapNoteStore(256);
+		final long[][] handles = new long[4][500];
+		Thread[] threads = new Thread[handles.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < handles[thread].length; i++) {
+						handles[thread][i] = store.store("note " + thread + " " + i);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (int t = 0; t < handles.length; t++) {
+			for (int i = 0; i < handles[t].length; i++) {
+				assertEquals("note " + t + " " + i, store.read(handles[t][i]));
+			}
+		}
+		assertEquals(2000, store.getNoteCount());
+	}
+}
@@ -0,0 +1,66 @@
+package edu.ncsu.csc216.incident_management.model.incident;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests StringPool class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class StringPoolTest {
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.incident.StringPool#intern(java.lang.String)}.
+	 */
+	@Test
+	public void testIntern() {
+		StringPool pool = new StringPool(100);
+		assertEquals(128, pool.getCapacity());
+		assertNull(pool.intern(null));
+
+		String first = new String("sesmith5");
+		String second = new String("sesmith5");
+		assertSame(first, pool.intern(first));
+		assertSame(first, pool.intern(second));
+		assertSame(first, pool.intern(first));
+		assertEquals(3, pool.getLookups());
+		assertEquals(1, pool.getHits());
+		assertEquals(StringPool.sizeOf(second), pool.getSavedBytes());
+		assertEquals(48, StringPool.sizeOf("sesmith5"));
+		assertEquals(24 + 16 + 8, StringPool.sizeOf("\u00e9\u00e9\u00e9\u00e9"));
+		assertEquals(24 + 24, StringPool.sizeOf("\u2013\u2013\u2013\u2013"));
+
+		pool.clear();
+		assertEquals(0, pool.getLookups());
+		assertEquals(0, pool.getSavedBytes());
+		assertSame(second, pool.intern(second));
+
+		try {
+			new StringPool(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Tests that the pool never holds more strings than its slots.
+	 */
+	@Test
+	public void testBounded() {
+		StringPool pool = new StringPool(1);
+		String a = new String("a");
+		String b = new String("b");
+		assertSame(a, pool.intern(a));
+		// b takes the only slot, so a later copy of a is not shared.
+		assertSame(b, pool.intern(b));
+		String a2 = new String("a");
+		assertSame(a2, pool.intern(a2));
+		assertEquals(0, pool.getHits());
+	}
+}
@@ -0,0 +1,74 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident_management.model.command.Command.OnHoldReason;
+
+/**
+ * Tests BinaryEncoding class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class BinaryEncodingTest {
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.io.BinaryEncoding#writeString(java.io.DataOutput, java.lang.String)}.
+	 *
+	 * @throws IOException if the bytes cannot be read back
+	 */
+	@Test
+	public void testStrings() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BinaryEncoding.writeString(out, "caller");
+		BinaryEncoding.writeString(out, null);
+		BinaryEncoding.writeString(out, "");
+		BinaryEncoding.writeString(out, "caf\u00e9");
+		assertEquals(4 + 6 + 4 + 4 + 4 + 5, bytes.size());
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals("caller", BinaryEncoding.readString(in));
+		assertNull(BinaryEncoding.readString(in));
+		assertEquals("", BinaryEncoding.readString(in));
+		assertEquals("caf\u00e9", BinaryEncoding.readString(in));
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.io.BinaryEncoding#valueOf(java.lang.Object[], byte, boolean)}.
+	 *
+	 * @throws IOException if a valid ordinal is rejected
+	 */
+	@Test
+	public void testOrdinals() throws IOException {
+		OnHoldReason[] values = OnHoldReason.values();
+		assertEquals(BinaryEncoding.NO_ORDINAL, BinaryEncoding.ordinal(null));
+		for (OnHoldReason value : values) {
+			assertSame(value, BinaryEncoding.valueOf(values, (byte) BinaryEncoding.ordinal(value), false));
+		}
+		assertNull(BinaryEncoding.valueOf(values, BinaryEncoding.NO_ORDINAL, true));
+		try {
+			BinaryEncoding.valueOf(values, BinaryEncoding.NO_ORDINAL, false);
+			fail();
+		} catch (IOException e) {
+			assertEquals("Invalid ordinal -1.", e.getMessage());
+		}
+		try {
+			BinaryEncoding.valueOf(values, (byte) values.length, true);
+			fail();
+		} catch (IOException e) {
+			assertEquals("Invalid ordinal " + values.length + ".", e.getMessage());
+		}
+	}
+}
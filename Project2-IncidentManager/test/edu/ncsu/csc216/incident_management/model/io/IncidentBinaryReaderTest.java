@@ -0,0 +1,120 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Tests IncidentBinaryReader class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentBinaryReaderTest {
+
+	/**
+	 * Tests reading single incidents through the index.
+	 */
+	@Test
+	public void testReadIncident() {
+		try {
+			ArrayList<ManagedIncident> original = new IncidentStreamReader("test-files/incident1.xml").readIncidents();
+			new IncidentBinaryWriter("test-files/binary_reader.bin").writeIncidents(original);
+			IncidentBinaryReader reader = new IncidentBinaryReader("test-files/binary_reader.bin");
+			for (ManagedIncident a : original) {
+				ManagedIncident b = reader.readIncident(a.getIncidentId());
+				assertNotNull(b);
+				assertEquals(a.getIncidentId(), b.getIncidentId());
+				assertEquals(a.getState().getStateName(), b.getState().getStateName());
+				assertEquals(a.getName(), b.getName());
+				assertEquals(a.getNotes(), b.getNotes());
+			}
+			assertNull(reader.readIncident(-5));
+			assertNull(reader.readIncident(Integer.MAX_VALUE));
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that an empty snapshot reads back with no incidents.
+	 */
+	@Test
+	public void testEmptySnapshot() {
+		try {
+			new IncidentBinaryWriter("test-files/binary_reader_empty.bin")
+					.writeIncidents(new ArrayList<ManagedIncident>());
+			IncidentBinaryReader reader = new IncidentBinaryReader("test-files/binary_reader_empty.bin");
+			assertEquals(0, reader.readIncidents().size());
+			assertNull(reader.readIncident(1));
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that files that are not snapshots, or are from a newer version, are
+	 * rejected.
+	 */
+	@Test
+	public void testInvalidFiles() {
+		assertRejected("test-files/incident1.xml");
+		assertRejected("test-files/no_such_snapshot.bin");
+
+		String newer = "test-files/binary_reader_newer.bin";
+		try {
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(newer));
+			out.writeInt(IncidentBinaryFormat.MAGIC);
+			out.writeShort(IncidentBinaryFormat.VERSION + 1);
+			out.writeShort(0);
+			out.writeInt(0);
+			out.close();
+		} catch (IOException e) {
+			fail(e.getMessage());
+		}
+		assertRejected(newer);
+
+		String cut = "test-files/binary_reader_cut.bin";
+		try {
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(cut));
+			out.writeInt(IncidentBinaryFormat.MAGIC);
+			out.writeShort(IncidentBinaryFormat.VERSION);
+			out.writeShort(0);
+			out.writeInt(3);
+			out.writeInt(1);
+			out.close();
+		} catch (IOException e) {
+			fail(e.getMessage());
+		}
+		assertRejected(cut);
+	}
+
+	/**
+	 * Checks that both ways of reading a file fail.
+	 *
+	 * @param fileName the file
+	 */
+	private static void assertRejected(String fileName) {
+		try {
+			new IncidentBinaryReader(fileName).readIncidents();
+			fail(fileName);
+		} catch (IncidentIOException e) {
+			assertNotNull(e.getMessage());
+		}
+		try {
+			new IncidentBinaryReader(fileName).readIncident(1);
+			fail(fileName);
+		} catch (IncidentIOException e) {
+			assertNotNull(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Tests IncidentBinaryWriter class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentBinaryWriterTest {
+
+	/**
+	 * Tests that an XML file converted to a snapshot and back to XML is the same
+	 * as the XML file saved directly.
+	 */
+	@Test
+	public void testRoundTripWithXml() {
+		try {
+			ArrayList<ManagedIncident> original = new IncidentStreamReader("test-files/incident1.xml").readIncidents();
+			new IncidentStreamWriter("test-files/binary_writer_direct.xml").writeIncidents(original);
+			new IncidentBinaryWriter("test-files/binary_writer.bin").writeIncidents(original);
+			ArrayList<ManagedIncident> copy = new IncidentBinaryReader("test-files/binary_writer.bin").readIncidents();
+			new IncidentStreamWriter("test-files/binary_writer_converted.xml").writeIncidents(copy);
+
+			assertEquals(original.size(), copy.size());
+			assertTrue(Arrays.equals(Files.readAllBytes(Paths.get("test-files/binary_writer_direct.xml")),
+					Files.readAllBytes(Paths.get("test-files/binary_writer_converted.xml"))));
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		} catch (IOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that text outside ASCII, line breaks and missing fields survive a
+	 * round trip.
+	 */
+	@Test
+	public void testWriteText() {
+		ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>();
+		incidents.add(new ManagedIncident(9, "caf\u00e9", ManagedIncident.Category.DATABASE,
+				ManagedIncident.Priority.HIGH, "\u65e5\u672c", "line one\nline two"));
+		try {
+			new IncidentBinaryWriter("test-files/binary_writer_text.bin").writeIncidents(incidents);
+			ArrayList<ManagedIncident> copy = new IncidentBinaryReader("test-files/binary_writer_text.bin")
+					.readIncidents();
+			assertEquals(1, copy.size());
+			assertEquals(9, copy.get(0).getIncidentId());
+			assertEquals("caf\u00e9", copy.get(0).getCaller());
+			assertEquals(ManagedIncident.Category.DATABASE, copy.get(0).getCategory());
+			assertEquals(ManagedIncident.Priority.HIGH, copy.get(0).getPriority());
+			assertEquals("\u65e5\u672c", copy.get(0).getName());
+			assertEquals("line one\nline two", copy.get(0).getNotes().get(0));
+			assertNull(copy.get(0).getOwner());
+			assertNull(copy.get(0).getChangeRequest());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a negative number of backups is rejected.
+	 */
+	@Test
+	public void testInvalidBackupCount() {
+		try {
+			new IncidentBinaryWriter("test-files/binary_writer.bin", -1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests IncidentCompression class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentCompressionTest {
+
+	/**
+	 * Tests which file names are written compressed.
+	 */
+	@Test
+	public void testIsCompressedName() {
+		assertTrue(IncidentCompression.isCompressedName("incidents.xml.gz"));
+		assertTrue(IncidentCompression.isCompressedName("INCIDENTS.XML.GZ"));
+		assertFalse(IncidentCompression.isCompressedName("incidents.xml"));
+		assertFalse(IncidentCompression.isCompressedName("gz"));
+		assertFalse(IncidentCompression.isCompressedName(null));
+	}
+
+	/**
+	 * Tests that compressed data is decompressed and anything else is passed
+	 * through unchanged.
+	 *
+	 * @throws IOException if a stream cannot be read
+	 */
+	@Test
+	public void testDecompress() throws IOException {
+		byte[] text = "<Incidents></Incidents>".getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = IncidentCompression.compress(bytes);
+		gzip.write(text);
+		gzip.finish();
+
+		assertArrayEquals(text, readAll(IncidentCompression
+				.decompress(new BufferedInputStream(new ByteArrayInputStream(bytes.toByteArray())))));
+		assertArrayEquals(text,
+				readAll(IncidentCompression.decompress(new BufferedInputStream(new ByteArrayInputStream(text)))));
+		assertEquals(0, readAll(IncidentCompression
+				.decompress(new BufferedInputStream(new ByteArrayInputStream(new byte[0])))).length);
+	}
+
+	/**
+	 * Reads a stream to its end.
+	 *
+	 * @param in the stream
+	 * @return the bytes read
+	 * @throws IOException if the stream cannot be read
+	 */
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+}
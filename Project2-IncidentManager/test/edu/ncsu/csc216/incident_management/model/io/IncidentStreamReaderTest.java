@@ -0,0 +1,171 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.command.Command;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+
+/**
+ * Tests IncidentStreamReader class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentStreamReaderTest {
+
+	/**
+	 * Tests reading a valid incident file.
+	 */
+	@Test
+	public void testReadIncidents() {
+		try {
+			ArrayList<ManagedIncident> incidents = new IncidentStreamReader("test-files/incident1.xml").readIncidents();
+			assertEquals(6, incidents.size());
+
+			ManagedIncident first = incidents.get(0);
+			assertEquals(1, first.getIncidentId());
+			assertEquals("sesmith5", first.getCaller());
+			assertEquals(Category.SOFTWARE, first.getCategory());
+			assertEquals(ManagedIncident.NEW_NAME, first.getState().getStateName());
+			assertEquals("Urgent", first.getPriorityString());
+			assertNull(first.getOwner());
+			assertEquals("Jenkins installation", first.getName());
+			assertEquals(1, first.getNotes().size());
+
+			ManagedIncident onHold = incidents.get(2);
+			assertEquals(ManagedIncident.ON_HOLD_NAME, onHold.getState().getStateName());
+			assertEquals(Command.OH_CHANGE, onHold.getOnHoldReasonString());
+			assertEquals(2, onHold.getNotes().size());
+
+			ManagedIncident canceled = incidents.get(5);
+			assertEquals(ManagedIncident.CANCELED_NAME, canceled.getState().getStateName());
+			assertEquals(Command.CC_NOT_AN_INCIDENT, canceled.getCancellationCodeString());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests reading an incident file with no incidents.
+	 */
+	@Test
+	public void testReadEmpty() {
+		try {
+			assertEquals(0, new IncidentStreamReader("test-files/exp_incident_empty.xml").readIncidents().size());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that every invalid incident file is rejected.
+	 */
+	@Test
+	public void testReadInvalid() {
+		String[] invalid = { "test-files/incident0.xml", "test-files/incident2.xml", "test-files/incident3.xml",
+				"test-files/incident4.xml", "test-files/incident5.xml", "test-files/incident6.xml",
+				"test-files/incident7.xml", "test-files/incident8.xml", "test-files/incident9.xml",
+				"test-files/incident10.xml", "test-files/incident11.xml", "test-files/incident12.xml",
+				"test-files/incident13.xml", "test-files/incident14.xml", "test-files/incident15.xml",
+				"test-files/incident16.xml", "test-files/incident17.xml", "test-files/incident18.xml",
+				"test-files/incident19.xml", "test-files/incident20.xml", "test-files/incident21.xml",
+				"test-files/incident22.xml", "test-files/incident23.xml", "test-files/incident24.xml" };
+		for (String fileName : invalid) {
+			try {
+				new IncidentStreamReader(fileName).readIncidents();
+				fail(fileName);
+			} catch (IncidentIOException e) {
+				assertNotNull(fileName);
+			}
+		}
+	}
+
+	/**
+	 * Tests that the first invalid incident stops a read by default, and that its
+	 * errors name the record and field.
+	 */
+	@Test
+	public void testFailFast() {
+		IncidentStreamReader reader = new IncidentStreamReader("test-files/incident_mixed.xml");
+		try {
+			reader.readIncidents();
+			fail();
+		} catch (IncidentIOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Record 1, incident 2, category"));
+		}
+		List<IncidentValidationError> errors = reader.getValidationErrors();
+		assertEquals(3, errors.size());
+		assertEquals(1, errors.get(0).getRecord());
+		assertEquals(2, errors.get(0).getIncidentId());
+		assertEquals("category", errors.get(0).getField());
+		assertEquals("\"Plumbing\" is not a valid value", errors.get(0).getReason());
+		assertEquals("owner", errors.get(1).getField());
+		assertEquals("is missing for state In Progress", errors.get(1).getReason());
+		assertEquals("name", errors.get(2).getField());
+	}
+
+	/**
+	 * Tests that every error in a file is reported and no incidents are returned.
+	 */
+	@Test
+	public void testCollectAll() {
+		IncidentStreamReader reader = new IncidentStreamReader("test-files/incident_mixed.xml");
+		reader.setValidationMode(IncidentStreamReader.ValidationMode.COLLECT_ALL);
+		try {
+			reader.readIncidents();
+			fail();
+		} catch (IncidentIOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("4 errors"));
+		}
+		List<IncidentValidationError> errors = reader.getValidationErrors();
+		assertEquals(4, errors.size());
+		IncidentValidationError badId = errors.get(3);
+		assertEquals(2, badId.getRecord());
+		assertEquals("id", badId.getField());
+		assertEquals("\"two\" is not a number", badId.getReason());
+		assertEquals("Record 2, incident 0, id: \"two\" is not a number", badId.toString());
+
+		try {
+			reader.setValidationMode(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("A validation mode is required.", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that invalid incidents are left out and the rest are returned.
+	 */
+	@Test
+	public void testSkipInvalid() {
+		IncidentStreamReader reader = new IncidentStreamReader("test-files/incident_mixed.xml");
+		reader.setValidationMode(IncidentStreamReader.ValidationMode.SKIP_INVALID);
+		try {
+			ArrayList<ManagedIncident> incidents = reader.readIncidents();
+			assertEquals(2, incidents.size());
+			assertEquals(1, incidents.get(0).getIncidentId());
+			assertEquals(4, incidents.get(1).getIncidentId());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+		assertEquals(4, reader.getValidationErrors().size());
+
+		// A file that cannot be read still fails.
+		reader = new IncidentStreamReader("test-files/incident0.xml");
+		reader.setValidationMode(IncidentStreamReader.ValidationMode.SKIP_INVALID);
+		try {
+			reader.readIncidents();
+			fail();
+		} catch (IncidentIOException e) {
+			assertNotNull(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Tests IncidentStreamWriter class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentStreamWriterTest {
+
+	/**
+	 * Tests that a written file reads back to the same incidents.
+	 */
+	@Test
+	public void testWriteIncidents() {
+		try {
+			ArrayList<ManagedIncident> original = new IncidentStreamReader("test-files/incident1.xml").readIncidents();
+			new IncidentStreamWriter("test-files/stream_writer_out.xml").writeIncidents(original);
+			ArrayList<ManagedIncident> copy = new IncidentStreamReader("test-files/stream_writer_out.xml").readIncidents();
+
+			assertEquals(original.size(), copy.size());
+			for (int i = 0; i < original.size(); i++) {
+				ManagedIncident a = original.get(i);
+				ManagedIncident b = copy.get(i);
+				assertEquals(a.getIncidentId(), b.getIncidentId());
+				assertEquals(a.getCaller(), b.getCaller());
+				assertEquals(a.getCategory(), b.getCategory());
+				assertEquals(a.getState().getStateName(), b.getState().getStateName());
+				assertEquals(a.getPriorityString(), b.getPriorityString());
+				assertEquals(a.getOwner(), b.getOwner());
+				assertEquals(a.getName(), b.getName());
+				assertEquals(a.getOnHoldReasonString(), b.getOnHoldReasonString());
+				assertEquals(a.getChangeRequest(), b.getChangeRequest());
+				assertEquals(a.getResolutionCodeString(), b.getResolutionCodeString());
+				assertEquals(a.getCancellationCodeString(), b.getCancellationCodeString());
+				assertEquals(a.getNotes(), b.getNotes());
+			}
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a file named .gz is written compressed and reads back, and that
+	 * a compressed file is recognized whatever its name.
+	 */
+	@Test
+	public void testWriteCompressed() {
+		String compressed = "test-files/stream_writer_out.xml.gz";
+		String plain = "test-files/stream_writer_plain.xml";
+		String renamed = "test-files/stream_writer_renamed.xml";
+		try {
+			ArrayList<ManagedIncident> original = incidentsNamed(200);
+			new IncidentStreamWriter(compressed).writeIncidents(original);
+			new IncidentStreamWriter(plain).writeIncidents(original);
+			assertTrue(new File(compressed).length() * 4 < new File(plain).length());
+
+			FileInputStream in = new FileInputStream(compressed);
+			try {
+				assertTrue(IncidentCompression.isCompressed(in.read(), in.read()));
+			} finally {
+				in.close();
+			}
+			assertEquals(200, new IncidentStreamReader(compressed).readIncidents().size());
+
+			Files.copy(Paths.get(compressed), Paths.get(renamed), StandardCopyOption.REPLACE_EXISTING);
+			ArrayList<ManagedIncident> copy = new IncidentStreamReader(renamed).readIncidents();
+			assertEquals(200, copy.size());
+			assertEquals(original.get(199).getName(), copy.get(199).getName());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		} catch (IOException e) {
+			fail(e.getMessage());
+		} finally {
+			new File(compressed).delete();
+			new File(plain).delete();
+			new File(renamed).delete();
+		}
+	}
+
+	/**
+	 * Tests that text needing escapes survives a round trip.
+	 */
+	@Test
+	public void testWriteEscapedText() {
+		ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>();
+		incidents.add(new ManagedIncident(7, "a<b>&c", ManagedIncident.Category.NETWORK,
+				ManagedIncident.Priority.LOW, "\"quoted\" & <tagged>", "note with ]]> inside"));
+		try {
+			new IncidentStreamWriter("test-files/stream_writer_escaped.xml").writeIncidents(incidents);
+			ArrayList<ManagedIncident> copy = new IncidentStreamReader("test-files/stream_writer_escaped.xml")
+					.readIncidents();
+			assertEquals(1, copy.size());
+			assertEquals(7, copy.get(0).getIncidentId());
+			assertEquals("a<b>&c", copy.get(0).getCaller());
+			assertEquals("\"quoted\" & <tagged>", copy.get(0).getName());
+			assertEquals("note with ]]> inside", copy.get(0).getNotes().get(0));
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a save replaces the file and rotates the backups.
+	 */
+	@Test
+	public void testBackups() {
+		String fileName = "test-files/stream_writer_backup.xml";
+		IncidentStreamWriter writer = new IncidentStreamWriter(fileName, 2);
+		try {
+			for (int count = 1; count <= 3; count++) {
+				writer.writeIncidents(incidentsNamed(count));
+			}
+			assertEquals(3, new IncidentStreamReader(fileName).readIncidents().size());
+			assertEquals(2, new IncidentStreamReader(fileName + ".bak").readIncidents().size());
+			assertEquals(1, new IncidentStreamReader(fileName + ".bak.2").readIncidents().size());
+
+			writer.writeIncidents(incidentsNamed(4));
+			assertEquals(4, new IncidentStreamReader(fileName).readIncidents().size());
+			assertEquals(3, new IncidentStreamReader(fileName + ".bak").readIncidents().size());
+			assertEquals(2, new IncidentStreamReader(fileName + ".bak.2").readIncidents().size());
+			assertFalse(new File(fileName + ".bak.3").exists());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+
+		File dir = new File("test-files");
+		for (String name : dir.list()) {
+			assertFalse(name, name.endsWith(".tmp"));
+		}
+	}
+
+	/**
+	 * Tests that a save keeps the permissions of the file it replaces.
+	 * 
+	 * @throws IOException if the permissions cannot be read or set
+	 */
+	@Test
+	public void testPermissionsKept() throws IOException {
+		String fileName = "test-files/stream_writer_permissions.xml";
+		Path path = Paths.get(fileName);
+		IncidentStreamWriter writer = new IncidentStreamWriter(fileName, 1);
+		try {
+			writer.writeIncidents(incidentsNamed(1));
+			if (Files.getFileAttributeView(path, PosixFileAttributeView.class) == null)
+				return;
+			Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+			Files.setPosixFilePermissions(path, permissions);
+			writer.writeIncidents(incidentsNamed(2));
+			assertEquals(permissions, Files.getPosixFilePermissions(path));
+			assertEquals(2, new IncidentStreamReader(fileName).readIncidents().size());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		} finally {
+			Files.deleteIfExists(path);
+			Files.deleteIfExists(Paths.get(fileName + ".bak"));
+		}
+	}
+
+	/**
+	 * Tests that a failed save leaves the existing file alone.
+	 */
+	@Test
+	public void testFailedSaveKeepsFile() {
+		String fileName = "test-files/stream_writer_keep.xml";
+		try {
+			new IncidentStreamWriter(fileName).writeIncidents(incidentsNamed(2));
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+		ArrayList<ManagedIncident> bad = incidentsNamed(1);
+		bad.add(null);
+		try {
+			new IncidentStreamWriter(fileName).writeIncidents(bad);
+			fail();
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		} catch (NullPointerException e) {
+			// The save is abandoned part way through.
+		}
+		try {
+			assertEquals(2, new IncidentStreamReader(fileName).readIncidents().size());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Builds a list of incidents for the backup tests.
+	 *
+	 * @param count the number of incidents
+	 * @return the incidents
+	 */
+	private static ArrayList<ManagedIncident> incidentsNamed(int count) {
+		ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>();
+		for (int i = 0; i < count; i++) {
+			incidents.add(new ManagedIncident(i, "caller", ManagedIncident.Category.INQUIRY,
+					ManagedIncident.Priority.MEDIUM, "incident " + i, "note"));
+		}
+		return incidents;
+	}
+
+	/**
+	 * Tests that the journal segment of a checkpoint snapshot is read back.
+	 */
+	@Test
+	public void testJournalSegment() {
+		String fileName = "test-files/stream_writer_segment.xml";
+		try {
+			IncidentStreamWriter writer = new IncidentStreamWriter(fileName);
+			writer.setJournalSegment(42);
+			writer.writeIncidents(incidentsNamed(2));
+			IncidentStreamReader reader = new IncidentStreamReader(fileName);
+			assertEquals(2, reader.readIncidents().size());
+			assertEquals(42, reader.getJournalSegment());
+
+			new IncidentStreamWriter(fileName).writeIncidents(incidentsNamed(1));
+			reader = new IncidentStreamReader(fileName);
+			assertEquals(1, reader.readIncidents().size());
+			assertEquals(0, reader.getJournalSegment());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that the base id and deleted ids of an incremental save read back.
+	 */
+	@Test
+	public void testBaseIdAndDeletedIds() {
+		String fileName = "test-files/stream_writer_delta.xml";
+		try {
+			IncidentStreamWriter writer = new IncidentStreamWriter(fileName);
+			writer.setBaseId(1234567890123L);
+			writer.setDeletedIds(new int[] { 3, 17, 40 });
+			writer.writeIncidents(incidentsNamed(1));
+			IncidentStreamReader reader = new IncidentStreamReader(fileName);
+			assertEquals(1, reader.readIncidents().size());
+			assertEquals(1234567890123L, reader.getBaseId());
+			assertArrayEquals(new int[] { 3, 17, 40 }, reader.getDeletedIds());
+
+			new IncidentStreamWriter(fileName).writeIncidents(incidentsNamed(1));
+			reader = new IncidentStreamReader(fileName);
+			reader.readIncidents();
+			assertEquals(0, reader.getBaseId());
+			assertEquals(0, reader.getDeletedIds().length);
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests writing to a file that cannot be created.
+	 */
+	@Test
+	public void testWriteInvalidFile() {
+		try {
+			new IncidentStreamWriter("#$%^/a/sdsa@#.txt").writeIncidents(new ArrayList<ManagedIncident>());
+			fail();
+		} catch (IncidentIOException e) {
+			assertNotNull(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests IncidentXmlContext class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentXmlContextTest {
+
+	/**
+	 * Tests that the input factory is shared.
+	 */
+	@Test
+	public void testGetInputFactory() {
+		assertNotNull(IncidentXmlContext.getInputFactory());
+		assertSame(IncidentXmlContext.getInputFactory(), IncidentXmlContext.getInputFactory());
+	}
+
+	/**
+	 * Tests that the output factory is shared.
+	 */
+	@Test
+	public void testGetOutputFactory() {
+		assertNotNull(IncidentXmlContext.getOutputFactory());
+		assertSame(IncidentXmlContext.getOutputFactory(), IncidentXmlContext.getOutputFactory());
+	}
+}
@@ -0,0 +1,73 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Tests MappedIncidentSnapshot class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class MappedIncidentSnapshotTest {
+
+	/**
+	 * Tests that the fields read from the mapped file match the incidents that
+	 * were written, in file order.
+	 */
+	@Test
+	public void testFields() {
+		try {
+			ArrayList<ManagedIncident> original = new IncidentStreamReader("test-files/incident1.xml").readIncidents();
+			new IncidentBinaryWriter("test-files/mapped_snapshot.bin").writeIncidents(original);
+			MappedIncidentSnapshot mapped = new IncidentBinaryReader("test-files/mapped_snapshot.bin").mapIncidents();
+
+			assertEquals(original.size(), mapped.size());
+			for (int i = 0; i < original.size(); i++) {
+				ManagedIncident a = original.get(i);
+				assertEquals(a.getIncidentId(), mapped.getIncidentId(i));
+				assertEquals(a.getCategory(), mapped.getCategory(i));
+				assertEquals(a.getCategoryString(), mapped.getCategoryString(i));
+				assertEquals(a.getState().getStateName(), mapped.getStateName(i));
+				assertEquals(a.getPriorityString(), mapped.getPriorityString(i));
+				assertEquals(a.getName(), mapped.getName(i));
+
+				ManagedIncident b = mapped.readIncident(i);
+				assertEquals(a.getIncidentId(), b.getIncidentId());
+				assertEquals(a.getOwner(), b.getOwner());
+				assertEquals(a.getOnHoldReasonString(), b.getOnHoldReasonString());
+				assertEquals(a.getResolutionCodeString(), b.getResolutionCodeString());
+				assertEquals(a.getNotes(), b.getNotes());
+				assertNotSame(b, mapped.readIncident(i));
+			}
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that files that are not snapshots are not mapped.
+	 */
+	@Test
+	public void testInvalidFiles() {
+		try {
+			new IncidentBinaryReader("test-files/incident1.xml").mapIncidents();
+			fail();
+		} catch (IncidentIOException e) {
+			assertNotNull(e.getMessage());
+		}
+		try {
+			new IncidentBinaryReader("test-files/no_such_snapshot.bin").mapIncidents();
+			fail();
+		} catch (IncidentIOException e) {
+			assertNotNull(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package edu.ncsu.csc216.incident_management.model.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+
+/**
+ * Tests ParallelIncidentReader class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class ParallelIncidentReaderTest {
+
+	/**
+	 * Tests that a small file reads the same as with IncidentStreamReader.
+	 */
+	@Test
+	public void testReadIncidents() {
+		try {
+			assertSameIncidents(new IncidentStreamReader("test-files/incident1.xml").readIncidents(),
+					new ParallelIncidentReader("test-files/incident1.xml").readIncidents());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a compressed file is read without being split.
+	 */
+	@Test
+	public void testReadCompressedFile() {
+		try {
+			ArrayList<ManagedIncident> original = new IncidentStreamReader("test-files/incident1.xml").readIncidents();
+			new IncidentStreamWriter("test-files/parallel_compressed.xml.gz").writeIncidents(original);
+			assertSameIncidents(original,
+					new ParallelIncidentReader("test-files/parallel_compressed.xml.gz").readIncidents());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that a file split into many runs reads back in file order.
+	 */
+	@Test
+	public void testReadLargeFile() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ArrayList<ManagedIncident> original = new IncidentStreamReader("test-files/incident1.xml").readIncidents();
+			ArrayList<ManagedIncident> many = new ArrayList<ManagedIncident>();
+			for (int i = 0; i < 1500; i++) {
+				ManagedIncident template = original.get(i % original.size());
+				many.add(new ManagedIncident(i + 1, template.getCaller(), template.getCategory(),
+						template.getState().getStateName(), template.getPriority(), template.getOwner(),
+						template.getName() + " " + i, template.getOnHoldReason(), template.getChangeRequest(),
+						template.getResolutionCode(), template.getCancellationCode(), template.getNotes()));
+			}
+			new IncidentStreamWriter("test-files/parallel_large.xml").writeIncidents(many);
+			assertSameIncidents(new IncidentStreamReader("test-files/parallel_large.xml").readIncidents(),
+					new ParallelIncidentReader("test-files/parallel_large.xml", pool).readIncidents());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that a file with a comment is still read, without splitting it.
+	 */
+	@Test
+	public void testReadFileWithComment() {
+		try {
+			write("test-files/parallel_comment.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Incidents>\n"
+					+ "<!-- <Incident> --><Incident><id>4</id><caller>c</caller><category>Network</category>"
+					+ "<state>New</state><priority>Low</priority><name>n</name><work_notes><note>x</note>"
+					+ "</work_notes></Incident>\n</Incidents>\n");
+			ArrayList<ManagedIncident> incidents = new ParallelIncidentReader("test-files/parallel_comment.xml")
+					.readIncidents();
+			assertEquals(1, incidents.size());
+			assertEquals(4, incidents.get(0).getIncidentId());
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that invalid files, invalid incidents and repeated ids are rejected.
+	 */
+	@Test
+	public void testInvalidFiles() {
+		String incident = "<Incident><id>4</id><caller>c</caller><category>Network</category>"
+				+ "<state>New</state><priority>Low</priority><name>n</name><work_notes><note>x</note>"
+				+ "</work_notes></Incident>\n";
+		write("test-files/parallel_duplicate.xml", "<Incidents>\n" + incident + incident + "</Incidents>\n");
+		assertRejected("test-files/parallel_duplicate.xml");
+
+		write("test-files/parallel_invalid.xml",
+				"<Incidents>\n" + incident + incident.replace("<id>4</id>", "<id>5</id>").replace("New", "Old")
+						+ "</Incidents>\n");
+		assertRejected("test-files/parallel_invalid.xml");
+
+		write("test-files/parallel_unclosed.xml", "<Incidents>\n" + incident);
+		assertRejected("test-files/parallel_unclosed.xml");
+
+		write("test-files/parallel_bad_prolog.xml", "<Other>\n" + incident + "</Incidents>\n");
+		assertRejected("test-files/parallel_bad_prolog.xml");
+
+		assertRejected("test-files/incident-1.xml");
+	}
+
+	/**
+	 * Checks that a file is rejected.
+	 *
+	 * @param fileName the file
+	 */
+	private static void assertRejected(String fileName) {
+		try {
+			new ParallelIncidentReader(fileName).readIncidents();
+			fail(fileName);
+		} catch (IncidentIOException e) {
+			assertNotNull(e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes a test file.
+	 *
+	 * @param fileName the file
+	 * @param contents the contents
+	 */
+	private static void write(String fileName, String contents) {
+		try {
+			Files.write(Paths.get(fileName), contents.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * Checks that two lists hold the same incidents in the same order.
+	 *
+	 * @param expected the expected incidents
+	 * @param actual   the actual incidents
+	 */
+	private static void assertSameIncidents(ArrayList<ManagedIncident> expected, ArrayList<ManagedIncident> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ManagedIncident a = expected.get(i);
+			ManagedIncident b = actual.get(i);
+			assertEquals(a.getIncidentId(), b.getIncidentId());
+			assertEquals(a.getCaller(), b.getCaller());
+			assertEquals(a.getCategory(), b.getCategory());
+			assertEquals(a.getState().getStateName(), b.getState().getStateName());
+			assertEquals(a.getPriorityString(), b.getPriorityString());
+			assertEquals(a.getOwner(), b.getOwner());
+			assertEquals(a.getName(), b.getName());
+			assertEquals(a.getOnHoldReasonString(), b.getOnHoldReasonString());
+			assertEquals(a.getChangeRequest(), b.getChangeRequest());
+			assertEquals(a.getResolutionCodeString(), b.getResolutionCodeString());
+			assertEquals(a.getCancellationCodeString(), b.getCancellationCodeString());
+			assertEquals(a.getNotes(), b.getNotes());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.io.ParallelIncidentReader#isMappable(long)}.
+	 * A file over 2 GB is streamed instead of mapped.
+	 */
+	@Test
+	public void testIsMappable() {
+		assertTrue(ParallelIncidentReader.isMappable(0));
+		assertTrue(ParallelIncidentReader.isMappable(Integer.MAX_VALUE));
+		assertFalse(ParallelIncidentReader.isMappable(Integer.MAX_VALUE + 1L));
+		assertFalse(ParallelIncidentReader.isMappable(5L * 1024 * 1024 * 1024));
+	}
+}
@@ -0,0 +1,168 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident_management.model.command.Command;
+import edu.ncsu.csc216.incident_management.model.command.Command.CancellationCode;
+import edu.ncsu.csc216.incident_management.model.command.Command.CommandValue;
+import edu.ncsu.csc216.incident_management.model.command.Command.OnHoldReason;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
+
+/**
+ * Tests ColumnarIncidentStore class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class ColumnarIncidentStoreTest {
+
+	/**
+	 * Builds a store of 40 incidents in a mix of categories, priorities and
+	 * states, so the columns grow past their first size.
+	 *
+	 * @param incidents the list to add the incidents to, too
+	 * @return the store
+	 */
+	private static ColumnarIncidentStore build(ArrayList<ManagedIncident> incidents) {
+		Category[] categories = Category.values();
+		Priority[] priorities = Priority.values();
+		for (int i = 0; i < 40; i++) {
+			ManagedIncident incident = new ManagedIncident(i + 1, "caller" + (i % 3), categories[i % categories.length],
+					priorities[i % priorities.length], "name" + i, "note" + i);
+			if (i % 4 == 1) {
+				incident.update(new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "investigating"));
+			} else if (i % 4 == 2) {
+				incident.update(new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "investigating"));
+				incident.update(
+						new Command(CommandValue.HOLD, null, OnHoldReason.AWAITING_CALLER, null, null, "waiting"));
+			} else if (i % 4 == 3) {
+				incident.update(
+						new Command(CommandValue.CANCEL, null, null, null, CancellationCode.DUPLICATE, "duplicate"));
+			}
+			incidents.add(incident);
+		}
+		return new ColumnarIncidentStore(incidents);
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.ColumnarIncidentStore#getIncident(int)}.
+	 */
+	@Test
+	public void testGetIncident() {
+		ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>();
+		ColumnarIncidentStore store = build(incidents);
+		assertEquals(40, store.size());
+		for (int row = 0; row < incidents.size(); row++) {
+			ManagedIncident expected = incidents.get(row);
+			ManagedIncident actual = store.getIncident(row);
+			assertEquals(expected.getIncidentId(), actual.getIncidentId());
+			assertEquals(expected.getCaller(), actual.getCaller());
+			assertEquals(expected.getCategory(), actual.getCategory());
+			assertEquals(expected.getState().getStateName(), actual.getState().getStateName());
+			assertEquals(expected.getPriority(), actual.getPriority());
+			assertEquals(expected.getOwner(), actual.getOwner());
+			assertEquals(expected.getName(), actual.getName());
+			assertEquals(expected.getOnHoldReason(), actual.getOnHoldReason());
+			assertEquals(expected.getChangeRequest(), actual.getChangeRequest());
+			assertEquals(expected.getResolutionCode(), actual.getResolutionCode());
+			assertEquals(expected.getCancellationCode(), actual.getCancellationCode());
+			assertEquals(expected.getNotes(), actual.getNotes());
+		}
+
+		// Three callers and one owner are stored once each.
+		assertTrue(store.getPooledStringCount() < 40 * 3);
+
+		// Changing the source does not change the store.
+		incidents.get(0).update(new Command(CommandValue.INVESTIGATE, "other", null, null, null, "later"));
+		assertEquals(ManagedIncident.NEW_NAME, store.getStateName(0));
+		assertNull(store.getIncident(0).getOwner());
+
+		try {
+			store.getIncident(40);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertEquals("Row 40 is not in the store.", e.getMessage());
+		}
+		try {
+			store.add(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(40, store.size());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.ColumnarIncidentStore#countByState()}.
+	 */
+	@Test
+	public void testCounts() {
+		ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>();
+		ColumnarIncidentStore store = build(incidents);
+
+		int[] states = store.countByState();
+		assertArrayEquals(new int[] { 10, 10, 10, 0, 0, 10 }, states);
+
+		int[] categories = store.countByCategory();
+		int[] priorities = store.countByPriority();
+		for (ManagedIncident incident : incidents) {
+			categories[incident.getCategory().ordinal()]--;
+			priorities[incident.getPriority().ordinal()]--;
+		}
+		assertArrayEquals(new int[categories.length], categories);
+		assertArrayEquals(new int[priorities.length], priorities);
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.ColumnarIncidentStore#findByState(java.lang.String)}.
+	 */
+	@Test
+	public void testFind() {
+		ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>();
+		ColumnarIncidentStore store = build(incidents);
+
+		int[] onHold = store.findByState(ManagedIncident.ON_HOLD_NAME);
+		assertEquals(10, onHold.length);
+		for (int i = 0; i < onHold.length; i++) {
+			assertEquals(4 * i + 2, onHold[i]);
+			assertEquals(ManagedIncident.ON_HOLD_NAME, store.getStateName(onHold[i]));
+		}
+		assertEquals(0, store.findByState(ManagedIncident.CLOSED_NAME).length);
+
+		Category category = incidents.get(0).getCategory();
+		for (int row : store.findByCategory(category)) {
+			assertEquals(category, store.getCategory(row));
+		}
+		Priority priority = incidents.get(0).getPriority();
+		for (int row : store.findByPriority(priority)) {
+			assertEquals(priority, store.getPriority(row));
+		}
+
+		String[][] table = store.getTableRows(new int[] { 0, 2 });
+		assertArrayEquals(new String[] { "1", incidents.get(0).getCategoryString(), ManagedIncident.NEW_NAME,
+				incidents.get(0).getPriorityString(), "name0" }, table[0]);
+		assertEquals(ManagedIncident.ON_HOLD_NAME, table[1][2]);
+
+		try {
+			store.findByState("Unknown");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid State String", e.getMessage());
+		}
+		try {
+			store.findByCategory(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,347 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident_management.model.command.Command;
+import edu.ncsu.csc216.incident_management.model.command.Command.CancellationCode;
+import edu.ncsu.csc216.incident_management.model.command.Command.CommandValue;
+import edu.ncsu.csc216.incident_management.model.command.Command.OnHoldReason;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
+
+/**
+ * Tests CommandJournal class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class CommandJournalTest {
+
+	/** Journal file used by the tests */
+	private static final String JOURNAL = "test-files/command_journal_test.log";
+
+	/**
+	 * Starts each test without a journal.
+	 */
+	@Before
+	public void setUp() {
+		deleteSegments();
+	}
+
+	/**
+	 * Removes the journal's segments.
+	 */
+	@After
+	public void tearDown() {
+		deleteSegments();
+	}
+
+	/**
+	 * Deletes every segment of the test journal.
+	 */
+	private static void deleteSegments() {
+		File journal = new File(JOURNAL);
+		for (File file : journal.getAbsoluteFile().getParentFile().listFiles()) {
+			if (file.getName().startsWith(journal.getName()))
+				file.delete();
+		}
+	}
+
+	/**
+	 * Tests that adds, commands and deletes are replayed in order.
+	 * 
+	 * @throws IOException if the journal cannot be used
+	 */
+	@Test
+	public void testReplay() throws IOException {
+		CommandJournal journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.setJournal(journal);
+		int first = list.addIncident("caller1", Category.NETWORK, Priority.HIGH, "Router down", "note 1");
+		int second = list.addIncident("caller2", Category.DATABASE, Priority.LOW, "Slow query", "note 2");
+		int third = list.addIncident("caller3", Category.SOFTWARE, Priority.URGENT, "Crash", "note 3");
+		list.executeCommand(first, new Command(CommandValue.INVESTIGATE, "owner1", null, null, null, "assigned"));
+		list.executeCommand(first,
+				new Command(CommandValue.HOLD, null, OnHoldReason.AWAITING_VENDOR, null, null, "waiting"));
+		list.deleteIncidentById(second);
+		journal.close();
+
+		journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList replayed = journal.replay(new ManagedIncidentList());
+		journal.close();
+
+		assertEquals(2, replayed.size());
+		assertNull(replayed.getIncidentById(second));
+		ManagedIncident incident = replayed.getIncidentById(first);
+		assertEquals(ManagedIncident.ON_HOLD_NAME, incident.getState().getStateName());
+		assertEquals("owner1", incident.getOwner());
+		assertEquals(Command.OH_VENDOR, incident.getOnHoldReasonString());
+		assertEquals(3, incident.getNotes().size());
+		assertEquals("Crash", replayed.getIncidentById(third).getName());
+		assertEquals(third + 1, replayed.getNextIncidentId());
+	}
+
+	/**
+	 * Tests that a command rejected after clearing the owner is journaled, so the
+	 * owner stays cleared after replay.
+	 * 
+	 * @throws IOException if the journal cannot be used
+	 */
+	@Test
+	public void testRejectedCommandReplayed() throws IOException {
+		CommandJournal journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.setJournal(journal);
+		int id = list.addIncident("caller1", Category.NETWORK, Priority.HIGH, "Router down", "note 1");
+		list.executeCommand(id, new Command(CommandValue.INVESTIGATE, "owner1", null, null, null, "assigned"));
+		list.executeCommand(id, new Command(CommandValue.CANCEL, null, null, null, CancellationCode.DUPLICATE, "dup"));
+		assertEquals("owner1", list.getIncidentById(id).getOwner());
+		try {
+			list.executeCommand(id, new Command(CommandValue.REOPEN, null, null, null, null, "again"));
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertNull(list.getIncidentById(id).getOwner());
+		}
+		journal.close();
+
+		journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList replayed = journal.replay(new ManagedIncidentList());
+		journal.close();
+		assertEquals(ManagedIncident.CANCELED_NAME, replayed.getIncidentById(id).getState().getStateName());
+		assertNull(replayed.getIncidentById(id).getOwner());
+	}
+
+	/**
+	 * Tests that a command that replays differently from how it ran fails the
+	 * replay instead of being skipped.
+	 * 
+	 * @throws IOException if the journal cannot be used
+	 */
+	@Test
+	public void testReplayDivergence() throws IOException {
+		ManagedIncidentList list = new ManagedIncidentList();
+		int id = list.addIncident("caller1", Category.NETWORK, Priority.HIGH, "Router down", "note 1");
+		CommandJournal journal = new CommandJournal(JOURNAL);
+		list.setJournal(journal);
+		list.executeCommand(id, new Command(CommandValue.INVESTIGATE, "owner1", null, null, null, "assigned"));
+		journal.close();
+
+		ArrayList<ManagedIncident> canceled = new ArrayList<ManagedIncident>();
+		canceled.add(new ManagedIncident(id, "caller1", Category.NETWORK, ManagedIncident.CANCELED_NAME,
+				Priority.HIGH, null, "Router down", null, null, null, CancellationCode.DUPLICATE,
+				Arrays.asList("note 1")));
+		ManagedIncidentList snapshot = new ManagedIncidentList();
+		snapshot.addManagedIncidents(canceled);
+		journal = new CommandJournal(JOURNAL);
+		try {
+			journal.replay(snapshot);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("incident " + id));
+		} finally {
+			journal.close();
+		}
+	}
+
+	/**
+	 * Tests that a torn record at the end of the journal is cut off.
+	 * 
+	 * @throws IOException if the journal cannot be used
+	 */
+	@Test
+	public void testTornRecord() throws IOException {
+		CommandJournal journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.setJournal(journal);
+		list.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "Question", "note");
+		journal.close();
+		long intact = new File(JOURNAL + ".1").length();
+
+		FileOutputStream out = new FileOutputStream(JOURNAL + ".1", true);
+		out.write(new byte[] { 0, 0, 0, 40, 1, 2, 3 });
+		out.close();
+
+		journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList replayed = journal.replay(new ManagedIncidentList());
+		assertEquals(1, replayed.size());
+		assertEquals(intact, new File(JOURNAL + ".1").length());
+
+		// New records go after the last intact one.
+		replayed.setJournal(journal);
+		replayed.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "Another", "note");
+		journal.close();
+		journal = new CommandJournal(JOURNAL);
+		assertEquals(2, journal.replay(new ManagedIncidentList()).size());
+		journal.close();
+	}
+
+	/**
+	 * Tests that a CLEAR record drops everything before it.
+	 * 
+	 * @throws IOException if the journal cannot be used
+	 */
+	@Test
+	public void testClear() throws IOException {
+		CommandJournal journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.setJournal(journal);
+		list.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "Old", "note");
+		journal.clear();
+		ManagedIncidentList fresh = new ManagedIncidentList();
+		fresh.setJournal(journal);
+		fresh.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "New", "note");
+		journal.close();
+
+		journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList replayed = journal.replay(new ManagedIncidentList());
+		journal.close();
+		assertEquals(1, replayed.size());
+		assertEquals("New", replayed.getIncidentById(0).getName());
+	}
+
+	/**
+	 * Tests that rolling starts a new segment and that discarding the older
+	 * segments leaves only the records after the roll.
+	 * 
+	 * @throws IOException if the journal cannot be used
+	 */
+	@Test
+	public void testRollAndDiscard() throws IOException {
+		CommandJournal journal = new CommandJournal(JOURNAL);
+		assertTrue(journal.isEmpty());
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.setJournal(journal);
+		list.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "Before", "note");
+		assertFalse(journal.isEmpty());
+		long next = journal.roll();
+		assertEquals(2, next);
+		assertTrue(new File(JOURNAL + ".1").exists());
+		assertTrue(new File(JOURNAL + ".2").exists());
+		list.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "After", "note");
+		journal.sync();
+
+		// Before the discard, every segment is replayed.
+		CommandJournal reopened = new CommandJournal(JOURNAL);
+		assertEquals(2, reopened.replay(new ManagedIncidentList()).size());
+		reopened.close();
+
+		journal.discardBefore(next);
+		assertFalse(new File(JOURNAL + ".1").exists());
+		journal.close();
+
+		reopened = new CommandJournal(JOURNAL);
+		ManagedIncidentList replayed = reopened.replay(new ManagedIncidentList());
+		reopened.close();
+		assertEquals(1, replayed.size());
+		assertEquals("After", replayed.getIncidentById(1).getName());
+	}
+
+	/**
+	 * Tests that segments covered by a snapshot are skipped, and that records
+	 * after a fully covered journal go to a segment the snapshot does not cover.
+	 * 
+	 * @throws IOException if the journal cannot be used
+	 */
+	@Test
+	public void testReplaySkipsCoveredSegments() throws IOException {
+		CommandJournal journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.setJournal(journal);
+		list.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "Covered", "note");
+		long next = journal.roll();
+		list.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "Not covered", "note");
+		journal.close();
+
+		journal = new CommandJournal(JOURNAL);
+		ManagedIncidentList replayed = journal.replay(new ManagedIncidentList(), next);
+		journal.close();
+		assertEquals(1, replayed.size());
+		assertEquals("Not covered", replayed.getIncidentById(1).getName());
+
+		journal = new CommandJournal(JOURNAL);
+		assertEquals(0, journal.replay(new ManagedIncidentList(), next + 5).size());
+		ManagedIncidentList fresh = new ManagedIncidentList();
+		fresh.setJournal(journal);
+		fresh.addIncident("caller", Category.INQUIRY, Priority.MEDIUM, "Later", "note");
+		journal.close();
+		assertTrue(new File(JOURNAL + "." + (next + 5)).exists());
+
+		journal = new CommandJournal(JOURNAL);
+		assertEquals(1, journal.replay(new ManagedIncidentList(), next + 5).size());
+		journal.close();
+	}
+
+	/**
+	 * Tests that changes synced by several threads at once are all durable.
+	 * 
+	 * @throws Exception if a thread fails
+	 */
+	@Test
+	public void testGroupCommit() throws Exception {
+		final CommandJournal journal = new CommandJournal(JOURNAL);
+		final ManagedIncidentList list = new ManagedIncidentList();
+		list.setJournal(journal);
+		final int perThread = 50;
+		final ArrayList<Throwable> errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < perThread; i++) {
+							list.addIncident("caller", Category.HARDWARE, Priority.LOW, "Disk " + i, "note");
+							journal.sync();
+						}
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+		long synced = journal.size();
+		journal.close();
+		assertEquals(synced, new File(JOURNAL + ".1").length());
+
+		CommandJournal reopened = new CommandJournal(JOURNAL);
+		assertEquals(threads.length * perThread, reopened.replay(new ManagedIncidentList()).size());
+		reopened.close();
+	}
+
+	/**
+	 * Tests that a file that is not a journal is rejected.
+	 * 
+	 * @throws IOException if the test file cannot be written
+	 */
+	@Test
+	public void testNotAJournal() throws IOException {
+		FileOutputStream out = new FileOutputStream(JOURNAL + ".1");
+		out.write("<Incidents/>".getBytes("UTF-8"));
+		out.close();
+		try {
+			new CommandJournal(JOURNAL);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("not an incident journal"));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests IncidentIdAllocator class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentIdAllocatorTest {
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentIdAllocator#nextId()}.
+	 */
+	@Test
+	public void testNextId() {
+		IncidentIdAllocator ids = new IncidentIdAllocator(0);
+		assertEquals(0, ids.nextId());
+		assertEquals(1, ids.nextId());
+		assertEquals(2, ids.peek());
+
+		try {
+			new IncidentIdAllocator(-1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(2, ids.peek());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentIdAllocator#reserve(int)}.
+	 */
+	@Test
+	public void testReserve() {
+		IncidentIdAllocator ids = new IncidentIdAllocator(5);
+		assertEquals(5, ids.reserve(10));
+		assertEquals(15, ids.nextId());
+
+		try {
+			ids.reserve(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(16, ids.peek());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentIdAllocator#advancePast(int)}.
+	 */
+	@Test
+	public void testAdvancePast() {
+		IncidentIdAllocator ids = new IncidentIdAllocator(0);
+		ids.advancePast(6);
+		assertEquals(7, ids.nextId());
+		ids.advancePast(3);
+		assertEquals(8, ids.nextId());
+	}
+
+	/**
+	 * Tests that threads allocating at the same time never share an id.
+	 * 
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test
+	public void testConcurrentAllocation() throws InterruptedException {
+		final IncidentIdAllocator ids = new IncidentIdAllocator(0);
+		final boolean[] seen = new boolean[4 * 1000 * 3];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						int first = ids.reserve(2);
+						int single = ids.nextId();
+						synchronized (seen) {
+							assertFalse(seen[first]);
+							assertFalse(seen[first + 1]);
+							assertFalse(seen[single]);
+							seen[first] = true;
+							seen[first + 1] = true;
+							seen[single] = true;
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(seen.length, ids.peek());
+	}
+
+}
@@ -0,0 +1,143 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamWriter;
+import edu.ncsu.csc216.incident_management.model.manager.IncidentImportReport.FileResult;
+import edu.ncsu.csc216.incident_management.model.manager.IncidentManager.IdCollisionPolicy;
+
+/**
+ * Tests IncidentImporter class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncidentImporterTest {
+
+	/** First test file, holding ids 1 and 2 */
+	private static final String SITE_A = "test-files/import_site_a.xml";
+
+	/** Second test file, holding ids 2 and 3 */
+	private static final String SITE_B = "test-files/import_site_b.xml";
+
+	/** A file that does not exist */
+	private static final String MISSING = "test-files/import_missing.xml";
+
+	/**
+	 * Tests that files without collisions are all imported.
+	 */
+	@Test
+	public void testImportWithoutCollisions() {
+		write(SITE_A, "a", 1, 2);
+		write(SITE_B, "b", 3, 4);
+		ManagedIncidentList list = new ManagedIncidentList();
+		IncidentImportReport report = new IncidentImporter(list, IdCollisionPolicy.REJECT)
+				.importFiles(Arrays.asList(SITE_A, SITE_B, MISSING));
+
+		assertEquals(4, report.getAdded());
+		assertEquals(1, report.getFailed());
+		assertEquals(4, list.size());
+		assertEquals(5, list.getNextIncidentId());
+		FileResult a = report.getFileResults().get(0);
+		assertEquals(SITE_A, a.getFileName());
+		assertEquals(2, a.getRead());
+		assertEquals(2, a.getAdded());
+		assertNull(a.getError());
+		assertTrue(a.getReadNanos() > 0);
+		assertNotNull(report.getFileResults().get(2).getError());
+	}
+
+	/**
+	 * Tests that a file with a colliding id is rejected as a whole.
+	 */
+	@Test
+	public void testReject() {
+		write(SITE_A, "a", 1, 2);
+		write(SITE_B, "b", 2, 3);
+		ManagedIncidentList list = new ManagedIncidentList();
+		IncidentImportReport report = new IncidentImporter(list, IdCollisionPolicy.REJECT)
+				.importFiles(Arrays.asList(SITE_A, SITE_B));
+
+		assertEquals(2, report.getAdded());
+		assertEquals(1, report.getFailed());
+		assertNull(list.getIncidentById(3));
+		assertEquals("a", list.getIncidentById(2).getCaller());
+
+		// Ids already in the list collide too.
+		report = new IncidentImporter(list, IdCollisionPolicy.REJECT).importFiles(Arrays.asList(SITE_A));
+		assertEquals(0, report.getAdded());
+		assertEquals(2, list.size());
+	}
+
+	/**
+	 * Tests that colliding incidents are added under new ids.
+	 */
+	@Test
+	public void testRemap() {
+		write(SITE_A, "a", 1, 2);
+		write(SITE_B, "b", 2, 9);
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.addIncident("local", Category.NETWORK, Priority.LOW, "name", "note");
+		IncidentImportReport report = new IncidentImporter(list, IdCollisionPolicy.REMAP)
+				.importFiles(Arrays.asList(SITE_A, SITE_B));
+
+		assertEquals(4, report.getAdded());
+		assertEquals(5, list.size());
+		assertEquals(1, report.getFileResults().get(1).getRemapped());
+		assertEquals("local", list.getIncidentById(0).getCaller());
+		assertEquals("a", list.getIncidentById(2).getCaller());
+		assertEquals("b", list.getIncidentById(9).getCaller());
+		assertEquals("b", list.getIncidentById(10).getCaller());
+		assertEquals(11, list.getNextIncidentId());
+	}
+
+	/**
+	 * Tests that the incident from the newest file is kept.
+	 */
+	@Test
+	public void testKeepNewest() {
+		write(SITE_A, "a", 1, 2);
+		write(SITE_B, "b", 2, 3);
+		assertTrue(new File(SITE_A).setLastModified(System.currentTimeMillis()));
+		assertTrue(new File(SITE_B).setLastModified(System.currentTimeMillis() - 60000));
+		ManagedIncidentList list = new ManagedIncidentList();
+		IncidentImportReport report = new IncidentImporter(list, IdCollisionPolicy.KEEP_NEWEST)
+				.importFiles(Arrays.asList(SITE_A, SITE_B));
+
+		assertEquals(3, report.getAdded());
+		assertEquals(3, list.size());
+		assertEquals("a", list.getIncidentById(2).getCaller());
+		assertEquals(1, report.getFileResults().get(1).getSuperseded());
+		assertEquals(1, report.getFileResults().get(1).getAdded());
+	}
+
+	/**
+	 * Writes a test file holding incidents with the given ids.
+	 *
+	 * @param fileName the file
+	 * @param caller   the caller of every incident
+	 * @param ids      the ids
+	 */
+	private static void write(String fileName, String caller, int... ids) {
+		ArrayList<ManagedIncident> incidents = new ArrayList<ManagedIncident>();
+		for (int id : ids) {
+			incidents.add(new ManagedIncident(id, caller, Category.SOFTWARE, Priority.HIGH, "name " + id, "note"));
+		}
+		try {
+			new IncidentStreamWriter(fileName).writeIncidents(incidents);
+		} catch (IncidentIOException e) {
+			fail(e.getMessage());
+		}
+	}
+}
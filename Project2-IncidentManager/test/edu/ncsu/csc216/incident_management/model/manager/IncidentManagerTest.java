@@ -2,12 +2,18 @@ package edu.ncsu.csc216.incident_management.model.manager;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 import edu.ncsu.csc216.incident_management.model.command.Command;
 import edu.ncsu.csc216.incident_management.model.command.Command.CommandValue;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamReader.ValidationMode;
+import edu.ncsu.csc216.incident_management.model.io.IncidentValidationError;
 
 /**
  * Tests IncidentManager class
@@ -100,6 +106,121 @@ public class IncidentManagerTest {
 
 	}
 
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#saveManagedIncidentsToBinaryFile(java.lang.String)},
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#loadManagedIncidentsFromBinaryFile(java.lang.String)}
+	 * and
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#mapManagedIncidentsFromBinaryFile(java.lang.String)}.
+	 */
+	@Test
+	public void testBinaryFile() {
+		IncidentManager.getInstance().createNewManagedIncidentList();
+		IncidentManager.getInstance().loadManagedIncidentsFromFile("test-files/incident1.xml");
+		Object[][] expected = IncidentManager.getInstance().getManagedIncidentsAsArray();
+		IncidentManager.getInstance().saveManagedIncidentsToBinaryFile("test-files/manager_binary.bin");
+
+		IncidentManager.getInstance().createNewManagedIncidentList();
+		IncidentManager.getInstance().loadManagedIncidentsFromBinaryFile("test-files/manager_binary.bin");
+		assertArrayEquals(expected, IncidentManager.getInstance().getManagedIncidentsAsArray());
+
+		// Mapped, the table is the same and incidents are built as they are opened.
+		IncidentManager.getInstance().createNewManagedIncidentList();
+		IncidentManager.getInstance().mapManagedIncidentsFromBinaryFile("test-files/manager_binary.bin");
+		assertArrayEquals(expected, IncidentManager.getInstance().getManagedIncidentsAsArray());
+		assertEquals("Jenkins installation", IncidentManager.getInstance().getManagedIncidentById(1).getName());
+
+		// An XML file is not a snapshot.
+		IncidentManager.getInstance().createNewManagedIncidentList();
+		try {
+			IncidentManager.getInstance().loadManagedIncidentsFromBinaryFile("test-files/incident1.xml");
+			fail();
+		} catch (IllegalArgumentException iae) {
+			assertEquals(0, IncidentManager.getInstance().getManagedIncidentsAsArray().length);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#loadManagedIncidentsFromFileInParallel(java.lang.String)}.
+	 */
+	@Test
+	public void testLoadManagedIncidentsFromFileInParallel() {
+		IncidentManager.getInstance().createNewManagedIncidentList();
+		IncidentManager.getInstance().loadManagedIncidentsFromFile("test-files/incident1.xml");
+		String[][] expected = IncidentManager.getInstance().getManagedIncidentsAsArray();
+
+		IncidentManager.getInstance().createNewManagedIncidentList();
+		try {
+			IncidentManager.getInstance().loadManagedIncidentsFromFileInParallel("test-files/incident-1.xml");
+			fail();
+		} catch (IllegalArgumentException iae) {
+			assertEquals(0, IncidentManager.getInstance().getManagedIncidentsAsArray().length);
+		}
+		IncidentManager.getInstance().loadManagedIncidentsFromFileInParallel("test-files/incident1.xml");
+		assertArrayEquals(expected, IncidentManager.getInstance().getManagedIncidentsAsArray());
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#importManagedIncidentsFromFiles(java.util.List, edu.ncsu.csc216.incident_management.model.manager.IncidentManager.IdCollisionPolicy)}.
+	 */
+	@Test
+	public void testImportManagedIncidentsFromFiles() {
+		IncidentManager.getInstance().createNewManagedIncidentList();
+		IncidentImportReport report = IncidentManager.getInstance().importManagedIncidentsFromFiles(
+				Arrays.asList("test-files/incident1.xml", "test-files/incident1.xml", "test-files/incident-1.xml"),
+				IncidentManager.IdCollisionPolicy.REMAP);
+		assertEquals(12, report.getAdded());
+		assertEquals(1, report.getFailed());
+		assertEquals(12, IncidentManager.getInstance().getManagedIncidentsAsArray().length);
+
+		try {
+			IncidentManager.getInstance().importManagedIncidentsFromFiles(Arrays.asList("test-files/incident1.xml"),
+					null);
+			fail();
+		} catch (IllegalArgumentException iae) {
+			assertEquals(12, IncidentManager.getInstance().getManagedIncidentsAsArray().length);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#saveManagedIncidentsIncrementally(java.lang.String)}
+	 * and
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#loadManagedIncidentsFromIncrementalFile(java.lang.String)}.
+	 */
+	@Test
+	public void testIncrementalSave() {
+		String fileName = "test-files/manager_incremental.xml";
+		new File(fileName + ".delta").delete();
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		manager.loadManagedIncidentsFromFile("test-files/incident1.xml");
+		manager.setDeltaMergeFraction(0.5);
+		manager.saveManagedIncidentsIncrementally(fileName);
+		assertFalse(new File(fileName + ".delta").exists());
+
+		manager.executeCommand(1, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "taken"));
+		manager.deleteManagedIncidentById(2);
+		manager.saveManagedIncidentsIncrementally(fileName);
+		assertTrue(new File(fileName + ".delta").exists());
+		String[][] expected = manager.getManagedIncidentsAsArray();
+
+		manager.createNewManagedIncidentList();
+		manager.loadManagedIncidentsFromIncrementalFile(fileName);
+		assertArrayEquals(expected, manager.getManagedIncidentsAsArray());
+		assertEquals("owner", manager.getManagedIncidentById(1).getOwner());
+		assertNull(manager.getManagedIncidentById(2));
+
+		try {
+			manager.setDeltaMergeFraction(0);
+			fail();
+		} catch (IllegalArgumentException iae) {
+			manager.setDeltaMergeFraction(IncidentManager.DEFAULT_DELTA_MERGE_FRACTION);
+		}
+	}
+
 	/**
 	 * Test method for
 	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#createNewManagedIncidentList()}.
@@ -129,6 +250,23 @@ public class IncidentManagerTest {
 				IncidentManager.getInstance().getManagedIncidentsAsArrayByCategory(Category.DATABASE)[0][2]);
 	}
 
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#getManagedIncidentsAsArrayByState(java.lang.String)}.
+	 */
+	@Test
+	public void testGetManagedIncidentsAsArrayByState() {
+		IncidentManager.getInstance().createNewManagedIncidentList();
+		IncidentManager.getInstance().addManagedIncidentToList("Eric", ManagedIncident.Category.DATABASE,
+				ManagedIncident.Priority.HIGH, "Replace Database infrastructure.", "so many notes");
+		assertEquals(1, IncidentManager.getInstance().getManagedIncidentsAsArrayByState(ManagedIncident.NEW_NAME).length);
+		Command cm = new Command(CommandValue.INVESTIGATE, "zmei", null, null, null, "note");
+		IncidentManager.getInstance().executeCommand(0, cm);
+		assertEquals(0, IncidentManager.getInstance().getManagedIncidentsAsArrayByState(ManagedIncident.NEW_NAME).length);
+		assertEquals("In Progress", IncidentManager.getInstance()
+				.getManagedIncidentsAsArrayByState(ManagedIncident.IN_PROGRESS_NAME)[0][2]);
+	}
+
 	/**
 	 * Test method for GetManagedIncidentsAsArray
 	 */
@@ -187,4 +325,357 @@ public class IncidentManagerTest {
 		assertEquals("so many notes" + '\n' + "-------" + '\n', IncidentManager.getInstance().getManagedIncidentById(0).getNotesString());
 	}
 
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#recoverManagedIncidents(java.lang.String, java.lang.String)}.
+	 */
+	@Test
+	public void testRecoverManagedIncidents() {
+		String snapshot = "test-files/recover_snapshot.xml";
+		String journal = "test-files/recover_journal.log";
+		new File(snapshot).delete();
+		deleteSegments(journal);
+		IncidentManager manager = IncidentManager.getInstance();
+		try {
+			manager.recoverManagedIncidents(snapshot, journal);
+			assertEquals(0, manager.getManagedIncidentsAsArray().length);
+			manager.addManagedIncidentToList("Eric", ManagedIncident.Category.DATABASE,
+					ManagedIncident.Priority.HIGH, "Replace Database infrastructure.", "so many notes");
+			manager.addManagedIncidentToList("Ann", ManagedIncident.Category.NETWORK, ManagedIncident.Priority.LOW,
+					"Wifi", "flaky");
+
+			// A restart finds the changes in the journal.
+			manager.recoverManagedIncidents(snapshot, journal);
+			assertEquals(2, manager.getManagedIncidentsAsArray().length);
+
+			// Saving the snapshot takes a checkpoint, which drops the covered segment.
+			manager.saveManagedIncidentsToFile(snapshot);
+			assertTrue(new File(snapshot).exists());
+			assertFalse(new File(journal + ".1").exists());
+			long empty = new File(journal + ".2").length();
+			manager.executeCommand(0, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "mine"));
+			manager.deleteManagedIncidentById(1);
+			assertTrue(new File(journal + ".2").length() > empty);
+
+			manager.recoverManagedIncidents(snapshot, journal);
+			assertEquals(1, manager.getManagedIncidentsAsArray().length);
+			assertEquals(ManagedIncident.IN_PROGRESS_NAME,
+					manager.getManagedIncidentById(0).getState().getStateName());
+			assertEquals(2, manager.getManagedIncidentById(0).getNotes().size());
+
+			// A new list is journaled too.
+			manager.createNewManagedIncidentList();
+			manager.recoverManagedIncidents(snapshot, journal);
+			assertEquals(0, manager.getManagedIncidentsAsArray().length);
+		} finally {
+			manager.closeJournal();
+			manager.createNewManagedIncidentList();
+			new File(snapshot).delete();
+			deleteSegments(journal);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#setMaxJournalSize(long)}.
+	 * 
+	 * @throws InterruptedException if interrupted while waiting for the checkpoint
+	 */
+	@Test
+	public void testBackgroundCheckpoint() throws InterruptedException {
+		String snapshot = "test-files/checkpoint_snapshot.xml";
+		String journal = "test-files/checkpoint_journal.log";
+		new File(snapshot).delete();
+		deleteSegments(journal);
+		IncidentManager manager = IncidentManager.getInstance();
+		try {
+			manager.setCheckpointInterval(0);
+			fail();
+		} catch (IllegalArgumentException iae) {
+			// The interval must be positive.
+		}
+		try {
+			manager.setCheckpointInterval(IncidentManager.DEFAULT_CHECKPOINT_INTERVAL);
+			manager.setMaxJournalSize(1);
+			manager.recoverManagedIncidents(snapshot, journal);
+			manager.addManagedIncidentToList("Eric", ManagedIncident.Category.DATABASE,
+					ManagedIncident.Priority.HIGH, "Replace Database infrastructure.", "so many notes");
+
+			// The journal is over its maximum size, so a checkpoint runs without waiting
+			// for the interval.
+			long deadline = System.currentTimeMillis() + 10000;
+			while (!new File(snapshot).exists() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			assertTrue(new File(snapshot).exists());
+			manager.closeJournal();
+
+			manager.recoverManagedIncidents(snapshot, journal);
+			assertEquals(1, manager.getManagedIncidentsAsArray().length);
+		} finally {
+			manager.closeJournal();
+			manager.setMaxJournalSize(IncidentManager.DEFAULT_MAX_JOURNAL_SIZE);
+			manager.createNewManagedIncidentList();
+			new File(snapshot).delete();
+			deleteSegments(journal);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#startAutosave(java.lang.String, long, int)}.
+	 * 
+	 * @throws InterruptedException if interrupted while waiting for the autosave
+	 */
+	@Test
+	public void testAutosave() throws InterruptedException {
+		String fileName = "test-files/autosave.xml";
+		new File(fileName).delete();
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		assertNull(manager.getAutosaveMetrics());
+		try {
+			manager.startAutosave(fileName, 0, 1);
+			fail();
+		} catch (IllegalArgumentException iae) {
+			assertNull(manager.getAutosaveMetrics());
+		}
+		try {
+			// The interval is too long to matter, so the second change starts the save.
+			manager.startAutosave(fileName, IncidentManager.DEFAULT_CHECKPOINT_INTERVAL, 2);
+			manager.addManagedIncidentToList("Eric", ManagedIncident.Category.DATABASE,
+					ManagedIncident.Priority.HIGH, "Replace Database infrastructure.", "so many notes");
+			assertEquals(1, manager.getAutosaveMetrics().getPendingChanges());
+			assertFalse(new File(fileName).exists());
+			manager.addManagedIncidentToList("Eric", ManagedIncident.Category.NETWORK,
+					ManagedIncident.Priority.LOW, "Replace the router.", "notes");
+			long deadline = System.currentTimeMillis() + 10000;
+			while (manager.getAutosaveMetrics().getSaveCount() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20);
+			}
+			AutosaveMetrics metrics = manager.getAutosaveMetrics();
+			assertEquals(1, metrics.getSaveCount());
+			assertEquals(0, metrics.getPendingChanges());
+			assertEquals(0, metrics.getLagMillis());
+			assertEquals(0, metrics.getFailureCount());
+			assertNull(metrics.getLastError());
+			assertTrue(metrics.getLastSaveNanos() > 0);
+
+			// Stopping saves the change not yet saved.
+			String[][] rows = manager.getManagedIncidentsAsArray();
+			int first = Integer.parseInt(rows[0][0]);
+			int second = Integer.parseInt(rows[1][0]);
+			manager.deleteManagedIncidentById(first);
+			assertEquals(1, manager.getAutosaveMetrics().getPendingChanges());
+			manager.stopAutosave();
+			assertNull(manager.getAutosaveMetrics());
+			manager.createNewManagedIncidentList();
+			manager.loadManagedIncidentsFromFile(fileName);
+			assertEquals(1, manager.getManagedIncidentsAsArray().length);
+			assertEquals("Replace the router.", manager.getManagedIncidentById(second).getName());
+
+			// A short interval saves without reaching the number of changes.
+			manager.startAutosave(fileName, 20, 1000);
+			manager.deleteManagedIncidentById(second);
+			deadline = System.currentTimeMillis() + 10000;
+			while (manager.getAutosaveMetrics().getSaveCount() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20);
+			}
+			assertEquals(1, manager.getAutosaveMetrics().getSaveCount());
+		} finally {
+			manager.stopAutosave();
+			manager.createNewManagedIncidentList();
+			new File(fileName).delete();
+		}
+	}
+
+	/**
+	 * Tests that a rejected command still counts towards the next autosave, since
+	 * it may have changed the incident before it was rejected.
+	 */
+	@Test
+	public void testRejectedCommandCounted() {
+		String fileName = "test-files/autosave_rejected.xml";
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		try {
+			manager.addManagedIncidentToList("Eric", ManagedIncident.Category.DATABASE,
+					ManagedIncident.Priority.HIGH, "Replace Database infrastructure.", "so many notes");
+			int id = Integer.parseInt(manager.getManagedIncidentsAsArray()[0][0]);
+			manager.startAutosave(fileName, IncidentManager.DEFAULT_CHECKPOINT_INTERVAL, 1000);
+			try {
+				manager.executeCommand(id, new Command(CommandValue.REOPEN, null, null, null, null, "note"));
+				fail();
+			} catch (UnsupportedOperationException uoe) {
+				assertEquals(1, manager.getAutosaveMetrics().getPendingChanges());
+			}
+		} finally {
+			manager.stopAutosave();
+			manager.createNewManagedIncidentList();
+			new File(fileName).delete();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#loadManagedIncidentsFromFile(java.lang.String, edu.ncsu.csc216.incident_management.model.io.IncidentStreamReader.ValidationMode)}.
+	 */
+	@Test
+	public void testLoadWithValidationMode() {
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		try {
+			manager.loadManagedIncidentsFromFile("test-files/incident_mixed.xml", ValidationMode.FAIL_FAST);
+			fail();
+		} catch (IllegalArgumentException iae) {
+			assertEquals(0, manager.getManagedIncidentsAsArray().length);
+		}
+
+		List<IncidentValidationError> errors = manager.loadManagedIncidentsFromFile("test-files/incident_mixed.xml",
+				ValidationMode.COLLECT_ALL);
+		assertEquals(4, errors.size());
+		assertEquals(0, manager.getManagedIncidentsAsArray().length);
+
+		errors = manager.loadManagedIncidentsFromFile("test-files/incident_mixed.xml", ValidationMode.SKIP_INVALID);
+		assertEquals(4, errors.size());
+		assertEquals(2, manager.getManagedIncidentsAsArray().length);
+
+		manager.createNewManagedIncidentList();
+		assertTrue(manager.loadManagedIncidentsFromFile("test-files/incident1.xml", ValidationMode.COLLECT_ALL)
+				.isEmpty());
+		assertEquals(6, manager.getManagedIncidentsAsArray().length);
+
+		try {
+			manager.loadManagedIncidentsFromFile("test-files/no_such_file.xml", ValidationMode.COLLECT_ALL);
+			fail();
+		} catch (IllegalArgumentException iae) {
+			manager.createNewManagedIncidentList();
+		}
+	}
+
+	/**
+	 * Deletes every segment of a journal.
+	 * 
+	 * @param journal the journal
+	 */
+	private static void deleteSegments(String journal) {
+		File base = new File(journal);
+		for (File file : base.getAbsoluteFile().getParentFile().listFiles()) {
+			if (file.getName().startsWith(base.getName()))
+				file.delete();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#getManagedIncidentColumns()}.
+	 */
+	@Test
+	public void testGetManagedIncidentColumns() {
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		manager.loadManagedIncidentsFromFile("test-files/incident1.xml");
+		String[][] rows = manager.getManagedIncidentsAsArray();
+
+		ColumnarIncidentStore columns = manager.getManagedIncidentColumns();
+		assertEquals(rows.length, columns.size());
+		int[] all = new int[columns.size()];
+		for (int row = 0; row < all.length; row++) {
+			all[row] = row;
+		}
+		String[][] table = columns.getTableRows(all);
+		for (int row = 0; row < rows.length; row++) {
+			assertArrayEquals(rows[row], table[row]);
+		}
+		assertEquals(manager.getManagedIncidentsAsArrayByState(ManagedIncident.NEW_NAME).length,
+				columns.findByState(ManagedIncident.NEW_NAME).length);
+
+		// The columns stay as they were when taken.
+		manager.deleteManagedIncidentById(Integer.parseInt(rows[0][0]));
+		assertEquals(rows.length, columns.size());
+		assertEquals(rows.length - 1, manager.getManagedIncidentColumns().size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#setOffHeapNotes(boolean)}.
+	 */
+	@Test
+	public void testSetOffHeapNotes() {
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		manager.setOffHeapNotes(true);
+		try {
+			assertNotNull(manager.getOffHeapNoteStore());
+			manager.loadManagedIncidentsFromFile("test-files/incident1.xml");
+			assertTrue(manager.getOffHeapNoteStore().getNoteCount() > 0);
+			int id = Integer.parseInt(manager.getManagedIncidentsAsArray()[0][0]);
+			ManagedIncident incident = manager.getManagedIncidentById(id);
+			assertSame(manager.getOffHeapNoteStore(), incident.getNoteStore());
+			assertFalse(incident.getNotes().isEmpty());
+		} finally {
+			manager.setOffHeapNotes(false);
+		}
+		assertNull(manager.getOffHeapNoteStore());
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IncidentManager#getStringPool()}.
+	 */
+	@Test
+	public void testGetStringPool() {
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		long saved = manager.getStringPool().getSavedBytes();
+		manager.loadManagedIncidentsFromFile("test-files/incident1.xml");
+		manager.loadManagedIncidentsFromFile("test-files/incident1.xml");
+		// The second load repeats every caller and note of the first.
+		assertTrue(manager.getStringPool().getSavedBytes() > saved);
+	}
+
+	/**
+	 * Tests that a change counted after the autosave stopped does not fail, even
+	 * when it would queue a save.
+	 */
+	@Test
+	public void testChangeAfterAutosaveStopped() {
+		String fileName = "test-files/autosave_stopped.xml";
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		Autosaver autosaver = new Autosaver(manager, fileName, 60000, 1);
+		autosaver.stop();
+		autosaver.changed();
+		autosaver.changed();
+		assertEquals(2, autosaver.getMetrics().getPendingChanges());
+		new File(fileName).delete();
+	}
+
+	/**
+	 * Tests that a save failing with an exception other than
+	 * IllegalArgumentException is recorded and tried again, rather than stopping
+	 * the autosave for good.
+	 * 
+	 * @throws InterruptedException if interrupted while waiting for the autosave
+	 */
+	@Test
+	public void testAutosaveKeepsRunningAfterFailure() throws InterruptedException {
+		IncidentManager manager = IncidentManager.getInstance();
+		manager.createNewManagedIncidentList();
+		// A save to no file at all fails with a NullPointerException.
+		Autosaver autosaver = new Autosaver(manager, null, 20, 1000);
+		try {
+			autosaver.changed();
+			long deadline = System.currentTimeMillis() + 10000;
+			while (autosaver.getMetrics().getFailureCount() < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20);
+			}
+			AutosaveMetrics metrics = autosaver.getMetrics();
+			assertTrue(metrics.getFailureCount() >= 2);
+			assertTrue(metrics.getLastError().startsWith(NullPointerException.class.getName()));
+			assertEquals(1, metrics.getPendingChanges());
+		} finally {
+			autosaver.stop();
+		}
+	}
 }
@@ -0,0 +1,105 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.ncsu.csc216.incident.io.IncidentIOException;
+import edu.ncsu.csc216.incident_management.model.command.Command;
+import edu.ncsu.csc216.incident_management.model.command.Command.CommandValue;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
+import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamReader;
+
+/**
+ * Tests IncrementalSaver class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IncrementalSaverTest {
+
+	/** The base file */
+	private static final String BASE = "test-files/incremental_base.xml";
+
+	/**
+	 * Tests that only changes go to the delta until it grows past the merge
+	 * fraction.
+	 *
+	 * @throws IncidentIOException if a file cannot be written or read
+	 */
+	@Test
+	public void testSave() throws IncidentIOException {
+		new File(BASE + IncrementalSaver.DELTA_SUFFIX).delete();
+		ManagedIncidentList list = new ManagedIncidentList();
+		for (int i = 0; i < 10; i++) {
+			list.addIncident("caller", Category.SOFTWARE, Priority.LOW, "name " + i, "note");
+		}
+		IncrementalSaver saver = new IncrementalSaver(BASE);
+
+		// The first save of a list writes the base file.
+		assertTrue(saver.save(list, 0.25, 0));
+		assertEquals(10, new IncidentStreamReader(BASE).readIncidents().size());
+		assertNull(IncrementalSaver.deltaOf(BASE));
+
+		// A change and a delete go to the delta.
+		list.executeCommand(4, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "taken"));
+		list.deleteIncidentById(7);
+		assertFalse(saver.save(list, 0.25, 0));
+		IncidentStreamReader base = new IncidentStreamReader(BASE);
+		assertEquals(10, base.readIncidents().size());
+		IncidentStreamReader delta = new IncidentStreamReader(IncrementalSaver.deltaOf(BASE));
+		assertEquals(1, delta.readIncidents().size());
+		assertArrayEquals(new int[] { 7 }, delta.getDeletedIds());
+		assertEquals(base.getBaseId(), delta.getBaseId());
+
+		// The delta holds everything since the base file, not just the last save.
+		list.addIncident("caller", Category.NETWORK, Priority.LOW, "new", "note");
+		assertFalse(saver.save(list, 0.5, 0));
+		delta = new IncidentStreamReader(IncrementalSaver.deltaOf(BASE));
+		assertEquals(2, delta.readIncidents().size());
+
+		// Past the merge fraction, the whole list is written again.
+		list.executeCommand(0, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "taken"));
+		assertTrue(saver.save(list, 0.25, 0));
+		base = new IncidentStreamReader(BASE);
+		assertEquals(10, base.readIncidents().size());
+		assertNull(IncrementalSaver.deltaOf(BASE));
+
+		// Deletions already in the base file are not listed again.
+		list.executeCommand(1, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "taken"));
+		assertFalse(saver.save(list, 0.25, 0));
+		delta = new IncidentStreamReader(IncrementalSaver.deltaOf(BASE));
+		assertEquals(1, delta.readIncidents().size());
+		assertEquals(0, delta.getDeletedIds().length);
+	}
+
+	/**
+	 * Tests that an incident constructed before the base file is written, but
+	 * added to the list after it, goes to the next delta.
+	 *
+	 * @throws IncidentIOException if a file cannot be written or read
+	 */
+	@Test
+	public void testIncidentAddedAfterMark() throws IncidentIOException {
+		new File(BASE + IncrementalSaver.DELTA_SUFFIX).delete();
+		ManagedIncidentList list = new ManagedIncidentList();
+		for (int i = 0; i < 10; i++) {
+			list.addIncident("caller", Category.SOFTWARE, Priority.LOW, "name " + i, "note");
+		}
+		IncrementalSaver saver = new IncrementalSaver(BASE);
+		ManagedIncident late = new ManagedIncident(20, "caller", Category.NETWORK, Priority.LOW, "late", "note");
+		assertTrue(saver.save(list, 0.5, 0));
+		list.addManagedIncidents(Arrays.asList(late));
+		assertFalse(saver.save(list, 0.5, 0));
+		ArrayList<ManagedIncident> delta = new IncidentStreamReader(IncrementalSaver.deltaOf(BASE)).readIncidents();
+		assertEquals(1, delta.size());
+		assertEquals(20, delta.get(0).getIncidentId());
+	}
+}
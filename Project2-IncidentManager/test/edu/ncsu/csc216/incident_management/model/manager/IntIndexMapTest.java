@@ -0,0 +1,77 @@
+package edu.ncsu.csc216.incident_management.model.manager;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests IntIndexMap class
+ *
+ * @author Dennis Sarsozo
+ * @author Zhongxiao Mei
+ *
+ */
+public class IntIndexMapTest {
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IntIndexMap#put(int, int)}.
+	 */
+	@Test
+	public void testPut() {
+		IntIndexMap map = new IntIndexMap();
+		assertEquals(IntIndexMap.NO_VALUE, map.put(3, 30));
+		assertEquals(30, map.put(3, 31));
+		assertEquals(1, map.size());
+		assertEquals(31, map.get(3));
+
+		map.put(Integer.MIN_VALUE, 7);
+		assertEquals(7, map.get(Integer.MIN_VALUE));
+		assertEquals(2, map.size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IntIndexMap#get(int)}.
+	 */
+	@Test
+	public void testGet() {
+		IntIndexMap map = new IntIndexMap();
+		assertEquals(IntIndexMap.NO_VALUE, map.get(0));
+		assertFalse(map.containsKey(0));
+		for (int i = 0; i < 10000; i++) {
+			map.put(i * 16, i);
+		}
+		assertEquals(10000, map.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i, map.get(i * 16));
+		}
+		assertEquals(IntIndexMap.NO_VALUE, map.get(1));
+		assertTrue(map.containsKey(160));
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.IntIndexMap#remove(int)}.
+	 */
+	@Test
+	public void testRemove() {
+		IntIndexMap map = new IntIndexMap();
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i + 1);
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			assertEquals(i + 1, map.remove(i));
+		}
+		assertEquals(IntIndexMap.NO_VALUE, map.remove(0));
+		assertEquals(500, map.size());
+		for (int i = 1; i < 1000; i += 2) {
+			assertEquals(i + 1, map.get(i));
+		}
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertEquals(IntIndexMap.NO_VALUE, map.get(1));
+	}
+
+}
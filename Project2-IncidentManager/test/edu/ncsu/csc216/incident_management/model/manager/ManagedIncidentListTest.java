@@ -6,12 +6,16 @@ import java.util.ArrayList;
 
 import org.junit.Test;
 
+import edu.ncsu.csc216.incident.io.IncidentIOException;
 import edu.ncsu.csc216.incident.xml.Incident;
 import edu.ncsu.csc216.incident_management.model.command.Command;
 import edu.ncsu.csc216.incident_management.model.command.Command.CommandValue;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Category;
 import edu.ncsu.csc216.incident_management.model.incident.ManagedIncident.Priority;
+import edu.ncsu.csc216.incident_management.model.io.IncidentBinaryReader;
+import edu.ncsu.csc216.incident_management.model.io.IncidentBinaryWriter;
+import edu.ncsu.csc216.incident_management.model.io.IncidentStreamReader;
 
 /**
  * Tests ManagedIncidentList class
@@ -54,7 +58,8 @@ public class ManagedIncidentListTest {
 		ArrayList<Incident> a = new ArrayList<Incident>();
 		a.add(incident.getXMLIncident());
 		list.addXMLIncidents(a);
-		assertEquals("caller", list.getIncidentById(0).getCaller());
+		assertEquals("caller", list.getIncidentById(incident.getIncidentId()).getCaller());
+		assertEquals(incident.getIncidentId() + 1, list.getNextIncidentId());
 	}
 
 	/**
@@ -80,6 +85,46 @@ public class ManagedIncidentListTest {
 //		list.addIncident("zzzz", Category.INQUIRY, Priority.LOW, "name", "workNote");
 		assertEquals(1, list.getManagedIncidents().size());
 		assertEquals("caller", list.getIncidentsByCategory(Category.SOFTWARE).get(0).getCaller());
+
+		list.addIncident("zmei", Category.HARDWARE, Priority.MEDIUM, "name", "workNote");
+		list.addIncident("zzzz", Category.SOFTWARE, Priority.LOW, "name", "workNote");
+		assertEquals(2, list.getIncidentsByCategory(Category.SOFTWARE).size());
+		assertEquals("zzzz", list.getIncidentsByCategory(Category.SOFTWARE).get(1).getCaller());
+		assertEquals(0, list.getIncidentsByCategory(Category.NETWORK).size());
+
+		list.deleteIncidentById(0);
+		assertEquals(1, list.getIncidentsByCategory(Category.SOFTWARE).size());
+		assertEquals("zzzz", list.getIncidentsByCategory(Category.SOFTWARE).get(0).getCaller());
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.ManagedIncidentList#getIncidentsByState(java.lang.String)}.
+	 */
+	@Test
+	public void testGetIncidentsByState() {
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.addIncident("caller", Category.SOFTWARE, Priority.HIGH, "name", "workNote");
+		list.addIncident("zmei", Category.HARDWARE, Priority.MEDIUM, "name", "workNote");
+		assertEquals(2, list.getIncidentsByState(ManagedIncident.NEW_NAME).size());
+		assertEquals(0, list.getIncidentsByState(ManagedIncident.ON_HOLD_NAME).size());
+
+		list.executeCommand(1, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "note"));
+		list.executeCommand(1, new Command(CommandValue.HOLD, "owner", Command.OnHoldReason.AWAITING_CALLER, null,
+				null, "note"));
+		assertEquals(1, list.getIncidentsByState(ManagedIncident.NEW_NAME).size());
+		assertEquals(0, list.getIncidentsByState(ManagedIncident.IN_PROGRESS_NAME).size());
+		assertEquals("zmei", list.getIncidentsByState(ManagedIncident.ON_HOLD_NAME).get(0).getCaller());
+
+		list.deleteIncidentById(1);
+		assertEquals(0, list.getIncidentsByState(ManagedIncident.ON_HOLD_NAME).size());
+
+		try {
+			list.getIncidentsByState("Sleeping");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(1, list.getManagedIncidents().size());
+		}
 	}
 
 	/**
@@ -120,6 +165,186 @@ public class ManagedIncidentListTest {
 		list.addIncident("zmei", Category.HARDWARE, Priority.HIGH, "name", "workNote");
 		list.deleteIncidentById(0);
 		assertEquals(1, list.getManagedIncidents().size());
+		assertNull(list.getIncidentById(0));
+		assertEquals("zmei", list.getIncidentById(1).getCaller());
+	}
+
+	/**
+	 * Tests that deletions are recorded only while an incremental save is based on
+	 * the list.
+	 */
+	@Test
+	public void testDeletionsTracked() {
+		ManagedIncidentList list = new ManagedIncidentList();
+		for (int i = 0; i < 4; i++) {
+			list.addIncident("caller", Category.SOFTWARE, Priority.HIGH, "name", "workNote");
+		}
+		list.deleteIncidentById(0);
+		assertEquals(0, list.getDeletedSince(0).length);
+
+		long mark = ManagedIncident.nextVersion();
+		list.trackDeletionsAfter(mark);
+		list.deleteIncidentById(1);
+		list.deleteIncidentById(2);
+		assertArrayEquals(new int[] { 1, 2 }, list.getDeletedSince(mark));
+
+		list.untrackDeletions();
+		assertEquals(0, list.getDeletedSince(mark).length);
+		list.deleteIncidentById(3);
+		assertEquals(0, list.getDeletedSince(mark).length);
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.ManagedIncidentList#addMappedIncidents(edu.ncsu.csc216.incident_management.model.io.MappedIncidentSnapshot)}.
+	 * 
+	 * @throws IncidentIOException if the snapshot cannot be written or mapped
+	 */
+	@Test
+	public void testAddMappedIncidents() throws IncidentIOException {
+		ArrayList<ManagedIncident> original = new IncidentStreamReader("test-files/incident1.xml").readIncidents();
+		new IncidentBinaryWriter("test-files/list_mapped.bin").writeIncidents(original);
+		ManagedIncidentList eager = new ManagedIncidentList();
+		eager.addManagedIncidents(original);
+
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.addMappedIncidents(new IncidentBinaryReader("test-files/list_mapped.bin").mapIncidents());
+		assertEquals(original.size(), list.size());
+		assertEquals(eager.getNextIncidentId(), list.getNextIncidentId());
+		assertArrayEquals(eager.getIncidentRows(), list.getIncidentRows());
+		assertArrayEquals(eager.getIncidentRowsByCategory(Category.HARDWARE),
+				list.getIncidentRowsByCategory(Category.HARDWARE));
+		assertArrayEquals(eager.getIncidentRowsByState(ManagedIncident.IN_PROGRESS_NAME),
+				list.getIncidentRowsByState(ManagedIncident.IN_PROGRESS_NAME));
+
+		// Built on first lookup, and the same incident afterwards.
+		ManagedIncident second = list.getIncidentById(2);
+		assertEquals(original.get(1).getNotes(), second.getNotes());
+		assertSame(second, list.getIncidentById(2));
+
+		// Commands and deletes work on incidents whether or not they are built.
+		list.executeCommand(1, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "note"));
+		assertEquals(ManagedIncident.IN_PROGRESS_NAME, list.getIncidentRowsByCategory(Category.SOFTWARE)[0][2]);
+		list.deleteIncidentById(3);
+		list.deleteIncidentById(2);
+		assertNull(list.getIncidentById(3));
+		assertEquals(original.size() - 2, list.getIncidentRows().length);
+		list.compact();
+		assertEquals(original.size() - 2, list.getManagedIncidents().size());
+		assertEquals(original.get(5).getName(), list.getIncidentById(6).getName());
+		assertEquals(original.size() - 2, list.getIncidentRowsByState(ManagedIncident.NEW_NAME).length
+				+ list.getIncidentRowsByState(ManagedIncident.IN_PROGRESS_NAME).length
+				+ list.getIncidentRowsByState(ManagedIncident.ON_HOLD_NAME).length
+				+ list.getIncidentRowsByState(ManagedIncident.RESOLVED_NAME).length
+				+ list.getIncidentRowsByState(ManagedIncident.CLOSED_NAME).length
+				+ list.getIncidentRowsByState(ManagedIncident.CANCELED_NAME).length);
+	}
+
+	/**
+	 * Tests that pausing the writers blocks a delete from another thread but not
+	 * a read.
+	 * 
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test
+	public void testPauseWriters() throws InterruptedException {
+		final ManagedIncidentList list = new ManagedIncidentList();
+		list.addIncident("caller", Category.NETWORK, Priority.LOW, "name", "workNote");
+		final int[] read = new int[] { -1 };
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				read[0] = list.getIncidentById(0).getIncidentId() + list.size() + list.getIncidentRows().length;
+			}
+		});
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				list.deleteIncidentById(0);
+			}
+		});
+		list.pauseWriters();
+		try {
+			reader.start();
+			reader.join(10000);
+			assertFalse(reader.isAlive());
+			assertEquals(2, read[0]);
+
+			writer.start();
+			writer.join(200);
+			assertTrue(writer.isAlive());
+			assertEquals(1, list.size());
+		} finally {
+			list.resumeWriters();
+		}
+		writer.join(10000);
+		assertEquals(0, list.size());
+	}
+
+	/**
+	 * Tests adding incidents and executing commands from several threads at once.
+	 * 
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final ManagedIncidentList list = new ManagedIncidentList();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 500; i++) {
+						int id = list.addIncident("caller", Category.NETWORK, Priority.LOW, "name", "workNote");
+						list.executeCommand(id, new Command(CommandValue.INVESTIGATE, "owner", null, null, null, "note"));
+						list.getManagedIncidents();
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(2000, list.size());
+		assertEquals(2000, list.getIncidentsByState(ManagedIncident.IN_PROGRESS_NAME).size());
+		for (int id = 0; id < 2000; id++) {
+			assertEquals(id, list.getIncidentById(id).getIncidentId());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link edu.ncsu.csc216.incident_management.model.manager.ManagedIncidentList#compact()}.
+	 */
+	@Test
+	public void testCompact() {
+		ManagedIncidentList list = new ManagedIncidentList();
+		list.setCompactionThreshold(0.5);
+		for (int i = 0; i < 100; i++) {
+			list.addIncident("caller" + i, Category.SOFTWARE, Priority.HIGH, "name", "workNote");
+		}
+		for (int i = 0; i < 100; i += 3) {
+			list.deleteIncidentById(i);
+		}
+		assertEquals(66, list.size());
+		ArrayList<ManagedIncident> incidents = list.getManagedIncidents();
+		assertEquals(66, incidents.size());
+		assertEquals(1, incidents.get(0).getIncidentId());
+		assertEquals(2, incidents.get(1).getIncidentId());
+		assertEquals(4, incidents.get(2).getIncidentId());
+
+		list.compact();
+		assertEquals(66, list.size());
+		assertEquals("caller98", list.getIncidentById(98).getCaller());
+		assertEquals(98, list.getManagedIncidents().get(65).getIncidentId());
+
+		try {
+			list.setCompactionThreshold(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(66, list.size());
+		}
 	}
 
 }